@@ -0,0 +1,93 @@
+/*
+ * FlexColorScannerBenchmark.java - Benchmark of the color scanner
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.color;
+
+//{{{ Imports
+import org.openjdk.jmh.annotations.*;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+//}}}
+
+/**
+ * Measures the tokenizing done by FlexColorPainter: the scanner is reset on a
+ * reader over each line and every color token of the line is read.
+ * It is in the package of the scanner because the generated class is package
+ * private.
+ * One operation tokenizes {@link #LINES} lines.
+ *
+ * @author Matthieu Casanova
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlexColorScannerBenchmark
+{
+	private static final int LINES = 60;
+	private static final String[] WORDS = {"color", "=", "background:", "#1a2b3c;", "0xFF00FF", "border",
+		"solid", "#zzzzzz", "new", "Color(", ");", "0x12"};
+
+	@Param({"80", "1000", "10000"})
+	public int lineLength;
+
+	private char[][] lines;
+	private final FlexColorScanner scanner = new FlexColorScanner(new StringReader(""));
+
+	//{{{ setup() method
+	@Setup
+	public void setup()
+	{
+		Random random = new Random(42L);
+		lines = new char[LINES][];
+		for (int i = 0; i < LINES; i++)
+		{
+			StringBuilder builder = new StringBuilder(lineLength + 16);
+			while (builder.length() < lineLength)
+				builder.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+			builder.setLength(lineLength);
+			lines[i] = builder.toString().toCharArray();
+		}
+	} //}}}
+
+	//{{{ tokenize() method
+	@Benchmark
+	public int tokenize() throws IOException
+	{
+		int tokens = 0;
+		for (char[] line : lines)
+		{
+			try (CharArrayReader reader = new CharArrayReader(line, 0, line.length))
+			{
+				scanner.yyreset(reader);
+				while (scanner.yylex() != null)
+					tokens++;
+			}
+		}
+		return tokens;
+	} //}}}
+}
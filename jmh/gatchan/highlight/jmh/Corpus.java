@@ -0,0 +1,155 @@
+/*
+ * Corpus.java - Synthetic text for the benchmarks
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.jmh;
+
+//{{{ Imports
+import gatchan.highlight.matcher.LiteralScanner;
+import gatchan.highlight.matcher.RegionMatcher;
+import gatchan.highlight.matcher.RequiredLiterals;
+import org.gjt.sp.jedit.search.BoyerMooreSearchMatcher;
+
+import javax.swing.text.Segment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+//}}}
+
+/**
+ * A synthetic text made of lines of code like words, some of them being the
+ * highlighted words, written with a random case so the ignore case option
+ * changes the matches.
+ * The text is built from a fixed seed, every run sees the same corpus.
+ *
+ * @author Matthieu Casanova
+ */
+final class Corpus
+{
+	private static final String[] FILLER = {"if", "return", "count", "this", "null", "value", "index",
+		"for", "while", "new", "(", ")", "{", "}", ";", "=", "+=", "&&", "getText", "segment"};
+
+	private final char[] text;
+	private final int[] lineStarts;
+
+	//{{{ Corpus constructor
+	/**
+	 * Build a corpus.
+	 *
+	 * @param lineCount  the number of lines
+	 * @param lineLength the length of the lines
+	 * @param words      the highlighted words, one word out of 8 is one of them
+	 */
+	Corpus(int lineCount, int lineLength, List<String> words)
+	{
+		Random random = new Random(42L);
+		StringBuilder builder = new StringBuilder(lineCount * (lineLength + 1));
+		lineStarts = new int[lineCount + 1];
+		for (int line = 0; line < lineCount; line++)
+		{
+			lineStarts[line] = builder.length();
+			int end = builder.length() + lineLength;
+			builder.append('\t');
+			while (builder.length() < end)
+			{
+				if (!words.isEmpty() && random.nextInt(8) == 0)
+				{
+					String word = words.get(random.nextInt(words.size()));
+					builder.append(random.nextBoolean() ? word : word.toUpperCase());
+				}
+				else
+				{
+					builder.append(FILLER[random.nextInt(FILLER.length)]);
+				}
+				builder.append(' ');
+			}
+			builder.setLength(end);
+			builder.append('\n');
+		}
+		lineStarts[lineCount] = builder.length();
+		text = builder.toString().toCharArray();
+	} //}}}
+
+	//{{{ getLineCount() method
+	int getLineCount()
+	{
+		return lineStarts.length - 1;
+	} //}}}
+
+	//{{{ getLine() method
+	/**
+	 * Point a segment to a line like JEditBuffer.getLineText() does.
+	 *
+	 * @param line    the line
+	 * @param segment the segment
+	 */
+	void getLine(int line, Segment segment)
+	{
+		segment.array = text;
+		segment.offset = lineStarts[line];
+		segment.count = lineStarts[line + 1] - lineStarts[line] - 1;
+	} //}}}
+
+	//{{{ getLineString() method
+	String getLineString(int line)
+	{
+		return new String(text, lineStarts[line], lineStarts[line + 1] - lineStarts[line] - 1);
+	} //}}}
+
+	//{{{ words() method
+	/**
+	 * Returns the highlighted words.
+	 *
+	 * @param count the number of words
+	 * @return the words
+	 */
+	static List<String> words(int count)
+	{
+		List<String> words = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			words.add("highlight" + i + "Word");
+		return words;
+	} //}}}
+
+	//{{{ createMatcher() method
+	/**
+	 * Create the matcher of a highlight like Highlight.getRegionMatcher() does.
+	 * The regexp of a word matches it followed by an identifier suffix.
+	 *
+	 * @param word       the word
+	 * @param regexp     true for a regexp highlight
+	 * @param ignoreCase true to ignore the case
+	 * @return the matcher
+	 */
+	static RegionMatcher createMatcher(String word, boolean regexp, boolean ignoreCase)
+	{
+		if (regexp)
+		{
+			String regexpString = word + "\\w*";
+			return new RegionMatcher(Pattern.compile(regexpString, RegionMatcher.getFlags(ignoreCase)),
+				RequiredLiterals.extract(regexpString, ignoreCase));
+		}
+		LiteralScanner scanner = LiteralScanner.create(word, ignoreCase);
+		if (scanner != null)
+			return new RegionMatcher(scanner);
+		return new RegionMatcher(new BoyerMooreSearchMatcher(word, ignoreCase));
+	} //}}}
+}
@@ -0,0 +1,121 @@
+/*
+ * HyperSearchBenchmark.java - Benchmark of the highlighted hypersearch results
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.jmh;
+
+//{{{ Imports
+import gatchan.highlight.hypersearch.HyperSearchResultValue;
+import gatchan.highlight.matcher.RegionMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+//}}}
+
+/**
+ * Measures HyperSearchResultValue.getHighlightedString(): every highlight is
+ * matched over the result line, the start and end positions are sorted and the
+ * line is rewritten in html with a font tag around each match.
+ * The plugin method is given the matchers of the benchmark instead of the
+ * highlights of the running plugin.
+ * One operation renders {@link #RESULTS} results.
+ *
+ * @author Matthieu Casanova
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HyperSearchBenchmark
+{
+	private static final int RESULTS = 100;
+
+	@Param({"80", "1000"})
+	public int lineLength;
+
+	@Param({"1", "10", "200"})
+	public int highlightCount;
+
+	@Param({"false", "true"})
+	public boolean regexp;
+
+	@Param({"false", "true"})
+	public boolean ignoreCase;
+
+	private String[] results;
+	private List<RegionMatcher> matchers;
+	private final HyperSearchResultValue.HighlightMatchers<RegionMatcher> highlights = new Matchers();
+
+	//{{{ setup() method
+	@Setup
+	public void setup()
+	{
+		List<String> words = Corpus.words(highlightCount);
+		Corpus corpus = new Corpus(RESULTS, lineLength, words);
+		results = new String[RESULTS];
+		for (int i = 0; i < RESULTS; i++)
+			results[i] = corpus.getLineString(i);
+		RegionMatcher[] array = new RegionMatcher[highlightCount];
+		for (int i = 0; i < highlightCount; i++)
+			array[i] = Corpus.createMatcher(words.get(i), regexp, ignoreCase);
+		matchers = Arrays.asList(array);
+	} //}}}
+
+	//{{{ renderResults() method
+	@Benchmark
+	public int renderResults()
+	{
+		int length = 0;
+		for (String result : results)
+			length += HyperSearchResultValue.getHighlightedString(result, matchers, highlights).length();
+		return length;
+	} //}}}
+
+	//{{{ Matchers class
+	/**
+	 * The highlights are the matchers themselves, all with the same color.
+	 */
+	private static final class Matchers implements HyperSearchResultValue.HighlightMatchers<RegionMatcher>
+	{
+		private static final Color COLOR = new Color(0xffcc66);
+
+		@Override
+		public RegionMatcher getRegionMatcher(RegionMatcher highlight)
+		{
+			return highlight;
+		}
+
+		@Override
+		public Color getColor(RegionMatcher highlight)
+		{
+			return COLOR;
+		}
+
+		@Override
+		public void quarantine(RegionMatcher highlight, long cost)
+		{
+		}
+	} //}}}
+}
@@ -0,0 +1,121 @@
+/*
+ * LineMatchBenchmark.java - Benchmark of the matching done by the painter
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.jmh;
+
+//{{{ Imports
+import gatchan.highlight.matcher.LiteralAutomaton;
+import gatchan.highlight.matcher.MatchHandler;
+import gatchan.highlight.matcher.RegionMatcher;
+import org.gjt.sp.util.IntegerArray;
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.text.Segment;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+//}}}
+
+/**
+ * Measures the matching the Highlighter does when a screen of lines is
+ * painted without cache: the literal highlights are matched in one pass of the
+ * automaton, each regexp highlight is run over the line, and the matches are
+ * collected as (highlight, start, end) triples.
+ * One operation is one screen of {@link #LINES} lines.
+ *
+ * @author Matthieu Casanova
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineMatchBenchmark
+{
+	private static final int LINES = 60;
+
+	@Param({"80", "1000", "10000"})
+	public int lineLength;
+
+	@Param({"1", "10", "200"})
+	public int highlightCount;
+
+	@Param({"false", "true"})
+	public boolean regexp;
+
+	@Param({"false", "true"})
+	public boolean ignoreCase;
+
+	private Corpus corpus;
+	private LiteralAutomaton automaton;
+	private RegionMatcher[] matchers;
+
+	private final Segment segment = new Segment();
+	private final IntegerArray collected = new IntegerArray(30);
+	private final MatchHandler collector = (index, start, end) ->
+	{
+		collected.add(index);
+		collected.add(start);
+		collected.add(end);
+	};
+
+	//{{{ setup() method
+	@Setup
+	public void setup()
+	{
+		List<String> words = Corpus.words(highlightCount);
+		corpus = new Corpus(LINES, lineLength, words);
+		if (regexp)
+		{
+			matchers = new RegionMatcher[highlightCount];
+			for (int i = 0; i < highlightCount; i++)
+				matchers[i] = Corpus.createMatcher(words.get(i), true, ignoreCase);
+		}
+		else
+		{
+			boolean[] ignoreCases = new boolean[highlightCount];
+			Arrays.fill(ignoreCases, ignoreCase);
+			automaton = new LiteralAutomaton(words, ignoreCases);
+		}
+	} //}}}
+
+	//{{{ matchScreen() method
+	@Benchmark
+	public int matchScreen() throws InterruptedException
+	{
+		int matches = 0;
+		for (int line = 0; line < LINES; line++)
+		{
+			corpus.getLine(line, segment);
+			collected.clear();
+			if (automaton != null)
+				automaton.match(segment, 0, segment.count, collector);
+			else
+			{
+				for (int i = 0; i < matchers.length; i++)
+					matchers[i].findAll(segment, 0, segment.count, i, collector);
+			}
+			matches += collected.getSize();
+		}
+		return matches;
+	} //}}}
+}
@@ -0,0 +1,154 @@
+/*
+ * LiteralScanBenchmark.java - Benchmark of the short literal search
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.jmh;
+
+//{{{ Imports
+import gatchan.highlight.matcher.LiteralScanner;
+import gatchan.highlight.matcher.RegionMatcher;
+import org.gjt.sp.jedit.search.BoyerMooreSearchMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.text.Segment;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+//}}}
+
+/**
+ * Compares the Boyer-Moore search with the vector {@link LiteralScanner} for
+ * the short literals, typically a word at caret, on log lines.
+ * One operation finds all the matches in every line.
+ * <p>
+ * The lines are read from the file given by the logFile parameter, for
+ * example <code>-p logFile=/home/me/.jedit/activity.log</code>, or generated
+ * from a fixed seed in the format of a usual application log.
+ * The forked JVM is given the jdk.incubator.vector module, without it the
+ * vector benchmark fails in the setup.
+ *
+ * @author Matthieu Casanova
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class LiteralScanBenchmark
+{
+	private static final int LINES = 20000;
+	private static final String[] LEVELS = {"DEBUG", "INFO ", "INFO ", "INFO ", "WARN ", "ERROR"};
+	private static final String[] LOGGERS = {"o.g.s.jedit.Buffer", "o.g.s.jedit.io.VFSManager",
+		"o.g.s.jedit.textarea.TextArea", "gatchan.highlight.HighlightPlugin", "o.g.s.util.WorkThread"};
+	private static final String[] MESSAGES = {"Loaded %s in %s ms", "Saving %s", "Request %s took %s ms",
+		"Connection reset by peer, retry %s", "Cache miss for key %s", "Timeout after %s ms waiting for %s",
+		"id=%s status=OK", "Cannot read %s: Permission denied"};
+
+	@Param({"id", "ms", "Load", "Timeout"})
+	public String literal;
+
+	@Param({"false", "true"})
+	public boolean ignoreCase;
+
+	@Param("")
+	public String logFile;
+
+	private char[][] lines;
+	private RegionMatcher boyerMoore;
+	private RegionMatcher vector;
+	private final Segment segment = new Segment();
+
+	//{{{ setup() method
+	@Setup
+	public void setup() throws IOException, InterruptedException
+	{
+		lines = logFile.isEmpty() ? generateLines() : readLines(logFile);
+		boyerMoore = new RegionMatcher(new BoyerMooreSearchMatcher(literal, ignoreCase));
+		LiteralScanner scanner = LiteralScanner.create(literal, ignoreCase);
+		if (scanner == null)
+			throw new IllegalStateException("The vector search is not available for " + literal);
+		vector = new RegionMatcher(scanner);
+		if (countMatches(boyerMoore) != countMatches(vector))
+			throw new IllegalStateException("The searches do not find the same matches");
+	} //}}}
+
+	//{{{ boyerMoore() method
+	@Benchmark
+	public int boyerMoore() throws InterruptedException
+	{
+		return countMatches(boyerMoore);
+	} //}}}
+
+	//{{{ vector() method
+	@Benchmark
+	public int vector() throws InterruptedException
+	{
+		return countMatches(vector);
+	} //}}}
+
+	//{{{ countMatches() method
+	private int countMatches(RegionMatcher matcher) throws InterruptedException
+	{
+		int[] count = new int[1];
+		for (char[] line : lines)
+		{
+			segment.array = line;
+			segment.offset = 0;
+			segment.count = line.length;
+			matcher.findAll(segment, 0, line.length, 0, (index, start, end) -> count[0]++);
+		}
+		return count[0];
+	} //}}}
+
+	//{{{ readLines() method
+	private static char[][] readLines(String file) throws IOException
+	{
+		List<String> fileLines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+		char[][] lines = new char[fileLines.size()][];
+		for (int i = 0; i < lines.length; i++)
+			lines[i] = fileLines.get(i).toCharArray();
+		return lines;
+	} //}}}
+
+	//{{{ generateLines() method
+	private static char[][] generateLines()
+	{
+		Random random = new Random(42L);
+		List<char[]> lines = new ArrayList<>(LINES);
+		for (int i = 0; i < LINES; i++)
+		{
+			String message = String.format(MESSAGES[random.nextInt(MESSAGES.length)],
+				random.nextBoolean() ? "/home/user/project/src/File" + random.nextInt(500) + ".java" : random.nextInt(100000),
+				random.nextInt(5000), "worker-" + random.nextInt(16));
+			String line = String.format("2026-10-17 %02d:%02d:%02d.%03d [pool-1-thread-%d] %s %s - %s",
+				random.nextInt(24), random.nextInt(60), random.nextInt(60), random.nextInt(1000),
+				random.nextInt(8), LEVELS[random.nextInt(LEVELS.length)],
+				LOGGERS[random.nextInt(LOGGERS.length)], message);
+			lines.add(line.toCharArray());
+		}
+		return lines.toArray(new char[0][]);
+	} //}}}
+}
@@ -0,0 +1,119 @@
+/*
+ * MatchAllocationBenchmark.java - Measures the allocations of the line matching
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.jmh;
+
+//{{{ Imports
+import gatchan.highlight.matcher.LiteralAutomaton;
+import gatchan.highlight.matcher.MatchHandler;
+import gatchan.highlight.matcher.RegionMatcher;
+import org.gjt.sp.jedit.search.BoyerMooreSearchMatcher;
+import org.gjt.sp.util.IntegerArray;
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.text.Segment;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+//}}}
+
+/**
+ * Measures the line matching the Highlighter does when it paints the lines of
+ * a text: the literal highlights with the automaton, a regexp highlight and the
+ * word at caret with a BoyerMooreSearchMatcher, over a reused Segment.
+ * One operation matches {@link #LINES} lines.
+ * <p>
+ * The steady state must allocate nothing: with the gc profiler of
+ * <code>ant jmh</code> the gc.alloc.rate.norm of this benchmark must stay
+ * close to 0 B/op.
+ *
+ * @author Matthieu Casanova
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchAllocationBenchmark
+{
+	private static final int LINES = 20000;
+
+	private char[] text;
+	private int[] lineStarts;
+	private final Segment segment = new Segment();
+	private final IntegerArray collected = new IntegerArray(30);
+	private final MatchHandler collector = (index, start, end) ->
+	{
+		collected.add(index);
+		collected.add(start);
+		collected.add(end);
+	};
+
+	private LiteralAutomaton automaton;
+	private RegionMatcher regexp;
+	private RegionMatcher word;
+
+	//{{{ setup() method
+	@Setup
+	public void setup()
+	{
+		StringBuilder builder = new StringBuilder();
+		lineStarts = new int[LINES + 1];
+		for (int i = 0; i < LINES; i++)
+		{
+			lineStarts[i] = builder.length();
+			builder.append("\tif (highlight != null && highlight.isEnabled()) count += ")
+				.append(i)
+				.append("; // TODO check the highlight of line ")
+				.append(i)
+				.append(" again\n");
+		}
+		lineStarts[LINES] = builder.length();
+		text = builder.toString().toCharArray();
+		automaton = new LiteralAutomaton(Arrays.asList("highlight", "TODO", "count", "null"),
+			new boolean[] {true, false, true, false});
+		regexp = new RegionMatcher(Pattern.compile("line \\d+", RegionMatcher.getFlags(false)));
+		word = new RegionMatcher(new BoyerMooreSearchMatcher("isEnabled", true));
+	} //}}}
+
+	//{{{ paintLines() method
+	/**
+	 * Match every line like a repaint of the whole text would.
+	 */
+	@Benchmark
+	public long paintLines() throws InterruptedException
+	{
+		long matchCount = 0L;
+		for (int line = 0; line < LINES; line++)
+		{
+			segment.array = text;
+			segment.offset = lineStarts[line];
+			segment.count = lineStarts[line + 1] - lineStarts[line] - 1;
+			collected.clear();
+			automaton.match(segment, 0, segment.count, collector);
+			regexp.findAll(segment, 0, segment.count, 1, collector);
+			word.findAll(segment, 0, segment.count, 2, collector);
+			matchCount += collected.getSize() / 3;
+		}
+		return matchCount;
+	} //}}}
+}
@@ -0,0 +1,83 @@
+/*
+ * OverviewMatchBenchmark.java - Benchmark of the highlight overview scan
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.jmh;
+
+//{{{ Imports
+import gatchan.highlight.matcher.RegionMatcher;
+import org.openjdk.jmh.annotations.*;
+
+import javax.swing.text.Segment;
+import java.util.concurrent.TimeUnit;
+//}}}
+
+/**
+ * Measures the scan of HighlightOverview: every line of the buffer is copied
+ * in a reused segment and checked for a match of the highlight.
+ * One operation is a scan of a buffer of {@link #LINES} lines.
+ *
+ * @author Matthieu Casanova
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OverviewMatchBenchmark
+{
+	private static final int LINES = 20000;
+
+	@Param({"80", "1000"})
+	public int lineLength;
+
+	@Param({"false", "true"})
+	public boolean regexp;
+
+	@Param({"false", "true"})
+	public boolean ignoreCase;
+
+	private Corpus corpus;
+	private RegionMatcher matcher;
+	private final Segment segment = new Segment();
+
+	//{{{ setup() method
+	@Setup
+	public void setup()
+	{
+		corpus = new Corpus(LINES, lineLength, Corpus.words(10));
+		matcher = Corpus.createMatcher("highlight3Word", regexp, ignoreCase);
+	} //}}}
+
+	//{{{ scanBuffer() method
+	@Benchmark
+	public int scanBuffer() throws InterruptedException
+	{
+		int matchingLines = 0;
+		for (int line = 0; line < LINES; line++)
+		{
+			corpus.getLine(line, segment);
+			if (matcher.find(segment, 0, segment.count))
+				matchingLines++;
+		}
+		return matchingLines;
+	} //}}}
+}
@@ -76,7 +76,7 @@ public class ButtonCellEditor extends AbstractCellEditor implements TableCellEdi
 						     int row,
 						     int column)
 	{
-		this.row = row;
+		this.row = table.convertRowIndexToModel(row);
 		highlight = (Highlight) value;
 		if (column == 2)
 			return remove;
@@ -0,0 +1,124 @@
+/*
+ * CaretText.java - The word and the selection at the caret of a view
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import gatchan.highlight.editor.EditorView;
+import org.gjt.sp.jedit.TextUtilities;
+
+import javax.swing.text.Segment;
+//}}}
+
+/**
+ * Finds the text the word at caret and the selection highlights show after a
+ * caret move. It only reads an {@link EditorView}.
+ *
+ * @author Matthieu Casanova
+ */
+final class CaretText
+{
+	//{{{ CaretText constructor
+	private CaretText()
+	{
+	} //}}}
+
+	//{{{ getWordAtCaret() method
+	/**
+	 * Returns the word at the caret of a view, the caret may be at its end.
+	 *
+	 * @param view          the view
+	 * @param whitespace    true if a run of whitespaces is a word
+	 * @param onlyWords     true if only the words starting with a letter, a digit or a noWordSep char are words
+	 * @param minimumLength the minimum length of the word
+	 * @return the word, null if there is none or if the view has a selection
+	 */
+	static String getWordAtCaret(EditorView view, boolean whitespace, boolean onlyWords, int minimumLength)
+	{
+		int line = view.getCaretLine();
+		if (view.getLineLength(line) == 0 || view.getSelectionCount() != 0)
+			return null;
+
+		int offset = view.getCaretPosition() - view.getLineStartOffset(line);
+		Segment lineText = new Segment();
+		view.getLineText(line, lineText);
+		String noWordSep = view.getNoWordSep();
+
+		if (offset != 0)
+			offset--;
+
+		int wordStart = TextUtilities.findWordStart(lineText, offset, noWordSep);
+		char ch = lineText.charAt(wordStart);
+		if ((!whitespace && Character.isWhitespace(ch)) ||
+		    (onlyWords && !Character.isLetterOrDigit(ch) && noWordSep.indexOf(ch) == -1))
+		{
+			return null;
+		}
+		int wordEnd = TextUtilities.findWordEnd(lineText, offset + 1, noWordSep);
+		if (wordEnd - wordStart < minimumLength)
+			return null;
+		return lineText.subSequence(wordStart, wordEnd).toString();
+	} //}}}
+
+	//{{{ getSelectionAtCaret() method
+	/**
+	 * Returns the text of the selection containing the caret of a view, bounds included.
+	 *
+	 * @param view          the view
+	 * @param minimumLength the minimum length of the selection
+	 * @return the text, null if there is no selection at the caret, if it
+	 * spans several lines or if it is too short
+	 */
+	static String getSelectionAtCaret(EditorView view, int minimumLength)
+	{
+		if (view.getLineLength(view.getCaretLine()) == 0)
+			return null;
+		int selection = getSelectionAtOffset(view, view.getCaretPosition());
+		if (selection == -1)
+			return null;
+		int selectionStart = view.getSelectionStart(selection);
+		int selectionEnd = view.getSelectionEnd(selection);
+		if (view.getLineOfOffset(selectionStart) != view.getLineOfOffset(selectionEnd) ||
+		    selectionEnd - selectionStart < minimumLength)
+		{
+			return null;
+		}
+		return view.getText(selectionStart, selectionEnd - selectionStart);
+	} //}}}
+
+	//{{{ getSelectionAtOffset() method
+	/**
+	 * Returns the selection containing an offset, bounds included.
+	 *
+	 * @param view   the view
+	 * @param offset the offset
+	 * @return the index of the selection or -1 if there is none
+	 */
+	private static int getSelectionAtOffset(EditorView view, int offset)
+	{
+		for (int i = 0; i < view.getSelectionCount(); i++)
+		{
+			if (offset >= view.getSelectionStart(i) && offset <= view.getSelectionEnd(i))
+				return i;
+		}
+		return -1;
+	} //}}}
+}
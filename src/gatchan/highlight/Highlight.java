@@ -22,6 +22,10 @@
 package gatchan.highlight;
 
 //{{{ Imports
+import gatchan.highlight.matcher.FoldedText;
+import gatchan.highlight.matcher.LiteralScanner;
+import gatchan.highlight.matcher.RegionMatcher;
+import gatchan.highlight.matcher.RequiredLiterals;
 import org.gjt.sp.jedit.search.SearchMatcher;
 import org.gjt.sp.jedit.search.PatternSearchMatcher;
 import org.gjt.sp.jedit.search.BoyerMooreSearchMatcher;
@@ -33,6 +37,8 @@ import java.awt.*;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 //}}}
 
 /**
@@ -66,8 +72,34 @@ public class Highlight
 
 	private SearchMatcher searchMatcher;
 
+	/**
+	 * The allocation free matcher used by the painter, created when needed.
+	 */
+	private RegionMatcher regionMatcher;
+
+	/**
+	 * The matcher of an ignore case literal on a {@link FoldedText}, created when needed.
+	 */
+	private RegionMatcher foldedRegionMatcher;
+
+	/**
+	 * The literals every match of the regexp contains, null if it is not a regexp or
+	 * they could not be found.
+	 */
+	private RequiredLiterals requiredLiterals;
+
 	private static final int HIGHLIGHT_VERSION = 1;
 
+	/**
+	 * The serialization version used when the highlight has its own time budget.
+	 */
+	private static final int HIGHLIGHT_BUDGET_VERSION = 2;
+
+	/**
+	 * The time budget of a regexp evaluation in ms used when the highlight has none.
+	 */
+	private static int globalTimeBudget = jEdit.getIntegerProperty(HighlightOptionPane.PROP_REGEXP_TIME_BUDGET, 100);
+
 	/**
 	* The default color. If null we will cycle the colors.
 	*/
@@ -104,6 +136,31 @@ public class Highlight
 	* The date where the highlight was last seen.
 	*/
 	private long lastSeen = System.currentTimeMillis();
+
+	/**
+	* Incremented each time something that changes the matches is modified.
+	*/
+	private int modCount;
+
+	/**
+	* The time budget of a regexp evaluation in ms, 0 to use the global budget.
+	*/
+	private int timeBudget;
+
+	/**
+	* True if the regexp exceeded its time budget, it is not evaluated until it is modified.
+	*/
+	private boolean quarantined;
+
+	/**
+	* The time spent in the evaluation that exceeded the budget, in ns.
+	*/
+	private long quarantineCost;
+
+	/**
+	* The cost of the highlight measured by the painter.
+	*/
+	private final HighlightMetrics metrics = new HighlightMetrics();
 	public static final String HIGHLIGHTS_BUFFER_PROPS = "highlights";
 
 	//{{{ Highlight constructor
@@ -144,6 +201,9 @@ public class Highlight
 				ignoreCase != this.ignoreCase)
 			{
 				searchMatcher = new PatternSearchMatcher(stringToHighlight, ignoreCase);
+				regionMatcher = null;
+				foldedRegionMatcher = null;
+				requiredLiterals = RequiredLiterals.extract(stringToHighlight, ignoreCase);
 			}
 		}
 		else if (searchMatcher == null ||
@@ -152,11 +212,16 @@ public class Highlight
 			ignoreCase != this.ignoreCase)
 		{
 			searchMatcher = new BoyerMooreSearchMatcher(stringToHighlight, ignoreCase);
+			regionMatcher = null;
+			foldedRegionMatcher = null;
+			requiredLiterals = null;
 		}
 		this.stringToHighlight = stringToHighlight;
 		this.regexp            = regexp;
 		this.ignoreCase        = ignoreCase;
 		this.color             = color;
+		quarantined            = false;
+		modCount++;
 	} //}}}
 
 	//{{{ getStringToHighlight() method
@@ -181,6 +246,7 @@ public class Highlight
 	public void setIgnoreCase(boolean ignoreCase)
 	{
 		this.ignoreCase = ignoreCase;
+		modCount++;
 	} //}}}
 
 	//{{{ isValid() method
@@ -193,6 +259,7 @@ public class Highlight
 	public void setValid(boolean valid)
 	{
 		this.valid = valid;
+		modCount++;
 	} //}}}
 
 	//{{{ getSearchMatcher() method
@@ -201,6 +268,99 @@ public class Highlight
 		return searchMatcher;
 	} //}}}
 
+	//{{{ getRegionMatcher() method
+	/**
+	 * Returns the matcher that walks the matches of the highlight using offsets.
+	 * It is not thread safe, it must only be used from the EDT.
+	 *
+	 * @return the region matcher
+	 * @throws java.util.regex.PatternSyntaxException if the regexp is invalid
+	 */
+	public RegionMatcher getRegionMatcher()
+	{
+		if (regionMatcher == null)
+		{
+			if (regexp)
+				regionMatcher = new RegionMatcher(Pattern.compile(stringToHighlight,
+					RegionMatcher.getFlags(ignoreCase)), requiredLiterals);
+			else
+				regionMatcher = createLiteralMatcher(stringToHighlight, ignoreCase);
+		}
+		regionMatcher.setTimeBudget(getEffectiveTimeBudget() * 1000000L);
+		return regionMatcher;
+	} //}}}
+
+	//{{{ getFoldedRegionMatcher() method
+	/**
+	 * Returns the matcher to use on a {@link FoldedText}: a case sensitive search
+	 * of the folded string, it finds the same matches as the ignore case search
+	 * on the original text.
+	 * It is not thread safe, it must only be used from the EDT.
+	 *
+	 * @return the matcher, or null if the highlight is not an ignore case literal
+	 */
+	public RegionMatcher getFoldedRegionMatcher()
+	{
+		if (regexp || !ignoreCase)
+			return null;
+		if (foldedRegionMatcher == null)
+			foldedRegionMatcher = createLiteralMatcher(FoldedText.fold(stringToHighlight), false);
+		return foldedRegionMatcher;
+	} //}}}
+
+	//{{{ getRegionMatcherFactory() method
+	/**
+	 * Returns a factory of new matchers of the highlight in its current state.
+	 * The matchers share no state with the others, so each of them can be
+	 * used by one background thread while the EDT uses {@link #getRegionMatcher()},
+	 * and the factory can be called from any thread.
+	 * It must be called from the EDT.
+	 *
+	 * @return the factory
+	 * @throws java.util.regex.PatternSyntaxException if the regexp is invalid
+	 */
+	public Supplier<RegionMatcher> getRegionMatcherFactory()
+	{
+		String literal = stringToHighlight;
+		boolean ignoreCase = this.ignoreCase;
+		Pattern pattern = regexp ? Pattern.compile(literal, RegionMatcher.getFlags(ignoreCase)) : null;
+		RequiredLiterals literals = requiredLiterals;
+		long timeBudget = getEffectiveTimeBudget() * 1000000L;
+		return () ->
+		{
+			RegionMatcher matcher;
+			if (pattern != null)
+			{
+				matcher = new RegionMatcher(pattern, literals);
+			}
+			else
+			{
+				LiteralScanner scanner = LiteralScanner.create(literal, ignoreCase);
+				if (scanner != null)
+					matcher = new RegionMatcher(scanner);
+				else
+					matcher = new RegionMatcher(new BoyerMooreSearchMatcher(literal, ignoreCase));
+			}
+			matcher.setTimeBudget(timeBudget);
+			return matcher;
+		};
+	} //}}}
+
+	//{{{ createLiteralMatcher() method
+	/**
+	 * Create the matcher of a literal, using the vector search for the short
+	 * literals if it is available and Boyer-Moore otherwise.
+	 */
+	private RegionMatcher createLiteralMatcher(String literal, boolean ignoreCase)
+	{
+		LiteralScanner scanner = LiteralScanner.create(literal, ignoreCase);
+		if (scanner != null)
+			return new RegionMatcher(scanner);
+		if (literal.equals(stringToHighlight) && ignoreCase == this.ignoreCase)
+			return new RegionMatcher(searchMatcher);
+		return new RegionMatcher(new BoyerMooreSearchMatcher(literal, ignoreCase));
+	} //}}}
+
 	//{{{ getColor() method
 	/**
 	* Returns the color of the highlight.
@@ -246,6 +406,100 @@ public class Highlight
 	public void setEnabled(boolean enabled)
 	{
 		this.enabled = enabled;
+		modCount++;
+	} //}}}
+
+	//{{{ getModCount() method
+	/**
+	* Returns a counter that changes each time the string, the flags, the enabled or valid state changes.
+	*
+	* @return the modification counter
+	*/
+	public int getModCount()
+	{
+		return modCount;
+	} //}}}
+
+	//{{{ getTimeBudget() method
+	/**
+	* Returns the time budget of a regexp evaluation.
+	*
+	* @return the time budget in ms, 0 if the global budget is used
+	*/
+	public int getTimeBudget()
+	{
+		return timeBudget;
+	} //}}}
+
+	//{{{ setTimeBudget() method
+	/**
+	* Set the time budget of a regexp evaluation, it gives the highlight another chance if it was quarantined.
+	*
+	* @param timeBudget the time budget in ms, 0 to use the global budget
+	*/
+	public void setTimeBudget(int timeBudget)
+	{
+		this.timeBudget = timeBudget;
+		quarantined = false;
+		modCount++;
+	} //}}}
+
+	//{{{ getEffectiveTimeBudget() method
+	/**
+	* Returns the time budget that applies to the highlight.
+	*
+	* @return the time budget in ms, 0 if there is no limit
+	*/
+	public int getEffectiveTimeBudget()
+	{
+		return timeBudget != 0 ? timeBudget : globalTimeBudget;
+	} //}}}
+
+	//{{{ setGlobalTimeBudget() method
+	/**
+	* Set the time budget used by the highlights that have none.
+	*
+	* @param globalTimeBudget the time budget in ms, 0 for no limit
+	*/
+	public static void setGlobalTimeBudget(int globalTimeBudget)
+	{
+		Highlight.globalTimeBudget = globalTimeBudget;
+	} //}}}
+
+	//{{{ quarantine() method
+	/**
+	* Stop evaluating the highlight because it exceeded its time budget.
+	*
+	* @param cost the time spent in the evaluation in ns
+	*/
+	public void quarantine(long cost)
+	{
+		quarantined = true;
+		quarantineCost = cost;
+		modCount++;
+	} //}}}
+
+	//{{{ isQuarantined() method
+	public boolean isQuarantined()
+	{
+		return quarantined;
+	} //}}}
+
+	//{{{ getQuarantineCost() method
+	/**
+	* Returns the time spent in the evaluation that put the highlight in quarantine.
+	*
+	* @return the cost in ns
+	*/
+	public long getQuarantineCost()
+	{
+		return quarantineCost;
+	} //}}}
+
+	//{{{ getMetrics() method
+	public HighlightMetrics getMetrics()
+	{
+		return metrics;
 	} //}}}
 
 	//{{{ setDefaultColor() method
@@ -273,19 +527,23 @@ public class Highlight
 	//{{{ serialize() method
 	/**
 	 * Serialize the highlight like that : {@link #HIGHLIGHT_VERSION};regexp ignorecase color;stringToHighlight (no space
-	 * between regexp, ignorecase and color
+	 * between regexp, ignorecase and color.
+	 * If the highlight has its own time budget it is
+	 * {@link #HIGHLIGHT_BUDGET_VERSION};regexp ignorecase color;timeBudget;stringToHighlight
 	 *
 	 * @return the serialized string
 	 */
 	public String serialize()
 	{
 		StringBuffer buff = new StringBuffer(stringToHighlight.length() + 20);
-		buff.append(HIGHLIGHT_VERSION).append(';');
+		buff.append(timeBudget == 0 ? HIGHLIGHT_VERSION : HIGHLIGHT_BUDGET_VERSION).append(';');
 		serializeBoolean(buff, regexp);
 		serializeBoolean(buff, ignoreCase);
 		serializeBoolean(buff, enabled);
 		buff.append(color.getRGB());
 		buff.append(';');
+		if (timeBudget != 0)
+			buff.append(timeBudget).append(';');
 		buff.append(stringToHighlight);
 		return buff.toString();
 	} //}}}
@@ -315,16 +573,25 @@ public class Highlight
 		try
 		{
 			int index = s.indexOf(';');
+			int version = Integer.parseInt(s.substring(0, index));
 			boolean regexp = s.charAt(index + 1) == '1';
 			boolean ignoreCase = s.charAt(index + 2) == '1';
 			boolean enabled = s.charAt(index + 3) == '1';
 			int i = s.indexOf(';', index + 4);
 			Color color = Color.decode(s.substring(index + 4, i));
+			int timeBudget = 0;
+			if (version >= HIGHLIGHT_BUDGET_VERSION)
+			{
+				int j = s.indexOf(';', i + 1);
+				timeBudget = Integer.parseInt(s.substring(i + 1, j));
+				i = j;
+			}
 
 			String searchString = s.substring(i + 1);
 			Highlight highlight = new Highlight();
 			highlight.setEnabled(enabled);
 			highlight.init(searchString, regexp, ignoreCase, color);
+			highlight.setTimeBudget(timeBudget);
 			return Optional.of(highlight);
 		}
 		catch (Exception e)
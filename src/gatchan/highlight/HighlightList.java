@@ -27,8 +27,10 @@ import org.gjt.sp.jedit.textarea.TextAreaMouseHandler;
 import org.gjt.sp.util.GenericGUIUtilities;
 
 import javax.swing.*;
+import javax.swing.table.JTableHeader;
 import javax.swing.table.TableColumn;
 import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
@@ -54,8 +56,20 @@ public class HighlightList extends JPanel implements HighlightChangeListener
 	private JCheckBoxMenuItem permanentScope;
 	private JCheckBoxMenuItem sessionScope;
 	private JCheckBoxMenuItem bufferScope;
+	private JMenuItem timeBudget;
 	private final MyActionListener actionListener;
 
+	private final JCheckBox showMetrics = new JCheckBox("metrics");
+	private final JButton resetMetrics = new JButton("reset");
+	private final TableColumn[] metricsColumns;
+	private final JTableHeader tableHeader;
+	private final TableRowSorter<HighlightManagerTableModel> sorter;
+	private final JScrollPane scroll;
+	/**
+	 * Refresh the metrics while they are displayed.
+	 */
+	private final Timer metricsTimer;
+
 	//{{{ HighlightList constructor
 	public HighlightList()
 	{
@@ -96,8 +110,28 @@ public class HighlightList extends JPanel implements HighlightChangeListener
 
 		table.setDefaultEditor(Highlight.class, new HighlightCellEditor());
 		table.setDefaultEditor(Boolean.class, table.getDefaultEditor(Boolean.class));
+		tableHeader = table.getTableHeader();
 		table.setTableHeader(null);
 
+		metricsColumns = new TableColumn[columnModel.getColumnCount() - HighlightManagerTableModel.METRICS_COLUMN];
+		for (int i = 0; i < metricsColumns.length; i++)
+		{
+			metricsColumns[i] = columnModel.getColumn(HighlightManagerTableModel.METRICS_COLUMN + i);
+			metricsColumns[i].setPreferredWidth(70);
+		}
+		for (TableColumn column : metricsColumns)
+			columnModel.removeColumn(column);
+		sorter = new TableRowSorter<>(tableModel);
+		for (int i = 0; i < HighlightManagerTableModel.METRICS_COLUMN; i++)
+			sorter.setSortable(i, false);
+		// the rows move when the metric they are sorted by changes
+		sorter.setSortsOnUpdates(true);
+		metricsTimer = new Timer(1000, e ->
+		{
+			if (!table.isEditing())
+				tableModel.fireMetricsUpdated();
+		});
+
 		table.addMouseListener(new MouseAdapter()
 		{
 			@Override
@@ -108,7 +142,7 @@ public class HighlightList extends JPanel implements HighlightChangeListener
 					return;
 				if (TextAreaMouseHandler.isRightButton(e))
 				{
-					showPopupMenu(e, row);
+					showPopupMenu(e, table.convertRowIndexToModel(row));
 				}
 			}
 		});
@@ -125,14 +159,53 @@ public class HighlightList extends JPanel implements HighlightChangeListener
 		newButton.addActionListener(actionListener);
 		clear.addActionListener(actionListener);
 		enableHighlights.addActionListener(actionListener);
+		showMetrics.setToolTipText("Show the time spent matching each highlight");
+		resetMetrics.setToolTipText("Reset the metrics");
+		resetMetrics.setEnabled(false);
+		showMetrics.addActionListener(e -> setMetricsVisible(showMetrics.isSelected()));
+		resetMetrics.addActionListener(e -> tableModel.resetMetrics());
 		toolBar.add(newButton);
 		toolBar.add(clear);
 		toolBar.add(enableHighlights);
+		toolBar.add(showMetrics);
+		toolBar.add(resetMetrics);
 		add(toolBar, BorderLayout.NORTH);
-		final JScrollPane scroll = new JScrollPane(table);
+		scroll = new JScrollPane(table);
 		add(scroll);
 	} //}}}
 
+	//{{{ setMetricsVisible() method
+	/**
+	 * Show or hide the metrics columns. When they are visible the table has a
+	 * header and can be sorted by metric.
+	 *
+	 * @param visible true to show the metrics
+	 */
+	private void setMetricsVisible(boolean visible)
+	{
+		TableColumnModel columnModel = table.getColumnModel();
+		if (visible)
+		{
+			for (TableColumn column : metricsColumns)
+				columnModel.addColumn(column);
+			table.setTableHeader(tableHeader);
+			scroll.setColumnHeaderView(tableHeader);
+			table.setRowSorter(sorter);
+			metricsTimer.start();
+		}
+		else
+		{
+			metricsTimer.stop();
+			table.setRowSorter(null);
+			sorter.setSortKeys(null);
+			table.setTableHeader(null);
+			scroll.setColumnHeaderView(null);
+			for (TableColumn column : metricsColumns)
+				columnModel.removeColumn(column);
+		}
+		resetMetrics.setEnabled(visible);
+	} //}}}
+
 	//{{{ showPopupMenu() method
 	/**
 	 * Show the popup menu of the highlight panel.
@@ -153,25 +226,21 @@ public class HighlightList extends JPanel implements HighlightChangeListener
 			popupMenu.add(permanentScope);
 			popupMenu.add(sessionScope);
 			popupMenu.add(bufferScope);
+			timeBudget = new JMenuItem("time budget...");
+			popupMenu.addSeparator();
+			popupMenu.add(timeBudget);
 			permanentScope.addActionListener(actionListener);
 			sessionScope.addActionListener(actionListener);
 			bufferScope.addActionListener(actionListener);
+			timeBudget.addActionListener(actionListener);
 		}
-		Highlight highlight;
-		try
-		{
-			tableModel.getReadLock();
-			highlight = tableModel.getHighlight(row);
-		}
-		finally
-		{
-			tableModel.releaseLock();
-		}
+		Highlight highlight = tableModel.getHighlight(row);
 		actionListener.setHighlight(highlight, row);
 		int scope = highlight.getScope();
 		permanentScope.setSelected(scope == Highlight.PERMANENT_SCOPE);
 		sessionScope.setSelected(scope == Highlight.SESSION_SCOPE);
 		bufferScope.setSelected(scope == Highlight.BUFFER_SCOPE);
+		timeBudget.setEnabled(highlight.isRegexp());
 
 		remove.setEnabled(tableModel.getRowCount() > 0);
 		removeAction.setRow(row);
@@ -185,6 +254,8 @@ public class HighlightList extends JPanel implements HighlightChangeListener
 	{
 		super.addNotify();
 		HighlightManagerTableModel.getManager().addHighlightChangeListener(this);
+		if (showMetrics.isSelected())
+			metricsTimer.start();
 	} //}}}
 
 	//{{{ removeNotify() method
@@ -192,6 +263,7 @@ public class HighlightList extends JPanel implements HighlightChangeListener
 	public void removeNotify()
 	{
 		super.removeNotify();
+		metricsTimer.stop();
 		HighlightManager highlightManager = HighlightManagerTableModel.getManager();
 
 		// if unloading plugin
@@ -299,6 +371,23 @@ public class HighlightList extends JPanel implements HighlightChangeListener
 				highlight.setBuffer(jEdit.getActiveView().getBuffer());
 				tableModel.fireTableRowsUpdated(row, row);
 			}
+			else if (source == timeBudget)
+			{
+				Object value = JOptionPane.showInputDialog(HighlightList.this,
+					"Time budget of the regexp on one line in ms (0 = global budget)",
+					Integer.valueOf(highlight.getTimeBudget()));
+				if (value == null)
+					return;
+				try
+				{
+					highlight.setTimeBudget(Math.max(0, Integer.parseInt(value.toString().trim())));
+					tableModel.fireTableRowsUpdated(row, row);
+				}
+				catch (NumberFormatException ex)
+				{
+					GUIUtilities.error(HighlightList.this, "gatchan-highlight.errordialog.invalidTimeBudget", new Object[]{value});
+				}
+			}
 
 		}
 	} //}}}
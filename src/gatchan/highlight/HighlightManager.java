@@ -21,6 +21,7 @@
  */
 package gatchan.highlight;
 
+import gatchan.highlight.editor.EditorView;
 import org.gjt.sp.jedit.Buffer;
 import org.gjt.sp.jedit.textarea.JEditTextArea;
 import org.jetbrains.annotations.NotNull;
@@ -78,6 +79,15 @@ public interface HighlightManager extends CaretListener
    */
   void addElement(Highlight highlight);
 
+  /**
+   * Returns the current snapshot of the highlights.
+   * It can be read without locking, a new snapshot with a new version is published
+   * each time the highlights change.
+   *
+   * @return the highlights snapshot
+   */
+  HighlightSnapshot getSnapshot();
+
   void dispose();
 
   /**
@@ -113,12 +123,51 @@ public interface HighlightManager extends CaretListener
 
   void caretUpdate(JEditTextArea textArea);
 
+  /**
+   * Update the word at caret and the selection highlights after the caret of a view moved.
+   *
+   * @param view the view
+   */
+  void caretUpdate(EditorView view);
+
+  /**
+   * Returns the highlight following the caret: the word at caret highlight, or the
+   * selection highlight if the view whose caret moved last has a selection.
+   *
+   * @return the live highlight
+   */
+  Highlight getLiveHighlight();
+
+  /**
+   * Returns the highlight of the word at caret, it is disabled when the option is off.
+   *
+   * @return the word at caret highlight
+   */
+  Highlight getWordAtCaretHighlight();
+
+  /**
+   * Returns the highlight of the selection, it is disabled when the option is off.
+   *
+   * @return the selection highlight
+   */
+  Highlight getSelectionHighlight();
+
   boolean isHighlightWordAtCaret();
 
   void propertiesChanged();
 
+  /**
+   * Lock the highlight list against modifications.
+   *
+   * @deprecated the highlights are read without locking from {@link #getSnapshot()}
+   */
+  @Deprecated
   void getReadLock();
 
+  /**
+   * @deprecated the highlights are read without locking from {@link #getSnapshot()}
+   */
+  @Deprecated
   void releaseLock();
   boolean isHighlightSelection();
 
@@ -22,6 +22,8 @@
 package gatchan.highlight;
 
 //{{{ imports
+import gatchan.highlight.editor.EditorView;
+import gatchan.highlight.editor.TextAreaEditorView;
 import org.gjt.sp.jedit.*;
 import org.gjt.sp.jedit.textarea.JEditTextArea;
 import org.gjt.sp.util.Log;
@@ -32,6 +34,7 @@ import javax.swing.Timer;
 import javax.swing.event.CaretEvent;
 import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
+import javax.swing.text.Segment;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.*;
@@ -41,7 +44,6 @@ import java.nio.file.Path;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Collectors;
 //}}}
 
 /**
@@ -56,6 +58,12 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 {
 	private static final String ENABLED_PROP = "plugin.Highlight.enabled";
 
+	/**
+	 * The first of the metrics columns: time, calls, matches and worst time.
+	 */
+	public static final int METRICS_COLUMN = 4;
+	private static final String[] COLUMN_NAMES = {"", "highlight", "", "", "time (ms)", "lines", "matches", "worst (ms)"};
+
 	private final List<Highlight> datas = new ArrayList<>();
 	private static HighlightManagerTableModel highlightManagerTableModel;
 
@@ -64,9 +72,22 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 
 	private final ReentrantReadWriteLock lock;
 
+	/**
+	 * The immutable copy of {@link #datas} read by everyone, republished under the
+	 * write lock after each modification.
+	 */
+	private volatile HighlightSnapshot snapshot = HighlightSnapshot.EMPTY;
+	private int highlightsVersion;
+
 	public static Highlight currentWordHighlight;
 	public static Highlight selectionHighlight;
 
+	/**
+	 * The word at caret highlight if the text area that moved its caret last has
+	 * no selection, otherwise the selection highlight.
+	 */
+	private Highlight liveHighlight;
+
 	private boolean highlightWordAtCaret;
 	private boolean highlightWordAtCaretEntireWord;
 	private boolean highlightWordAtCaretWhitespace;
@@ -130,6 +151,7 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 		highlightsPath = highlightFile;
 		currentWordHighlight = new Highlight();
 		selectionHighlight = new Highlight();
+		liveHighlight = currentWordHighlight;
 		if (highlightsPath != null && Files.exists(highlightsPath))
 		{
 			try
@@ -172,67 +194,108 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 	@Override
 	public int getRowCount()
 	{
-		try
-		{
-			lock.readLock().lock();
-			return datas.size();
-		}
-		finally
-		{
-			lock.readLock().unlock();
-		}
+		return snapshot.size();
 	} //}}}
 
 	//{{{ getColumnCount() method
 	/**
-	 * @return 4
+	 * Returns the number of columns, the metrics columns are not always displayed.
+	 *
+	 * @return 8
 	 */
 	@Override
 	public int getColumnCount()
 	{
-		return 4;
+		return COLUMN_NAMES.length;
+	} //}}}
+
+	//{{{ getColumnName() method
+	@Override
+	public String getColumnName(int column)
+	{
+		return COLUMN_NAMES[column];
 	} //}}}
 
 	//{{{ getColumnClass() method
 	@Override
 	public Class<?> getColumnClass(int columnIndex)
 	{
-		return columnIndex == 0 ? Boolean.class : Highlight.class;
+		switch (columnIndex)
+		{
+			case 0:
+				return Boolean.class;
+			case METRICS_COLUMN:
+			case METRICS_COLUMN + 3:
+				return Double.class;
+			case METRICS_COLUMN + 1:
+			case METRICS_COLUMN + 2:
+				return Long.class;
+			default:
+				return Highlight.class;
+		}
 	} //}}}
 
 	//{{{ isCellEditable() method
 	/**
-	 * All cells are editable.
+	 * All cells but the metrics are editable.
 	 *
 	 * @param rowIndex
 	 * @param columnIndex
-	 * @return true
+	 * @return true if the column is not a metrics column
 	 */
 	@Override
 	public boolean isCellEditable(int rowIndex, int columnIndex)
 	{
-		return true;
+		return columnIndex < METRICS_COLUMN;
 	} //}}}
 
 	//{{{ getValueAt() method
 	@Override
 	public Object getValueAt(int rowIndex, int columnIndex)
 	{
-		Highlight highlight;
-		try
-		{
-			lock.readLock().lock();
-			highlight = datas.get(rowIndex);
-		}
-		finally
-		{
-			lock.readLock().unlock();
-		}
-		if (columnIndex == 0)
-		{
-			return highlight.isEnabled();
+		Highlight highlight = snapshot.get(rowIndex);
+		HighlightMetrics metrics = highlight.getMetrics();
+		switch (columnIndex)
+		{
+			case 0:
+				return highlight.isEnabled();
+			case METRICS_COLUMN:
+				return metrics.getTime() / 1000000.0;
+			case METRICS_COLUMN + 1:
+				return metrics.getInvocations();
+			case METRICS_COLUMN + 2:
+				return metrics.getMatches();
+			case METRICS_COLUMN + 3:
+				return metrics.getWorst() / 1000000.0;
+			default:
+				return highlight;
 		}
-		return highlight;
+	} //}}}
+
+	//{{{ resetMetrics() method
+	/**
+	 * Reset the metrics of all highlights.
+	 */
+	public void resetMetrics()
+	{
+		HighlightSnapshot highlights = snapshot;
+		for (int i = 0; i < highlights.size(); i++)
+			highlights.get(i).getMetrics().reset();
+		if (highlights.size() != 0)
+			fireTableRowsUpdated(0, highlights.size() - 1);
+	} //}}}
+
+	//{{{ fireMetricsUpdated() method
+	/**
+	 * Notify the tables that the metrics of all highlights changed, like
+	 * {@link #fireTableRowsUpdated(int, int)} but without notifying the
+	 * highlight change listeners since the highlights themselves did not change.
+	 */
+	public void fireMetricsUpdated()
+	{
+		int rowCount = getRowCount();
+		if (rowCount != 0)
+			super.fireTableChanged(new TableModelEvent(this, 0, rowCount - 1));
 	} //}}}
 
 	//{{{ setValueAt() method
@@ -241,17 +304,7 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 	{
 		if (columnIndex == 0)
 		{
-			Highlight highlight;
-			try
-			{
-				lock.readLock().lock();
-				highlight = datas.get(rowIndex);
-			}
-			finally
-			{
-				lock.readLock().unlock();
-			}
-			highlight.setEnabled((Boolean) aValue);
+			snapshot.get(rowIndex).setEnabled((Boolean) aValue);
 		}
 		else
 		{
@@ -259,6 +312,7 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 			{
 				lock.writeLock().lock();
 				datas.set(rowIndex, (Highlight) aValue);
+				publish();
 			}
 			finally
 			{
@@ -271,7 +325,6 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 	//{{{ getHighlight() method
 	/**
 	 * Return the Highlight at index i.
-	 * It must be called under the rwLock
 	 *
 	 * @param i the index of the highlight
 	 * @return a highlight
@@ -279,7 +332,48 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 	@Override
 	public Highlight getHighlight(int i)
 	{
-		return datas.get(i);
+		return snapshot.get(i);
+	} //}}}
+
+	//{{{ getSnapshot() method
+	/**
+	 * Returns the current snapshot of the highlights.
+	 * If one of the highlights was modified since the snapshot was published, a
+	 * new version of it is published first.
+	 *
+	 * @return the highlights snapshot
+	 */
+	@Override
+	public HighlightSnapshot getSnapshot()
+	{
+		HighlightSnapshot current = snapshot;
+		if (current.isUpToDate())
+			return current;
+		try
+		{
+			lock.writeLock().lock();
+			current = snapshot;
+			if (!current.isUpToDate())
+			{
+				current = current.refresh(++highlightsVersion);
+				snapshot = current;
+			}
+			return current;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	} //}}}
+
+	//{{{ publish() method
+	/**
+	 * Publish a new snapshot of the highlights.
+	 * It must be called under the write lock.
+	 */
+	private void publish()
+	{
+		snapshot = new HighlightSnapshot(datas.toArray(new Highlight[0]), ++highlightsVersion);
 	} //}}}
 
 	//{{{ addElement() methods
@@ -312,6 +406,7 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 					lock.writeLock().lock();
 					datas.add(highlight);
 					firstRow = datas.size() - 1;
+					publish();
 				}
 				finally
 				{
@@ -321,18 +416,9 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 			}
 			else
 			{
-				int firstRow;
-				Highlight replacedHighlight;
-				try
-				{
-					lock.readLock().lock();
-					firstRow = datas.size() - 1;
-					replacedHighlight = datas.get(firstRow);
-				}
-				finally
-				{
-					lock.readLock().unlock();
-				}
+				HighlightSnapshot current = snapshot;
+				int firstRow = current.size() - 1;
+				Highlight replacedHighlight = current.get(firstRow);
 				replacedHighlight.init(highlight.getStringToHighlight(),
 						       highlight.isRegexp(),
 						       highlight.isIgnoreCase(),
@@ -358,6 +444,7 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 		{
 			lock.writeLock().lock();
 			datas.remove(index);
+			publish();
 		}
 		finally
 		{
@@ -381,16 +468,7 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 	//{{{ bufferClosed() method
 	private int indexOf(Highlight highlight)
 	{
-		try
-		{
-			lock.readLock().lock();
-			int i = datas.indexOf(highlight);
-			return i;
-		}
-		finally
-		{
-			lock.readLock().unlock();
-		}
+		return snapshot.indexOf(highlight);
 	} //}}}
 
 	//{{{ bufferClosed() method
@@ -422,6 +500,7 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 			lock.writeLock().lock();
 			rowMax = datas.size();
 			datas.clear();
+			publish();
 		}
 		finally
 		{
@@ -469,17 +548,12 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 	{
 		Log.log(Log.MESSAGE, this, "exportToString");
 		var builder = new StringBuilder(FILE_VERSION).append('\n');
-		try
+		HighlightSnapshot current = snapshot;
+		for (int i = 0; i < current.size(); i++)
 		{
-			lock.writeLock().lock();
-			datas
-				.stream()
-				.filter(highlight -> highlight.getScope() == Highlight.PERMANENT_SCOPE)
-				.forEach(highlight -> builder.append(highlight.serialize()).append('\n'));
-		}
-		finally
-		{
-			lock.writeLock().unlock();
+			Highlight highlight = current.get(i);
+			if (highlight.getScope() == Highlight.PERMANENT_SCOPE)
+				builder.append(highlight.serialize()).append('\n');
 		}
 		return builder.toString();
 	}
@@ -544,7 +618,7 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 	@Override
 	public int countHighlights()
 	{
-		return getRowCount();
+		return snapshot.size();
 	} //}}}
 
 	//{{{ isHighlightEnable() method
@@ -578,20 +652,20 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 		@Override
 		public void actionPerformed(ActionEvent e)
 		{
-			List<Highlight> expired;
-			try
+			HighlightSnapshot current = snapshot;
+			List<Highlight> expired = null;
+			for (int i = 0; i < current.size(); i++)
 			{
-				lock.readLock().lock();
-				expired = datas
-					.stream()
-					.filter(Highlight::isExpired)
-					.collect(Collectors.toList());
-			}
-			finally
-			{
-				lock.readLock().unlock();
+				Highlight highlight = current.get(i);
+				if (highlight.isExpired())
+				{
+					if (expired == null)
+						expired = new ArrayList<>();
+					expired.add(highlight);
+				}
 			}
-			expired.forEach(HighlightManagerTableModel.this::removeRow);
+			if (expired != null)
+				expired.forEach(HighlightManagerTableModel.this::removeRow);
 		}
 	} //}}}
 
@@ -606,11 +680,23 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 	@Override
 	public void caretUpdate(JEditTextArea textArea)
 	{
-		var line = textArea.getCaretLine();
+		caretUpdate(new TextAreaEditorView(textArea));
+	}
+
+	/**
+	 * Update the word at caret and the selection highlights after a caret move.
+	 *
+	 * @param view the view whose caret moved
+	 */
+	@Override
+	public void caretUpdate(EditorView view)
+	{
 		var updated = false;
 		if (highlightWordAtCaret)
 		{
-			if (textArea.getLineLength(line) == 0 || textArea.getSelectionCount() != 0)
+			var word = CaretText.getWordAtCaret(view, highlightWordAtCaretWhitespace,
+				highlightWordAtCaretOnlyWords, minimumWordLength);
+			if (word == null)
 			{
 				if (currentWordHighlight.isEnabled())
 				{
@@ -620,88 +706,44 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 			}
 			else
 			{
-				var lineStart = textArea.getLineStartOffset(line);
-				var offset = textArea.getCaretPosition() - lineStart;
-
-				var buffer = textArea.getBuffer();
-				var lineText = buffer.getLineSegment(line);
-				var noWordSep = buffer.getStringProperty("noWordSep");
-
-				if (offset != 0)
-					offset--;
-
-				var wordStart = TextUtilities.findWordStart(lineText, offset, noWordSep);
-				var ch = lineText.charAt(wordStart);
-				if ((!highlightWordAtCaretWhitespace && Character.isWhitespace(ch)) ||
-				    (highlightWordAtCaretOnlyWords &&
-				     !Character.isLetterOrDigit(ch) &&
-				     noWordSep.indexOf(ch) == -1))
+				if (!currentWordHighlight.isEnabled())
+				{
+					updated = true;
+					currentWordHighlight.setEnabled(true);
+				}
+				if (highlightWordAtCaretEntireWord)
 				{
-					if (currentWordHighlight.isEnabled())
+					var stringToHighlight = "\\b" + word + "\\b";
+					if (!stringToHighlight.equals(currentWordHighlight.getStringToHighlight()))
 					{
 						updated = true;
-						currentWordHighlight.setEnabled(false);
+						currentWordHighlight.init(stringToHighlight,
+							true,
+							currentWordHighlight.isIgnoreCase(),
+							currentWordHighlight.getColor());
 					}
 				}
 				else
 				{
-					var wordEnd = TextUtilities.findWordEnd(lineText, offset + 1, noWordSep);
-
-					if (wordEnd - wordStart < minimumWordLength)
+					if (!word.equals(currentWordHighlight.getStringToHighlight()))
 					{
-						if (currentWordHighlight.isEnabled())
-						{
-							updated = true;
-							currentWordHighlight.setEnabled(false);
-						}
-					}
-					else
-					{
-						if (!currentWordHighlight.isEnabled())
-						{
-							updated = true;
-							currentWordHighlight.setEnabled(true);
-						}
-						var stringToHighlight = lineText.subSequence(wordStart, wordEnd).toString();
-						if (highlightWordAtCaretEntireWord)
-						{
-							stringToHighlight = "\\b" + stringToHighlight + "\\b";
-							if (!stringToHighlight.equals(currentWordHighlight.getStringToHighlight()))
-							{
-								updated = true;
-								currentWordHighlight.init(stringToHighlight,
-									true,
-									currentWordHighlight.isIgnoreCase(),
-									currentWordHighlight.getColor());
-							}
-
-						}
-						else
-						{
-							if (!stringToHighlight.equals(currentWordHighlight.getStringToHighlight()))
-							{
-								updated = true;
-								currentWordHighlight.setStringToHighlight(stringToHighlight);
-							}
-						}
+						updated = true;
+						currentWordHighlight.setStringToHighlight(word);
 					}
 				}
 			}
 		}
 		if (highlightSelection)
 		{
-			if (!selectionHighlight.isEnabled() && !textArea.hasFocus())
+			if (!selectionHighlight.isEnabled() && !view.hasFocus())
 			{
 				updated = true;
 				selectionHighlight.setEnabled(true);
 			}
 			else
 			{
-				var selectionatOffset = textArea.getSelectionAtOffset(textArea.getCaretPosition());
-				if (textArea.getLineLength(line) == 0 ||
-						selectionatOffset == null ||
-						selectionatOffset.getStartLine() != selectionatOffset.getEndLine() ||
-						selectionatOffset.getEnd() - selectionatOffset.getStart()  < highlightSelectionMinLength)
+				var stringToHighlight = CaretText.getSelectionAtCaret(view, highlightSelectionMinLength);
+				if (stringToHighlight == null)
 				{
 					if (selectionHighlight.isEnabled())
 					{
@@ -709,48 +751,66 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 						selectionHighlight.setEnabled(false);
 					}
 				}
-				else
+				else if (highlightSelectionEntireWord)
 				{
-					var stringToHighlight = textArea.getSelectedText(selectionatOffset);
-					if (highlightSelectionEntireWord)
+					if (isOnlyWhitespaces(stringToHighlight))
 					{
-						if (isOnlyWhitespaces(stringToHighlight))
-						{
-							selectionHighlight.setEnabled(false);
-							updated = true;
-						}
-						else
-						{
-							stringToHighlight = "\\b" + stringToHighlight + "\\b";
-							if (!selectionHighlight.isEnabled() ||
-									!stringToHighlight.equals(selectionHighlight.getStringToHighlight()))
-							{
-								updated = true;
-								selectionHighlight.setEnabled(true);
-								selectionHighlight.init(stringToHighlight,
-										true,
-										selectionHighlight.isIgnoreCase(),
-										selectionHighlight.getColor());
-							}
-						}
+						selectionHighlight.setEnabled(false);
+						updated = true;
 					}
 					else
 					{
+						stringToHighlight = "\\b" + stringToHighlight + "\\b";
 						if (!selectionHighlight.isEnabled() ||
 								!stringToHighlight.equals(selectionHighlight.getStringToHighlight()))
 						{
 							updated = true;
 							selectionHighlight.setEnabled(true);
-							selectionHighlight.setStringToHighlight(stringToHighlight);
+							selectionHighlight.init(stringToHighlight,
+									true,
+									selectionHighlight.isIgnoreCase(),
+									selectionHighlight.getColor());
 						}
 					}
 				}
+				else
+				{
+					if (!selectionHighlight.isEnabled() ||
+							!stringToHighlight.equals(selectionHighlight.getStringToHighlight()))
+					{
+						updated = true;
+						selectionHighlight.setEnabled(true);
+						selectionHighlight.setStringToHighlight(stringToHighlight);
+					}
+				}
 			}
 		}
+		liveHighlight = view.getSelectionCount() == 0 ? currentWordHighlight : selectionHighlight;
 		if (updated)
 			fireHighlightChangeListener(isHighlightEnable());
 	} //}}}
 
+	//{{{ getLiveHighlight() method
+	@Override
+	public Highlight getLiveHighlight()
+	{
+		return liveHighlight;
+	} //}}}
+
+	//{{{ getWordAtCaretHighlight() method
+	@Override
+	public Highlight getWordAtCaretHighlight()
+	{
+		return currentWordHighlight;
+	} //}}}
+
+	//{{{ getSelectionHighlight() method
+	@Override
+	public Highlight getSelectionHighlight()
+	{
+		return selectionHighlight;
+	} //}}}
+
 	//{{{ isHighlightWordAtCaret() method
 	@Override
 	public boolean isHighlightWordAtCaret()
@@ -765,6 +825,25 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 		return highlightSelection;
 	} //}}}
 
+	//{{{ highlightQuarantined() method
+	/**
+	 * Tell the views that a highlight was put in quarantine because it exceeded its time budget.
+	 * It must be called from the EDT but not while painting.
+	 *
+	 * @param highlight the quarantined highlight
+	 */
+	public void highlightQuarantined(Highlight highlight)
+	{
+		Log.log(Log.WARNING, this, "The highlight " + highlight.getStringToHighlight() + " took " +
+			highlight.getQuarantineCost() / 1000000L + "ms, more than its budget of " +
+			highlight.getEffectiveTimeBudget() + "ms, it is disabled until it is modified");
+		int row = indexOf(highlight);
+		if (row == -1)
+			fireHighlightChangeListener(isHighlightEnable());
+		else
+			fireTableRowsUpdated(row, row);
+	} //}}}
+
 	//{{{ propertiesChanged() method
 	@Override
 	public void propertiesChanged()
@@ -778,6 +857,7 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 		{
 			Highlight.setDefaultColor(jEdit.getColorProperty(HighlightOptionPane.PROP_DEFAULT_COLOR));
 		} //}}}
+		Highlight.setGlobalTimeBudget(jEdit.getIntegerProperty(HighlightOptionPane.PROP_REGEXP_TIME_BUDGET, 100));
 
 		appendHighlight = jEdit.getBooleanProperty(HighlightOptionPane.PROP_HIGHLIGHT_APPEND);
 		var changed = false;
@@ -897,8 +977,7 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 			this.minimumWordLength = minimumWordLength;
 		} //}}}
 
-		Highlighter.square = jEdit.getBooleanProperty(HighlightOptionPane.PROP_SQUARE);
-		Highlighter.squareColor = jEdit.getColorProperty(HighlightOptionPane.PROP_SQUARE_COLOR);
+		PaintConfig.reload();
 
 		if (changed)
 		{
@@ -914,6 +993,7 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 
 	//{{{ getReadLock() method
 	@Override
+	@Deprecated
 	public void getReadLock()
 	{
 		lock.readLock().lock();
@@ -921,6 +1001,7 @@ public class HighlightManagerTableModel extends AbstractTableModel implements Hi
 
 	//{{{ releaseLock() method
 	@Override
+	@Deprecated
 	public void releaseLock()
 	{
 		lock.readLock().unlock();
@@ -0,0 +1,108 @@
+/*
+ * HighlightMetrics.java - The cost of a highlight
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+//}}}
+
+/**
+ * The cost of a highlight measured by the painter: the time spent matching it,
+ * the number of lines it was evaluated on, the number of matches and the
+ * slowest evaluation.
+ * The counters are striped so recording is cheap, the values read while they
+ * are updated are not an atomic snapshot.
+ *
+ * @author Matthieu Casanova
+ */
+public final class HighlightMetrics
+{
+	private final LongAdder time = new LongAdder();
+	private final LongAdder invocations = new LongAdder();
+	private final LongAdder matches = new LongAdder();
+	private final LongAccumulator worst = new LongAccumulator(Math::max, 0L);
+
+	//{{{ record() method
+	/**
+	 * Record one evaluation of the highlight.
+	 *
+	 * @param elapsed the time of the evaluation in ns
+	 * @param matchCount the number of matches found
+	 */
+	public void record(long elapsed, int matchCount)
+	{
+		time.add(elapsed);
+		invocations.increment();
+		if (matchCount != 0)
+			matches.add(matchCount);
+		worst.accumulate(elapsed);
+	} //}}}
+
+	//{{{ reset() method
+	public void reset()
+	{
+		time.reset();
+		invocations.reset();
+		matches.reset();
+		worst.reset();
+	} //}}}
+
+	//{{{ getTime() method
+	/**
+	 * Returns the cumulative match time.
+	 *
+	 * @return the time in ns
+	 */
+	public long getTime()
+	{
+		return time.sum();
+	} //}}}
+
+	//{{{ getInvocations() method
+	/**
+	 * Returns the number of evaluations, usually the number of lines.
+	 *
+	 * @return the number of evaluations
+	 */
+	public long getInvocations()
+	{
+		return invocations.sum();
+	} //}}}
+
+	//{{{ getMatches() method
+	public long getMatches()
+	{
+		return matches.sum();
+	} //}}}
+
+	//{{{ getWorst() method
+	/**
+	 * Returns the time of the slowest evaluation.
+	 *
+	 * @return the time in ns
+	 */
+	public long getWorst()
+	{
+		return worst.get();
+	} //}}}
+}
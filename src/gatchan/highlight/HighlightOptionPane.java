@@ -58,16 +58,22 @@ public class HighlightOptionPane extends AbstractOptionPane
 
 	public static final String PROP_LAYER_PROPERTY = "gatchan.highlight.layer";
 	public static final String PROP_ALPHA = "gatchan.highlight.alpha";
+	public static final String PROP_OPAQUE = "gatchan.highlight.opaque";
 	public static final String PROP_SQUARE = "gatchan.highlight.square";
 	public static final String PROP_SQUARE_COLOR = "gatchan.highlight.square.color";
 
 	public static final String PROP_HIGHLIGHT_OVERVIEW = "gatchan.highlight.overview";
 	public static final String PROP_HIGHLIGHT_OVERVIEW_SAMECOLOR = "gatchan.highlight.overview.samecolor";
 	public static final String PROP_HIGHLIGHT_OVERVIEW_COLOR = "gatchan.highlight.overview.color";
+	public static final String PROP_HIGHLIGHT_OVERVIEW_STACKED = "gatchan.highlight.overview.stacked";
 
 	public static final String PROP_HIGHLIGHT_COLORS = "gatchan.highlight.colorsenabled";
 	public static final String PROP_HIGHLIGHT_ROUND_CORNER = "gatchan.highlight.roundcorner";
+	public static final String PROP_OVERLAP_BLEND = "gatchan.highlight.overlapBlend";
 	public static final String PROP_HIGHLIGHT_WORD_MINIMUM_LENGTH = "gatchan.highlight.wordMinimumLength";
+	public static final String PROP_REGEXP_TIME_BUDGET = "gatchan.highlight.regexpTimeBudget";
+	public static final String PROP_TILE_CACHE = "gatchan.highlight.tileCache";
+	public static final String PROP_TILE_CACHE_SIZE = "gatchan.highlight.tileCache.size";
 
 	private JCheckBox highlightWordAtCaret;
 	private JCheckBox wordAtCaretIgnoreCase;
@@ -94,9 +100,15 @@ public class HighlightOptionPane extends AbstractOptionPane
 
 	private JCheckBox highlightOverview;
 	private JCheckBox highlightOverviewSameColor;
+	private JCheckBox highlightOverviewStacked;
 	private JCheckBox highlightColorEnabled;
 	private JCheckBox roundCornerEnabled;
+	private JCheckBox overlapBlend;
+	private JCheckBox opaque;
 	private JSpinner worldMinimumLength;
+	private JSpinner regexpTimeBudget;
+	private JCheckBox tileCache;
+	private JSpinner tileCacheSize;
 
 	//{{{ HighlightOptionPane constructor
 	public HighlightOptionPane()
@@ -133,11 +145,24 @@ public class HighlightOptionPane extends AbstractOptionPane
                                100,
                                jEdit.getIntegerProperty(PROP_ALPHA, 50)));
 
+		addComponent(opaque = createCheckBox(PROP_OPAQUE));
 		addComponent(roundCornerEnabled = createCheckBox(PROP_HIGHLIGHT_ROUND_CORNER));
+		addComponent(overlapBlend = createCheckBox(PROP_OVERLAP_BLEND));
 		SpinnerNumberModel wordMinLengthSpinnerModel = new SpinnerNumberModel(
 			jEdit.getIntegerProperty(PROP_HIGHLIGHT_WORD_MINIMUM_LENGTH, 2), 0, 10, 1);
 		addComponent(new JLabel(jEdit.getProperty(PROP_HIGHLIGHT_WORD_MINIMUM_LENGTH + ".text")),
 					 worldMinimumLength = new JSpinner(wordMinLengthSpinnerModel));
+		SpinnerNumberModel regexpTimeBudgetSpinnerModel = new SpinnerNumberModel(
+			jEdit.getIntegerProperty(PROP_REGEXP_TIME_BUDGET, 100), 0, 60000, 10);
+		addComponent(new JLabel(jEdit.getProperty(PROP_REGEXP_TIME_BUDGET + ".text")),
+					 regexpTimeBudget = new JSpinner(regexpTimeBudgetSpinnerModel));
+		addComponent(tileCache = createCheckBox(PROP_TILE_CACHE));
+		SpinnerNumberModel tileCacheSizeSpinnerModel = new SpinnerNumberModel(
+			jEdit.getIntegerProperty(PROP_TILE_CACHE_SIZE, 16), 1, 512, 4);
+		addComponent(new JLabel(jEdit.getProperty(PROP_TILE_CACHE_SIZE + ".text")),
+					 tileCacheSize = new JSpinner(tileCacheSizeSpinnerModel));
+		tileCache.addActionListener(e -> tileCacheSize.setEnabled(tileCache.isSelected()));
+		tileCacheSize.setEnabled(tileCache.isSelected());
 
 		addSeparator(PROP_HIGHLIGHT_WORD_AT_CARET + ".text");
 		addComponent(highlightWordAtCaret = createCheckBox(PROP_HIGHLIGHT_WORD_AT_CARET));
@@ -169,6 +194,7 @@ public class HighlightOptionPane extends AbstractOptionPane
 		highlightOverviewColor.setEnabled(!highlightOverviewSameColor.isSelected());
 
 		highlightOverviewSameColor.addActionListener(e -> highlightOverviewColor.setEnabled(!highlightOverviewSameColor.isSelected()));
+		addComponent(highlightOverviewStacked = createCheckBox(PROP_HIGHLIGHT_OVERVIEW_STACKED));
 
 		addComponent(highlightColorEnabled = createCheckBox(PROP_HIGHLIGHT_COLORS));
 
@@ -210,9 +236,15 @@ public class HighlightOptionPane extends AbstractOptionPane
 		jEdit.setBooleanProperty(PROP_HIGHLIGHT_OVERVIEW, highlightOverview.isSelected());
 		jEdit.setBooleanProperty(PROP_HIGHLIGHT_OVERVIEW_SAMECOLOR, highlightOverviewSameColor.isSelected());
 		jEdit.setColorProperty(PROP_HIGHLIGHT_OVERVIEW_COLOR, highlightOverviewColor.getSelectedColor());
+		jEdit.setBooleanProperty(PROP_HIGHLIGHT_OVERVIEW_STACKED, highlightOverviewStacked.isSelected());
 		jEdit.setBooleanProperty(PROP_HIGHLIGHT_COLORS, highlightColorEnabled.isSelected());
+		jEdit.setBooleanProperty(PROP_OPAQUE, opaque.isSelected());
 		jEdit.setBooleanProperty(PROP_HIGHLIGHT_ROUND_CORNER, roundCornerEnabled.isSelected());
+		jEdit.setBooleanProperty(PROP_OVERLAP_BLEND, overlapBlend.isSelected());
 		jEdit.setIntegerProperty(PROP_HIGHLIGHT_WORD_MINIMUM_LENGTH, (Integer) worldMinimumLength.getValue());
+		jEdit.setIntegerProperty(PROP_REGEXP_TIME_BUDGET, (Integer) regexpTimeBudget.getValue());
+		jEdit.setBooleanProperty(PROP_TILE_CACHE, tileCache.isSelected());
+		jEdit.setIntegerProperty(PROP_TILE_CACHE_SIZE, (Integer) tileCacheSize.getValue());
 	} //}}}
 
 	//{{{ createCheckBox() method
@@ -23,26 +23,35 @@
 package gatchan.highlight;
 
 //{{{ Imports
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.EventQueue;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.concurrent.atomic.LongAccumulator;
-import java.util.regex.PatternSyntaxException;
-import java.util.stream.IntStream;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
 import javax.swing.JPanel;
 
+import gatchan.highlight.editor.EditorView;
+import gatchan.highlight.editor.TextAreaEditorView;
+import gatchan.highlight.matcher.RegionMatcher;
 import org.gjt.sp.jedit.View;
+import org.gjt.sp.jedit.buffer.BufferAdapter;
 import org.gjt.sp.jedit.buffer.JEditBuffer;
 import org.gjt.sp.jedit.jEdit;
-import org.gjt.sp.jedit.search.SearchMatcher;
-import org.gjt.sp.jedit.search.SearchMatcher.Match;
 import org.gjt.sp.jedit.textarea.JEditTextArea;
-import org.gjt.sp.util.IntegerArray;
 import org.gjt.sp.util.Log;
-import org.gjt.sp.util.SegmentBuffer;
+import org.gjt.sp.util.ThreadUtilities;
 //}}}
 
 /**
@@ -50,9 +59,49 @@ import org.gjt.sp.util.SegmentBuffer;
  */
 public class HighlightOverview extends JPanel implements HighlightChangeListener
 {
-	private final IntegerArray items;
+	/**
+	 * The lines containing the highlights, updated incrementally when the buffer is edited.
+	 */
+	private final OverviewLines<Highlight> items;
+	/** Forwards the edits of the buffer to the lines. */
+	private final BufferEdits bufferEdits = new BufferEdits();
+	/** The buffer whose edits are forwarded. */
+	private JEditBuffer buffer;
+	/** The time the last scan was started. */
+	private long scanStart;
+	/** The highlight of the word at caret or of the selection, null if none is shown. */
+	private Highlight liveHighlight;
+
+	/**
+	 * For each pixel row and each highlight the number of its matched lines
+	 * covering the row, the counts of a row are consecutive.
+	 */
+	private int[] rowCounts = new int[0];
+	/** The counts before the last edit, to find the rows it changed. */
+	private int[] previousCounts = new int[0];
+	/** The number of rows of {@link #rowCounts}. */
+	private int rowCount;
+	/** The number of highlights of {@link #rowCounts}. */
+	private int rowsHighlightCount;
+	/** False when the counts must be computed again before painting. */
+	private boolean rowsValid;
+	/** The number of lines of the buffer when the counts were computed. */
+	private int rowsLineCount;
+
+	/**
+	 * The painted rows, so the repaints not caused by a change of the lines,
+	 * like the scrolling or the focus changes, only copy it.
+	 */
+	private BufferedImage image;
+	/** The scale of the graphics the image was painted for. */
+	private double imageScale;
+	/** False when the image must be painted again entirely. */
+	private boolean imageValid;
+	/** The color of each highlight when the image was painted. */
+	private Color[] imageColors = new Color[0];
 
 	private final JEditTextArea textArea;
+	private final EditorView view;
 
 	private static final int ITEM_HEIGHT = 4;
 	private static final int OVERVIEW_WIDTH = 12;
@@ -61,7 +110,10 @@ public class HighlightOverview extends JPanel implements HighlightChangeListener
 	// To be in the same line as the scrollbar
 	private static final int Y_OFFSET = 16;
 	private static final Dimension preferredSize = new Dimension(OVERVIEW_WIDTH, 0);
+	/** The color of all the highlights, null if each one has its own color. */
 	private Color color;
+	/** True if each row shows the share of each highlight, false if it shows the dominant one. */
+	private boolean stacked;
 
 	//{{{ HighlightOverview constructor
 	HighlightOverview(JEditTextArea textArea)
@@ -70,7 +122,9 @@ public class HighlightOverview extends JPanel implements HighlightChangeListener
 		Font newFont = new Font(currentFont.getName(), Font.BOLD, 8);
 		setFont(newFont);
 		this.textArea = textArea;
-		items = new IntegerArray(32);
+		view = new TextAreaEditorView(textArea);
+		items = new OverviewLines<>(view, new HighlightMatchers(), this::linesEdited, this::scanDone,
+			ThreadUtilities::runInBackground, EventQueue::invokeLater);
 		setRequestFocusEnabled(false);
 		addMouseListener(new MouseAdapter()
 		{
@@ -88,74 +142,157 @@ public class HighlightOverview extends JPanel implements HighlightChangeListener
 	@Override
 	public void highlightUpdated(boolean highlightEnabled)
 	{
-		long start = System.currentTimeMillis();
-		items.clear();
-		JEditBuffer buffer = textArea.getBuffer();
-		int lineCount = buffer.getLineCount();
-		if (!highlightEnabled || (!HighlightManagerTableModel.currentWordHighlight.isEnabled() &&
-								!HighlightManagerTableModel.selectionHighlight.isEnabled()) ||
-				lineCount > jEdit.getIntegerProperty("gatchan.highlight.overview.maxLines", 200000))
+		setBuffer(textArea.getBuffer());
+		int lineCount = view.getLineCount();
+		if (!highlightEnabled || lineCount > jEdit.getIntegerProperty("gatchan.highlight.overview.maxLines", 2000000))
 		{
-			repaint();
+			clear();
 			return;
 		}
 
-		SearchMatcher matcher = HighlightManagerTableModel.selectionHighlight.isEnabled() ?
-				HighlightManagerTableModel.selectionHighlight.getSearchMatcher() :
-				HighlightManagerTableModel.currentWordHighlight.getSearchMatcher();
-
-		LongAccumulator accumulator = new LongAccumulator(Long::sum, 0L);
-		IntStream lineStream = IntStream.range(0, lineCount);
-
-		lineStream
-				.map(line -> match(buffer, matcher, line))
-				.filter(line -> line >= 0)
-				.forEach(line -> pushLine(accumulator, line));
+		List<Highlight> highlights = new ArrayList<>();
+		if (HighlightManagerTableModel.selectionHighlight.isEnabled())
+			liveHighlight = HighlightManagerTableModel.selectionHighlight;
+		else if (HighlightManagerTableModel.currentWordHighlight.isEnabled())
+			liveHighlight = HighlightManagerTableModel.currentWordHighlight;
+		else
+			liveHighlight = null;
+		// the live highlight wins the rows where it is as frequent as another one
+		if (liveHighlight != null)
+			highlights.add(liveHighlight);
+		HighlightSnapshot snapshot = HighlightManagerTableModel.getManager().getSnapshot();
+		for (int i = 0; i < snapshot.size(); i++)
+		{
+			Highlight highlight = snapshot.get(i);
+			if (Highlighter.isVisible(highlight, buffer))
+				highlights.add(highlight);
+		}
+		if (highlights.isEmpty())
+		{
+			clear();
+			return;
+		}
 
-		View view = textArea.getView();
-		if (view.isActive())
+		// the buffer is scanned again in the background only for the new highlights and the
+		// ones whose matcher changed, the edits are applied as they come
+		if (items.update(highlights))
 		{
-			if (view.getTextArea() == textArea)
-				view.getStatus().setMessage(accumulator.longValue() + " lines contains the current word");
+			scanStart = System.currentTimeMillis();
+			repaintAll();
 		}
-		long endTime = System.currentTimeMillis();
-		Log.log(Log.MESSAGE, this, "Highlight overview processed in " + (endTime - start) + "ms");
+		else if (imageColorsChanged())
+		{
+			imageValid = false;
+			repaint();
+		}
+	} //}}}
+
+	//{{{ setBuffer() method
+	/**
+	 * Forward the edits of a buffer to the lines, they are cleared if it is another buffer.
+	 *
+	 * @param buffer the buffer, null to stop listening
+	 */
+	private void setBuffer(JEditBuffer buffer)
+	{
+		if (buffer == this.buffer)
+			return;
+		if (this.buffer != null)
+			this.buffer.removeBufferListener(bufferEdits);
+		this.buffer = buffer;
+		if (buffer != null)
+			buffer.addBufferListener(bufferEdits);
+		// the lines of the previous buffer are meaningless
+		items.clear();
+	} //}}}
+
+	//{{{ clear() method
+	private void clear()
+	{
+		liveHighlight = null;
+		items.clear();
+		repaintAll();
+	} //}}}
+
+	//{{{ repaintAll() method
+	/**
+	 * Paint the whole overview again, called when all the matched lines may have changed.
+	 */
+	private void repaintAll()
+	{
+		rowsValid = false;
+		imageValid = false;
 		repaint();
 	} //}}}
 
-	//{{{ pushLine() method
-	private void pushLine(LongAccumulator accumulator, int line)
+	//{{{ linesEdited() method
+	/**
+	 * Called when the lines changed after a buffer edit, only the rows whose
+	 * counts changed are painted again in the image and on screen.
+	 */
+	private void linesEdited()
 	{
-		synchronized (items)
+		int highlightCount = items.getHighlightCount();
+		if (!imageValid || !rowsValid || rowsHighlightCount != highlightCount || rowCount != getHeight() ||
+			imageColorsChanged())
+		{
+			repaintAll();
+			return;
+		}
+		int[] counts = rowCounts;
+		rowCounts = previousCounts;
+		previousCounts = counts;
+		computeRows(rowCount, textArea.getLineCount(), highlightCount);
+
+		int firstRow = -1;
+		int lastRow = -1;
+		for (int row = 0; row < rowCount; row++)
 		{
-			items.add(line);
-			accumulator.accumulate(1L);
+			int from = row * highlightCount;
+			int to = from + highlightCount;
+			if (!Arrays.equals(rowCounts, from, to, previousCounts, from, to))
+			{
+				if (firstRow == -1)
+					firstRow = row;
+				lastRow = row;
+			}
 		}
+		if (firstRow == -1)
+			return;
+		paintImage(firstRow, lastRow + 1);
+		repaint(0, firstRow, getWidth(), lastRow + 1 - firstRow);
 	} //}}}
 
-	//{{{ match() method
+	//{{{ scanDone() method
 	/**
-	 * Search in the buffer
-	 * @param buffer the buffer
-	 * @param matcher the search matcher
-	 * @param line the line to check
-	 * @return the given line if the text was found, or -1 if not
+	 * Called when the lines of a new highlight are found.
 	 */
-	private static int match(JEditBuffer buffer, SearchMatcher matcher, int line)
+	private void scanDone()
 	{
-		try
+		View view = textArea.getView();
+		if (view.isActive() && liveHighlight != null && items.getHighlightCount() != 0 &&
+			items.getHighlight(0) == liveHighlight)
 		{
-			SegmentBuffer segmentBuffer = new SegmentBuffer(0);
-			buffer.getLineText(line, segmentBuffer);
-			Match match = matcher.nextMatch(segmentBuffer, true, true, true, false);
-			if (match != null)
-			{
-				return line;
-			}
-		} catch (PatternSyntaxException | InterruptedException ignored)
+			if (view.getTextArea() == textArea)
+				view.getStatus().setMessage(items.getLines(0).cardinality() + " lines contains the current word");
+		}
+		long endTime = System.currentTimeMillis();
+		Log.log(Log.MESSAGE, this, "Highlight overview processed in " + (endTime - scanStart) + "ms");
+		repaintAll();
+	} //}}}
+
+	//{{{ dispose() method
+	/**
+	 * Stop listening to the buffer, it must be called when the overview is removed.
+	 */
+	void dispose()
+	{
+		setBuffer(null);
+		if (image != null)
 		{
+			image.flush();
+			image = null;
 		}
-		return -1;
 	} //}}}
 
 	//{{{ paintComponent() method
@@ -163,40 +300,208 @@ public class HighlightOverview extends JPanel implements HighlightChangeListener
 	public void paintComponent(Graphics gfx)
 	{
 		super.paintComponent(gfx);
-		if (items.isEmpty())
+		int highlightCount = items.getHighlightCount();
+		int height = getHeight();
+		if (highlightCount == 0 || height <= 0)
 			return;
 
-
 		int lineCount = textArea.getLineCount();
-//		gfx.drawString(String.valueOf(count), 0, 10);
-		if (color != null)
-			gfx.setColor(color);
-		else if (HighlightManagerTableModel.selectionHighlight.isEnabled())
+		if (!rowsValid || rowCount != height || rowsLineCount != lineCount || rowsHighlightCount != highlightCount)
+		{
+			computeRows(height, lineCount, highlightCount);
+			imageValid = false;
+		}
+		Graphics2D gfx2d = (Graphics2D) gfx;
+		double scale = gfx2d.getTransform().getScaleY();
+		if (!imageValid || scale != imageScale || imageColorsChanged())
+			renderImage(gfx2d, height, scale);
+		gfx.drawImage(image, 0, 0, OVERVIEW_WIDTH, height, null);
+	} //}}}
+
+	//{{{ renderImage() method
+	/**
+	 * Paint all the rows in the image, creating it if its size changed.
+	 */
+	private void renderImage(Graphics2D gfx, int height, double scale)
+	{
+		int imageWidth = (int) Math.ceil(OVERVIEW_WIDTH * scale);
+		int imageHeight = (int) Math.ceil(height * scale);
+		if (image == null || image.getWidth() != imageWidth || image.getHeight() != imageHeight)
+		{
+			if (image != null)
+				image.flush();
+			image = gfx.getDeviceConfiguration().createCompatibleImage(imageWidth, imageHeight, Transparency.TRANSLUCENT);
+		}
+		imageScale = scale;
+		paintImage(0, height);
+		imageColors = new Color[rowsHighlightCount];
+		for (int highlight = 0; highlight < rowsHighlightCount; highlight++)
+			imageColors[highlight] = getColor(highlight);
+		imageValid = true;
+	} //}}}
+
+	//{{{ paintImage() method
+	/**
+	 * Paint rows in the image, erasing what they showed before.
+	 */
+	private void paintImage(int startRow, int endRow)
+	{
+		Graphics2D gfx = image.createGraphics();
+		try
+		{
+			gfx.scale(imageScale, imageScale);
+			gfx.setComposite(AlphaComposite.Clear);
+			gfx.fillRect(0, startRow, OVERVIEW_WIDTH, endRow - startRow);
+			gfx.setComposite(AlphaComposite.SrcOver);
+			if (stacked && color == null && rowsHighlightCount > 1)
+				paintStackedRows(gfx, startRow, endRow, rowsHighlightCount);
+			else
+				paintDominantRows(gfx, startRow, endRow, rowsHighlightCount);
+		}
+		finally
 		{
-			gfx.setColor(HighlightManagerTableModel.selectionHighlight.getColor());
+			gfx.dispose();
 		}
+	} //}}}
+
+	//{{{ imageColorsChanged() method
+	/**
+	 * Check if the colors of the highlights are not the ones of the image.
+	 */
+	private boolean imageColorsChanged()
+	{
+		int highlightCount = items.getHighlightCount();
+		if (imageColors.length != highlightCount)
+			return true;
+		for (int highlight = 0; highlight < highlightCount; highlight++)
+		{
+			if (!Objects.equals(imageColors[highlight], getColor(highlight)))
+				return true;
+		}
+		return false;
+	} //}}}
+
+	//{{{ computeRows() method
+	/**
+	 * Count for each pixel row the matched lines of each highlight covering it,
+	 * so a row is painted once whatever the number of lines it shows.
+	 */
+	private void computeRows(int height, int lineCount, int highlightCount)
+	{
+		int size = height * highlightCount;
+		if (rowCounts.length < size)
+			rowCounts = new int[size];
 		else
+			Arrays.fill(rowCounts, 0, size, 0);
+		for (int highlight = 0; highlight < highlightCount; highlight++)
 		{
-			gfx.setColor(HighlightManagerTableModel.currentWordHighlight.getColor());
+			BitSet lines = items.getLines(highlight);
+			for (int line = lines.nextSetBit(0); line >= 0 && line < lineCount; line = lines.nextSetBit(line + 1))
+			{
+				int y = lineToY(line, lineCount);
+				int end = Math.min(y + ITEM_HEIGHT, height);
+				for (int row = Math.max(y, 0); row < end; row++)
+					rowCounts[row * highlightCount + highlight]++;
+			}
 		}
+		rowCount = height;
+		rowsHighlightCount = highlightCount;
+		rowsLineCount = lineCount;
+		rowsValid = true;
+	} //}}}
 
-		for (int i = 0;i<items.getSize();i++)
+	//{{{ paintDominantRows() method
+	/**
+	 * Paint each row with the color of the highlight having the most lines on
+	 * it, the consecutive rows of the same color are filled at once.
+	 */
+	private void paintDominantRows(Graphics gfx, int startRow, int endRow, int highlightCount)
+	{
+		Color runColor = null;
+		int runStart = startRow;
+		for (int row = startRow; row < endRow; row++)
 		{
-			int y = lineToY(items.get(i), lineCount);
-			gfx.fillRect(ITEM_BORDER, y, ITEM_WIDTH, ITEM_HEIGHT);
+			Color rowColor = null;
+			int max = 0;
+			int base = row * highlightCount;
+			for (int highlight = 0; highlight < highlightCount; highlight++)
+			{
+				if (rowCounts[base + highlight] > max)
+				{
+					max = rowCounts[base + highlight];
+					rowColor = getColor(highlight);
+				}
+			}
+			if (!Objects.equals(rowColor, runColor))
+			{
+				fillRun(gfx, runColor, runStart, row);
+				runColor = rowColor;
+				runStart = row;
+			}
+		}
+		fillRun(gfx, runColor, runStart, endRow);
+	} //}}}
+
+	//{{{ fillRun() method
+	private static void fillRun(Graphics gfx, Color color, int startRow, int endRow)
+	{
+		if (color != null)
+		{
+			gfx.setColor(color);
+			gfx.fillRect(ITEM_BORDER, startRow, ITEM_WIDTH, endRow - startRow);
+		}
+	} //}}}
+
+	//{{{ paintStackedRows() method
+	/**
+	 * Paint each row split between the highlights having lines on it, each
+	 * one getting a width proportional to its number of lines.
+	 */
+	private void paintStackedRows(Graphics gfx, int startRow, int endRow, int highlightCount)
+	{
+		for (int row = startRow; row < endRow; row++)
+		{
+			int base = row * highlightCount;
+			int total = 0;
+			for (int highlight = 0; highlight < highlightCount; highlight++)
+				total += rowCounts[base + highlight];
+			if (total == 0)
+				continue;
+			int covered = 0;
+			int x = ITEM_BORDER;
+			for (int highlight = 0; highlight < highlightCount; highlight++)
+			{
+				int count = rowCounts[base + highlight];
+				if (count == 0)
+					continue;
+				covered += count;
+				int right = ITEM_BORDER + ITEM_WIDTH * covered / total;
+				if (right > x)
+				{
+					gfx.setColor(getColor(highlight));
+					gfx.fillRect(x, row, right - x, 1);
+					x = right;
+				}
+			}
 		}
 	} //}}}
 
+	//{{{ getColor() method
+	private Color getColor(int highlight)
+	{
+		return color == null ? items.getHighlight(highlight).getColor() : color;
+	} //}}}
+
 	//{{{ lineToY() method
 	private int lineToY(int line, int lineCount)
 	{
-		return Y_OFFSET + (getHeight() - 2 * Y_OFFSET) * line / lineCount - ITEM_BORDER;
+		return (int) (Y_OFFSET + (long) (getHeight() - 2 * Y_OFFSET) * line / lineCount - ITEM_BORDER);
 	} //}}}
 
 	//{{{ yToLine() method
 	int yToLine(int y, int lineCount)
 	{
-		return (y + ITEM_BORDER - Y_OFFSET) * lineCount / (getHeight() - 2 * Y_OFFSET);
+		return (int) ((long) (y + ITEM_BORDER - Y_OFFSET) * lineCount / (getHeight() - 2 * Y_OFFSET));
 	} //}}}
 
 	//{{{ getPreferredSize() method
@@ -208,6 +513,85 @@ public class HighlightOverview extends JPanel implements HighlightChangeListener
 
 	public void setOverviewColor(Color color)
 	{
-		this.color = color;
+		if (!Objects.equals(this.color, color))
+		{
+			this.color = color;
+			imageValid = false;
+			repaint();
+		}
 	}
+
+	//{{{ setStacked() method
+	/**
+	 * Choose how the rows having lines of several highlights are painted.
+	 *
+	 * @param stacked true to split the rows between the highlights, false to paint the dominant one
+	 */
+	void setStacked(boolean stacked)
+	{
+		if (this.stacked != stacked)
+		{
+			this.stacked = stacked;
+			imageValid = false;
+			repaint();
+		}
+	} //}}}
+
+	//{{{ BufferEdits class
+	/**
+	 * Forwards the edits of the buffer to the lines.
+	 */
+	private final class BufferEdits extends BufferAdapter
+	{
+		@Override
+		public void contentInserted(JEditBuffer buffer, int startLine, int offset, int numLines, int length)
+		{
+			items.contentInserted(startLine, numLines);
+		}
+
+		@Override
+		public void contentRemoved(JEditBuffer buffer, int startLine, int offset, int numLines, int length)
+		{
+			items.contentRemoved(startLine, numLines);
+		}
+
+		@Override
+		public void transactionComplete(JEditBuffer buffer)
+		{
+			items.transactionComplete();
+		}
+
+		@Override
+		public void bufferLoaded(JEditBuffer buffer)
+		{
+			items.bufferLoaded();
+		}
+	} //}}}
+
+	//{{{ HighlightMatchers class
+	/**
+	 * Gives the matchers of the highlights to the lines.
+	 */
+	private static final class HighlightMatchers implements OverviewLines.MatcherSource<Highlight>
+	{
+		@Override
+		public RegionMatcher getRegionMatcher(Highlight highlight)
+		{
+			return highlight.getRegionMatcher();
+		}
+
+		@Override
+		public Supplier<RegionMatcher> getRegionMatcherFactory(Highlight highlight)
+		{
+			return highlight.getRegionMatcherFactory();
+		}
+
+		@Override
+		public void quarantine(Highlight highlight, long cost)
+		{
+			// the regexp is too slow, stop evaluating it until it is modified
+			highlight.quarantine(cost);
+			HighlightManagerTableModel.getInstance().highlightQuarantined(highlight);
+		}
+	} //}}}
 }
@@ -66,6 +66,7 @@ public class HighlightPlugin extends EditPlugin
 	private boolean highlightOverview;
 	private boolean highlightOverviewSameColor;
 	private Color highlightOverviewColor;
+	private boolean highlightOverviewStacked;
 	private int extraLineSpacing;
 
 	//{{{ start() method
@@ -96,7 +97,11 @@ public class HighlightPlugin extends EditPlugin
 		EditBus.removeFromBus(this);
 		jEdit.resetProperty("plugin.gatchan.highlight.HighlightPlugin.activate");
 
-		jEdit.getBufferManager().forEach(buffer -> buffer.unsetProperty(Highlight.HIGHLIGHTS_BUFFER_PROPS));
+		jEdit.getBufferManager().forEach(buffer ->
+		{
+			buffer.unsetProperty(Highlight.HIGHLIGHTS_BUFFER_PROPS);
+			LineMatchCache.dispose(buffer);
+		});
 		jEdit.getEditPaneManager().forEach(editPane -> uninitTextArea(editPane.getTextArea()));
 		jEdit.getViewManager().forEach(HighlightPlugin::uninitView);
 		highlightManager.dispose();
@@ -168,6 +173,7 @@ public class HighlightPlugin extends EditPlugin
 			currentOverview.setOverviewColor(jEdit.getColorProperty(HighlightOptionPane.PROP_HIGHLIGHT_OVERVIEW_COLOR));
 		else
 			currentOverview.setOverviewColor(null);
+		currentOverview.setStacked(jEdit.getBooleanProperty(HighlightOptionPane.PROP_HIGHLIGHT_OVERVIEW_STACKED));
 	} //}}}
 
 	//{{{ addHighlightOverview() method
@@ -179,6 +185,7 @@ public class HighlightPlugin extends EditPlugin
 			textArea.removeLeftOfScrollBar(overview);
 			textArea.putClientProperty(HighlightOverview.class, null);
 			highlightManager.removeHighlightChangeListener(overview);
+			overview.dispose();
 			textArea.revalidate();
 		}
 	} //}}}
@@ -220,6 +227,7 @@ public class HighlightPlugin extends EditPlugin
 		var newOverview = jEdit.getBooleanProperty(HighlightOptionPane.PROP_HIGHLIGHT_OVERVIEW);
 		var newOverviewSameColor = jEdit.getBooleanProperty(HighlightOptionPane.PROP_HIGHLIGHT_OVERVIEW_SAMECOLOR);
 		var newOverviewColor = jEdit.getColorProperty(HighlightOptionPane.PROP_HIGHLIGHT_OVERVIEW_COLOR);
+		var newOverviewStacked = jEdit.getBooleanProperty(HighlightOptionPane.PROP_HIGHLIGHT_OVERVIEW_STACKED);
 		var layer = jEdit.getIntegerProperty(HighlightOptionPane.PROP_LAYER_PROPERTY, TextAreaPainter.HIGHEST_LAYER);
 		var alpha = ((float)jEdit.getIntegerProperty(HighlightOptionPane.PROP_ALPHA, 50)) / 100f;
 		var roundCorner = jEdit.getBooleanProperty(HighlightOptionPane.PROP_HIGHLIGHT_ROUND_CORNER);
@@ -227,11 +235,13 @@ public class HighlightPlugin extends EditPlugin
 		if (this.extraLineSpacing != extraLineSpacing || this.roundCorner != roundCorner || this.layer != layer ||
 			this.alpha != alpha || newOverview != highlightOverview ||
 			newOverviewSameColor != highlightOverviewSameColor ||
+			newOverviewStacked != highlightOverviewStacked ||
 			(highlightOverviewColor != null && !highlightOverviewColor.equals(newOverviewColor)))
 		{
 			highlightOverview = newOverview;
 			highlightOverviewSameColor = newOverviewSameColor;
 			highlightOverviewColor = newOverviewColor;
+			highlightOverviewStacked = newOverviewStacked;
 			this.layer = layer;
 			this.alpha = alpha;
 			this.roundCorner = roundCorner;
@@ -243,8 +253,6 @@ public class HighlightPlugin extends EditPlugin
 				{
 					TextAreaPainter painter = textArea.getPainter();
 					Highlighter highlighter = (Highlighter) textArea.getClientProperty(Highlighter.class);
-					highlighter.setAlphaComposite(HighlightPlugin.this.alpha);
-					highlighter.setRoundcorner(HighlightPlugin.this.roundCorner);
 					painter.removeExtension(highlighter);
 					painter.addExtension(HighlightPlugin.this.layer, highlighter);
 					if (highlightOverview)
@@ -302,6 +310,7 @@ public class HighlightPlugin extends EditPlugin
 		if (bufferUpdate.getWhat() == BufferUpdate.CLOSED)
 		{
 			highlightManager.bufferClosed(bufferUpdate.getBuffer());
+			LineMatchCache.dispose(bufferUpdate.getBuffer());
 		}
 	} //}}}
 
@@ -0,0 +1,266 @@
+/*
+ * HighlightSnapshot.java - An immutable version of the highlight list
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+
+//{{{ Imports
+import gatchan.highlight.matcher.FoldedText;
+import gatchan.highlight.matcher.LiteralAutomaton;
+import gatchan.highlight.matcher.MatchHandler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+//}}}
+
+/**
+ * An immutable copy of the highlight list, published by the
+ * {@link HighlightManager} each time the list changes so the readers can
+ * iterate the highlights without locking.
+ * <p>
+ * The Highlight objects themselves can still be modified, the snapshot
+ * remembers their modification counters and the manager replaces it with a new
+ * version when one of them changed. The version is then a key for the caches of
+ * matches: the matches computed with a version are valid as long as it is the
+ * current one.
+ * <p>
+ * All the enabled and valid non regexp highlights are compiled in a single
+ * {@link LiteralAutomaton}, so a line is scanned once whatever the number of
+ * highlights.
+ *
+ * @author Matthieu Casanova
+ */
+public final class HighlightSnapshot
+{
+	static final HighlightSnapshot EMPTY = new HighlightSnapshot(new Highlight[0], 0);
+
+	private final Highlight[] highlights;
+	private final int[] modCounts;
+	private final int version;
+
+	/** The index in {@link #highlights} of the highlights compiled in the automaton, indexed by pattern. */
+	private final int[] literalIndex;
+	private final LiteralAutomaton automaton;
+	private final int maxLiteralLength;
+
+	//{{{ HighlightSnapshot constructor
+	/**
+	 * Create a snapshot.
+	 *
+	 * @param highlights the highlights, the array must not be modified later
+	 * @param version    the version of this snapshot
+	 */
+	HighlightSnapshot(Highlight[] highlights, int version)
+	{
+		this.highlights = highlights;
+		this.version = version;
+		modCounts = new int[highlights.length];
+		List<String> patterns = new ArrayList<>();
+		int maxLength = 0;
+		int[] literals = new int[highlights.length];
+		boolean[] ignoreCase = new boolean[highlights.length];
+		for (int i = 0; i < highlights.length; i++)
+		{
+			Highlight highlight = highlights[i];
+			modCounts[i] = highlight.getModCount();
+			if (isLiteral(highlight))
+			{
+				ignoreCase[patterns.size()] = highlight.isIgnoreCase();
+				literals[patterns.size()] = i;
+				patterns.add(highlight.getStringToHighlight());
+				maxLength = Math.max(maxLength, highlight.getStringToHighlight().length());
+			}
+		}
+		literalIndex = Arrays.copyOf(literals, patterns.size());
+		maxLiteralLength = maxLength;
+		automaton = patterns.isEmpty() ? null : new LiteralAutomaton(patterns, ignoreCase);
+	} //}}}
+
+	//{{{ isLiteral() method
+	/**
+	 * Returns true if the highlight is handled by the automaton.
+	 *
+	 * @param highlight the highlight
+	 * @return true if the highlight is a valid enabled non regexp highlight
+	 */
+	static boolean isLiteral(Highlight highlight)
+	{
+		return highlight.isEnabled() && highlight.isValid() && !highlight.isRegexp();
+	} //}}}
+
+	//{{{ isUpToDate() method
+	/**
+	 * Check if none of the highlights was modified since the snapshot was taken.
+	 *
+	 * @return true if the modification counters of the highlights did not change
+	 */
+	boolean isUpToDate()
+	{
+		for (int i = 0; i < highlights.length; i++)
+		{
+			if (highlights[i].getModCount() != modCounts[i])
+				return false;
+		}
+		return true;
+	} //}}}
+
+	//{{{ refresh() method
+	/**
+	 * Returns a new snapshot of the same highlights, taking their current state.
+	 *
+	 * @param version the version of the new snapshot
+	 * @return the new snapshot
+	 */
+	HighlightSnapshot refresh(int version)
+	{
+		return new HighlightSnapshot(highlights, version);
+	} //}}}
+
+	//{{{ getVersion() method
+	/**
+	 * Returns the version of the snapshot.
+	 * It changes each time the highlights change, so it identifies the matches
+	 * that were computed with it.
+	 *
+	 * @return the version
+	 */
+	public int getVersion()
+	{
+		return version;
+	} //}}}
+
+	//{{{ size() method
+	/**
+	 * Returns the number of highlights.
+	 *
+	 * @return the number of highlights
+	 */
+	public int size()
+	{
+		return highlights.length;
+	} //}}}
+
+	//{{{ get() method
+	/**
+	 * Returns a highlight.
+	 *
+	 * @param index the index of the highlight
+	 * @return the highlight
+	 */
+	public Highlight get(int index)
+	{
+		return highlights[index];
+	} //}}}
+
+	//{{{ indexOf() method
+	/**
+	 * Returns the index of a highlight, using {@link Highlight#equals(Object)}.
+	 *
+	 * @param highlight the highlight
+	 * @return the index or -1 if it is not in the snapshot
+	 */
+	public int indexOf(Highlight highlight)
+	{
+		for (int i = 0; i < highlights.length; i++)
+		{
+			if (highlight.equals(highlights[i]))
+				return i;
+		}
+		return -1;
+	} //}}}
+
+	//{{{ hasLiterals() method
+	/**
+	 * Returns true if some highlights are compiled in the automaton.
+	 *
+	 * @return true if there are literal highlights
+	 */
+	public boolean hasLiterals()
+	{
+		return automaton != null;
+	} //}}}
+
+	//{{{ getMaxLiteralLength() method
+	/**
+	 * Returns the length of the longest literal highlight.
+	 *
+	 * @return the length of the longest literal, 0 if there is none
+	 */
+	public int getMaxLiteralLength()
+	{
+		return maxLiteralLength;
+	} //}}}
+
+	//{{{ getLiteralCount() method
+	/**
+	 * Returns the number of highlights compiled in the automaton.
+	 *
+	 * @return the number of literal highlights
+	 */
+	public int getLiteralCount()
+	{
+		return literalIndex.length;
+	} //}}}
+
+	//{{{ getLiteralIndex() method
+	/**
+	 * Returns the index in {@link #get(int)} of a pattern of the automaton.
+	 *
+	 * @param pattern the pattern index as given to the {@link MatchHandler}
+	 * @return the index of the highlight
+	 */
+	public int getLiteralIndex(int pattern)
+	{
+		return literalIndex[pattern];
+	} //}}}
+
+	//{{{ match() methods
+	/**
+	 * Find all literal highlights in a range of a text in one pass.
+	 * The automaton keeps a matching state, it must only be used from the EDT.
+	 *
+	 * @param text    the text
+	 * @param start   the start offset (inclusive)
+	 * @param end     the end offset (exclusive)
+	 * @param handler the handler that will receive (pattern, start, end) for each match
+	 */
+	public void match(CharSequence text, int start, int end, MatchHandler handler)
+	{
+		match(text, null, start, end, handler);
+	}
+
+	/**
+	 * Find all literal highlights in a range of a text in one pass, reading the
+	 * folded chars from a folded copy of the text.
+	 *
+	 * @param text    the text
+	 * @param folded  the folded copy of the text, or null
+	 * @param start   the start offset (inclusive)
+	 * @param end     the end offset (exclusive)
+	 * @param handler the handler that will receive (pattern, start, end) for each match
+	 */
+	public void match(CharSequence text, FoldedText folded, int start, int end, MatchHandler handler)
+	{
+		if (automaton != null)
+			automaton.match(text, folded, start, end, handler);
+	} //}}}
+}
@@ -64,6 +64,7 @@ public class HighlightTablePanel extends JPanel
 	private final Color permanentScopeColor;
 	private static final Color SESSION_SCOPE_COLOR = new Color(0xcc, 0xcc, 0xff);
 	private static final Color BUFFER_SCOPE_COLOR = new Color(0xff, 0xfc, 0xc0);
+	private static final Color QUARANTINED_COLOR = new Color(0xff, 0xb0, 0xb0);
 
 	/**
 	 * Instantiate the panel.
@@ -134,6 +135,14 @@ public class HighlightTablePanel extends JPanel
 				initialized = true;
 			}
 		}
+		if (highlight.isQuarantined())
+		{
+			changeBackgroundColor(QUARANTINED_COLOR);
+			setToolTipText("Disabled: the regexp took " + highlight.getQuarantineCost() / 1000000L +
+				"ms on one line, its budget is " + highlight.getEffectiveTimeBudget() + "ms");
+			return;
+		}
+		setToolTipText(null);
 		switch (highlight.getScope())
 		{
 			case Highlight.SESSION_SCOPE:
@@ -0,0 +1,284 @@
+/*
+ * HighlightTileCache.java - The rendered highlights of the unchanged lines
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+//}}}
+
+/**
+ * The images of the permanent highlights painted on screen lines, so an
+ * unchanged line is painted with one image copy instead of computing and
+ * painting each match again.
+ * <p>
+ * A tile is found with the matches array of its physical line: the
+ * {@link LineMatchCache} replaces it when the line or the highlights change, so
+ * the same array means the same text and the same matches. The rest of the key
+ * is what moves the matches on screen: the part of the line painted by the
+ * screen line, the horizontal scroll, the font, the scale of the graphics and
+ * the painting options. The color and the visibility of the highlights are not
+ * part of their modification counter, they are checked when a tile is reused.
+ * <p>
+ * The tiles are evicted in least recently used order when their memory exceeds
+ * the limit. The cache is only used from the EDT.
+ *
+ * @author Matthieu Casanova
+ */
+final class HighlightTileCache
+{
+	private final Map<Key, Tile> tiles = new LinkedHashMap<>(64, 0.75f, true);
+	/** The key used to look up the tiles, reused to not allocate on a hit. */
+	private final Key probe = new Key();
+
+	/** The memory used by the tiles in bytes. */
+	private long size;
+	/** The maximum memory used by the tiles in bytes. */
+	private long maxSize;
+
+	//{{{ HighlightTileCache constructor
+	/**
+	 * Create a cache.
+	 *
+	 * @param maxSize the maximum memory used by the tiles in bytes
+	 */
+	HighlightTileCache(long maxSize)
+	{
+		this.maxSize = maxSize;
+	} //}}}
+
+	//{{{ setMaxSize() method
+	/**
+	 * Change the memory limit, evicting tiles if needed.
+	 *
+	 * @param maxSize the maximum memory used by the tiles in bytes
+	 */
+	void setMaxSize(long maxSize)
+	{
+		this.maxSize = maxSize;
+		evict();
+	} //}}}
+
+	//{{{ get() method
+	/**
+	 * Returns the tile of a screen line.
+	 *
+	 * @param matches          the matches of the physical line
+	 * @param fragmentStart    the start of the screen line in the physical line
+	 * @param fragmentEnd      the end of the screen line in the physical line
+	 * @param horizontalOffset the horizontal scroll of the text area
+	 * @param fontMetrics      the font metrics of the painter
+	 * @param scale            the scale of the graphics
+	 * @param config           the painting options
+	 * @return the tile or null if there is none
+	 */
+	Tile get(int[] matches,
+		 int fragmentStart,
+		 int fragmentEnd,
+		 int horizontalOffset,
+		 FontMetrics fontMetrics,
+		 double scale,
+		 PaintConfig config)
+	{
+		probe.set(matches, fragmentStart, fragmentEnd, horizontalOffset, fontMetrics, scale, config);
+		Tile tile = tiles.get(probe);
+		probe.matches = null;
+		return tile;
+	} //}}}
+
+	//{{{ put() method
+	/**
+	 * Store a tile, evicting the least recently used ones if needed.
+	 *
+	 * @param tile the tile
+	 */
+	void put(Tile tile)
+	{
+		Tile old = tiles.put(tile.key, tile);
+		if (old != null)
+			remove(old);
+		size += tile.getSize();
+		evict();
+	} //}}}
+
+	//{{{ clear() method
+	void clear()
+	{
+		for (Tile tile : tiles.values())
+			tile.flush();
+		tiles.clear();
+		size = 0L;
+	} //}}}
+
+	//{{{ evict() method
+	private void evict()
+	{
+		Iterator<Tile> iterator = tiles.values().iterator();
+		while (size > maxSize && iterator.hasNext())
+		{
+			Tile tile = iterator.next();
+			iterator.remove();
+			remove(tile);
+		}
+	} //}}}
+
+	//{{{ remove() method
+	private void remove(Tile tile)
+	{
+		size -= tile.getSize();
+		tile.flush();
+	} //}}}
+
+	//{{{ Key class
+	private static final class Key
+	{
+		/** The matches of the physical line, compared by identity. */
+		private int[] matches;
+		private int fragmentStart;
+		private int fragmentEnd;
+		private int horizontalOffset;
+		private FontMetrics fontMetrics;
+		private double scale;
+		private PaintConfig config;
+
+		private void set(int[] matches,
+				 int fragmentStart,
+				 int fragmentEnd,
+				 int horizontalOffset,
+				 FontMetrics fontMetrics,
+				 double scale,
+				 PaintConfig config)
+		{
+			this.matches = matches;
+			this.fragmentStart = fragmentStart;
+			this.fragmentEnd = fragmentEnd;
+			this.horizontalOffset = horizontalOffset;
+			this.fontMetrics = fontMetrics;
+			this.scale = scale;
+			this.config = config;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof Key))
+				return false;
+			Key key = (Key) obj;
+			return matches == key.matches &&
+			       fragmentStart == key.fragmentStart &&
+			       fragmentEnd == key.fragmentEnd &&
+			       horizontalOffset == key.horizontalOffset &&
+			       fontMetrics == key.fontMetrics &&
+			       scale == key.scale &&
+			       config == key.config;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int hash = System.identityHashCode(matches);
+			hash = 31 * hash + fragmentStart;
+			hash = 31 * hash + fragmentEnd;
+			hash = 31 * hash + horizontalOffset;
+			return hash;
+		}
+	} //}}}
+
+	//{{{ Tile class
+	/**
+	 * The rendered matches of a screen line.
+	 */
+	static final class Tile
+	{
+		private final Key key = new Key();
+		/** The image, covering the line height and the horizontal extent of the matches, null if nothing is painted. */
+		final BufferedImage image;
+		/** The x co-ordinate of the image in the text area. */
+		final int x;
+		/** The width and height of the image in the text area co-ordinates. */
+		final int width;
+		final int height;
+		/** For each match of the physical line its color, or null if it was not painted. */
+		private final Color[] colors;
+
+		//{{{ Tile constructor
+		/**
+		 * Create a tile, the key arguments are the ones of {@link HighlightTileCache#get}.
+		 */
+		Tile(int[] matches,
+		     int fragmentStart,
+		     int fragmentEnd,
+		     int horizontalOffset,
+		     FontMetrics fontMetrics,
+		     double scale,
+		     PaintConfig config,
+		     BufferedImage image,
+		     int x,
+		     int width,
+		     int height,
+		     Color[] colors)
+		{
+			key.set(matches, fragmentStart, fragmentEnd, horizontalOffset, fontMetrics, scale, config);
+			this.image = image;
+			this.x = x;
+			this.width = width;
+			this.height = height;
+			this.colors = colors;
+		} //}}}
+
+		//{{{ isPainted() method
+		/**
+		 * Check if the tile was painted with a color for a match.
+		 *
+		 * @param match the index of the match, the index of its triple divided by 3
+		 * @param color the color the match would be painted with, null if it is not visible
+		 * @return true if the tile shows the match with this color
+		 */
+		boolean isPainted(int match, Color color)
+		{
+			Color painted = colors[match];
+			return painted == null ? color == null : painted.equals(color);
+		} //}}}
+
+		//{{{ getSize() method
+		/**
+		 * Returns the memory used by the tile, roughly the pixels of the image and the object overhead.
+		 */
+		private long getSize()
+		{
+			long size = 64L + colors.length * 4L;
+			if (image != null)
+				size += (long) image.getWidth() * image.getHeight() * 4L;
+			return size;
+		} //}}}
+
+		//{{{ flush() method
+		private void flush()
+		{
+			if (image != null)
+				image.flush();
+		} //}}}
+	} //}}}
+}
@@ -22,15 +22,24 @@
 package gatchan.highlight;
 
 //{{{ Imports
+import gatchan.highlight.editor.EditorView;
+import gatchan.highlight.editor.TextAreaEditorView;
+import gatchan.highlight.matcher.FoldedText;
+import gatchan.highlight.matcher.MatchHandler;
+import gatchan.highlight.matcher.MatchTimeoutException;
+import gatchan.highlight.matcher.RegionMatcher;
 import org.gjt.sp.jedit.buffer.JEditBuffer;
-import org.gjt.sp.jedit.jEdit;
-import org.gjt.sp.jedit.search.SearchMatcher;
 import org.gjt.sp.jedit.textarea.TextArea;
-import org.gjt.sp.jedit.textarea.Selection;
 import org.gjt.sp.jedit.textarea.TextAreaExtension;
 import org.gjt.sp.jedit.textarea.TextAreaPainter;
+import org.gjt.sp.util.IntegerArray;
 
+import javax.swing.text.Segment;
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.regex.PatternSyntaxException;
 //}}}
 
@@ -43,60 +52,146 @@ import java.util.regex.PatternSyntaxException;
 public class Highlighter extends TextAreaExtension implements HighlightChangeListener
 {
 	private final TextArea textArea;
-	private final Point point = new Point();
+	/**
+	 * The caret, selections and positions of the text area.
+	 */
+	private final EditorView view;
 
 	private final HighlightManager highlightManager;
-	private AlphaComposite blend;
-	private float alpha;
-	public static boolean square;
-
-	public static Color squareColor;
 
+	/**
+	 * The lines longer than that are matched only in their visible part.
+	 */
 	public static final int MAX_LINE_LENGTH = 10000;
 
-	private boolean roundcorner;
+	/**
+	 * The minimum number of chars matched on both sides of the visible part of a long line.
+	 */
+	private static final int WINDOW_MARGIN = 1024;
 
 	private final TextAreaPainter painter;
 
+	/**
+	 * The (highlight index, start, end) triples found in the line being painted.
+	 */
+	private final IntegerArray collected = new IntegerArray(30);
+	private final Collector collector = new Collector();
+
+	/**
+	 * The number of matches of each literal highlight in the line being matched.
+	 */
+	private int[] literalMatchCounts = new int[0];
+
+	/**
+	 * The text of the physical line being matched, reused for every line.
+	 */
+	private final Segment lineSegment = new Segment();
+
+	/**
+	 * The case folded copy of the text given to the automaton, shared by the
+	 * automaton and the ignore case word at caret of the same line.
+	 */
+	private final FoldedText foldedLine = new FoldedText();
+	/** True if {@link #foldedLine} holds the range matched by the current {@link #findLineMatches} call. */
+	private boolean foldedLineValid;
+
+	/**
+	 * The rectangles of the current paint pass, painted at the end of the pass.
+	 */
+	private final RectangleBatch batch = new RectangleBatch();
+
+	/**
+	 * The rendered permanent highlights of the lines, null if the option is off.
+	 */
+	private HighlightTileCache tileCache;
+	/** The snapshot version of the tiles in {@link #tileCache}. */
+	private int tileVersion = -1;
+	/** The background the tiles were pre-blended with, null if they are translucent. */
+	private Color tileBackground;
+	/** The rectangles of the tile being rendered, relative to the top of its line. */
+	private final RectangleBatch tileBatch = new RectangleBatch();
+	private final Rectangle tileBounds = new Rectangle();
+
+	/**
+	 * The selections and caret of the text area for the current paint pass.
+	 */
+	private final SelectionSnapshot selection = new SelectionSnapshot();
+
+	private final VisibleWindow window = new VisibleWindow();
+
+	//{{{ paint pass state
+	/** The context of the current paint pass, null outside of a pass. */
+	private PaintContext pass;
+
+	/** The physical line whose matches are in {@link #lineMatches} and {@link #liveMatches}. */
+	private int passLine = -1;
+	/** The (highlight index, start, end) triples of the permanent highlights in {@link #passLine}. */
+	private int[] lineMatches;
+	private int lineMatchCount;
+	/** The (0, start, end) triples of the live highlight in {@link #passLine}. */
+	private final IntegerArray liveMatches = new IntegerArray(30);
+
+	/** The rectangles of the screen line being painted. */
+	private final PendingRectangles pending = new PendingRectangles();
+	/** The highlight colors pre-blended with the background and with the line highlight. */
+	private final OpaqueColors backgroundColors = new OpaqueColors();
+	private final OpaqueColors lineHighlightColors = new OpaqueColors();
+	//}}}
+
 	//{{{ Highlighter constructor
 	public Highlighter(TextArea textArea)
 	{
-		alpha = ((float)jEdit.getIntegerProperty(HighlightOptionPane.PROP_ALPHA, 50)) / 100f;
-		blend = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha);
 		highlightManager = HighlightManagerTableModel.getManager();
 		this.textArea = textArea;
+		view = new TextAreaEditorView(textArea);
 		painter = textArea.getPainter();
 	} //}}}
 
-	//{{{ setAlphaComposite() method
-	public void setAlphaComposite(float alpha)
-	{
-		if (this.alpha != alpha)
-		{
-			this.alpha = alpha;
-			blend = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha);
-		}
-	} //}}}
-
-	//{{{ setRoundcorner() method
-	/**
-	 * gatchan.highlight.roundcorner
-	 * @param roundcorner
-	 */
-	public void setRoundcorner(boolean roundcorner)
-	{
-		this.roundcorner = roundcorner;
-	} //}}}
-
 	//{{{ paintScreenLineRange() method
 	@Override
 	public void paintScreenLineRange(Graphics2D gfx, int firstLine, int lastLine, int[] physicalLines, int[] start, int[] end, int y, int lineHeight)
 	{
+		Highlight wordAtCaretHighlight = highlightManager.getWordAtCaretHighlight();
 		if (highlightManager.isHighlightEnable() &&
 		    highlightManager.countHighlights() != 0 ||
-		    HighlightManagerTableModel.currentWordHighlight.isEnabled() ||
-		    HighlightManagerTableModel.selectionHighlight.isEnabled())
-			super.paintScreenLineRange(gfx, firstLine, lastLine, physicalLines, start, end, y, lineHeight);
+		    wordAtCaretHighlight.isEnabled() ||
+		    highlightManager.getSelectionHighlight().isEnabled())
+		{
+			selection.update(view);
+			PaintConfig config = PaintConfig.get();
+			if (config.isOpaque())
+			{
+				float alpha = config.getComposite().getAlpha();
+				backgroundColors.setBackground(painter.getBackground(), alpha);
+				lineHighlightColors.setBackground(painter.isLineHighlightEnabled() ?
+					painter.getLineHighlightColor() : painter.getBackground(), alpha);
+			}
+			HighlightSnapshot snapshot = highlightManager.getSnapshot();
+			AffineTransform transform = gfx.getTransform();
+			pass = new PaintContext(config,
+				snapshot,
+				highlightManager.getLiveHighlight(),
+				wordAtCaretHighlight,
+				firstLine,
+				physicalLines,
+				end,
+				painter.getLineHeight(),
+				painter.getFontHeight(),
+				getTileCache(config, snapshot, transform),
+				textArea.getHorizontalOffset(),
+				painter.getFontMetrics(),
+				transform.getScaleX());
+			passLine = -1;
+			try
+			{
+				super.paintScreenLineRange(gfx, firstLine, lastLine, physicalLines, start, end, y, lineHeight);
+			}
+			finally
+			{
+				pass = null;
+			}
+			batch.flush(gfx, config.getFillComposite(), config.getOutlineComposite(), config.isRoundCorner());
+		}
 	} //}}}
 
 	//{{{ paintValidLine() method
@@ -106,6 +201,8 @@ public class Highlighter extends TextAreaExtension implements HighlightChangeLis
 	 * the buffer. Note that since one physical line may consist of
 	 * several screen lines due to soft wrap, the start and end
 	 * offsets of the screen line are passed in as well.
+	 * The matches of the physical line are found for its first screen line
+	 * of the paint pass, each screen line paints the part of them it contains.
 	 *
 	 * @param gfx The graphics context
 	 * @param screenLine The screen line number
@@ -128,107 +225,473 @@ public class Highlighter extends TextAreaExtension implements HighlightChangeLis
 	{
 		JEditBuffer buffer = textArea.getBuffer();
 		int lineStartOffset = buffer.getLineStartOffset(physicalLine);
-		int lineEndOffset = buffer.getLineEndOffset(physicalLine);
 		int length = buffer.getLineLength(physicalLine);
+		int fragmentStart = start - lineStartOffset;
+		int fragmentEnd = Math.min(end - lineStartOffset, length);
+		if (fragmentEnd <= fragmentStart)
+			return;
+		// the end of a wrapped screen line is the start of the next one
+		pending.setWrapEnd(end - lineStartOffset <= length ? fragmentEnd : -1);
 
-		int screenToPhysicalOffset = start - lineStartOffset;
+		PaintContext context = pass;
+		if (physicalLine != passLine)
+			findLineMatches(context, buffer, screenLine, physicalLine, lineStartOffset, length, fragmentStart);
 
+		if (context.tiles != null && length <= MAX_LINE_LENGTH && lineMatchCount != 0 &&
+		    !selection.intersects(lineStartOffset + fragmentStart, lineStartOffset + fragmentEnd) &&
+		    !(context.config.isOpaque() && physicalLine == selection.getCaretLine()))
+		{
+			// the matches of the line are cached and none of them can be hidden by a selection,
+			// the opaque tiles are blended with the background, not with the line highlight
+			paintTile(gfx, context, buffer, physicalLine, lineStartOffset, y, fragmentStart, fragmentEnd);
+		}
+		else
+		{
+			paintMatches(context, lineMatches, lineMatchCount, buffer, physicalLine, lineStartOffset,
+				fragmentStart, fragmentEnd);
+		}
 
-		int l = length - screenToPhysicalOffset - lineEndOffset + end;
-		if (l > MAX_LINE_LENGTH)
-			l = MAX_LINE_LENGTH;
-		CharSequence lineContent = buffer.getSegment(lineStartOffset + screenToPhysicalOffset,
-			l);
-		if (lineContent.length() == 0)
-			return;
+		int[] matches = liveMatches.getArray();
+		for (int i = 0; i < liveMatches.getSize(); i += 3)
+		{
+			int startOffset = matches[i + 1];
+			int endOffset = matches[i + 2];
+			if (endOffset > fragmentStart && startOffset < fragmentEnd)
+			{
+				paintMatch(context, context.liveHighlight, physicalLine, lineStartOffset,
+					Math.max(startOffset, fragmentStart),
+					Math.min(endOffset, fragmentEnd));
+			}
+		}
+		flushPending(context, batch, physicalLine, y);
+	} //}}}
 
-		CharSequence tempLineContent = lineContent;
-		try
+	//{{{ findLineMatches() method
+	/**
+	 * Find the matches of a physical line for the current paint pass.
+	 * The whole line is matched if it is not longer than {@link #MAX_LINE_LENGTH},
+	 * otherwise only the part of it painted by the pass widened by a margin on
+	 * both sides, so the matches crossing the edges of that part are found.
+	 *
+	 * @param context the context of the paint pass
+	 * @param buffer the buffer
+	 * @param screenLine the first screen line of the physical line in the pass
+	 * @param physicalLine the physical line
+	 * @param lineStartOffset the start offset of the physical line
+	 * @param length the length of the physical line
+	 * @param fragmentStart the start of the screen line in the physical line
+	 */
+	private void findLineMatches(PaintContext context,
+				     JEditBuffer buffer,
+				     int screenLine,
+				     int physicalLine,
+				     int lineStartOffset,
+				     int length,
+				     int fragmentStart)
+	{
+		passLine = physicalLine;
+		foldedLineValid = false;
+		HighlightSnapshot highlights = context.snapshot;
+		Highlight liveHighlight = context.liveHighlight;
+		int rangeStart = 0;
+		int rangeEnd = length;
+		if (length > MAX_LINE_LENGTH)
 		{
-			highlightManager.getReadLock();
-			for (int i = 0; i < highlightManager.countHighlights(); i++)
+			// the screen lines of the physical line painted by this pass
+			int[] physicalLines = context.physicalLines;
+			int index = screenLine - context.firstLine;
+			rangeStart = fragmentStart;
+			int lastIndex = index;
+			while (lastIndex + 1 < physicalLines.length && physicalLines[lastIndex + 1] == physicalLine)
+				lastIndex++;
+			rangeEnd = Math.min(context.end[lastIndex] - lineStartOffset, length);
+			// the matches crossing an edge of the painted part are found
+			int margin = Math.max(WINDOW_MARGIN, highlights.getMaxLiteralLength());
+			if (liveHighlight.getStringToHighlight() != null)
+				margin = Math.max(margin, liveHighlight.getStringToHighlight().length());
+			if (lastIndex == index)
+			{
+				// not wrapped, only the visible part of the line is matched
+				window.update(textArea, screenLine, lineStartOffset, rangeStart, rangeEnd, margin);
+				rangeStart = window.getStart();
+				rangeEnd = window.getEnd();
+			}
+			else
+			{
+				// the painted screen lines, widened on both sides like the visible window
+				rangeStart = Math.max(0, rangeStart - margin);
+				rangeEnd = Math.min(length, rangeEnd + margin);
+			}
+		}
+
+		if (length <= MAX_LINE_LENGTH)
+		{
+			// the matches of the whole physical line are cached
+			lineMatches = getLineMatches(context, buffer, physicalLine, lineStartOffset, length);
+			lineMatchCount = lineMatches.length;
+		}
+		else
+		{
+			buffer.getText(lineStartOffset + rangeStart, rangeEnd - rangeStart, lineSegment);
+			collected.clear();
+			collectMatches(context, lineSegment, rangeStart);
+			lineMatches = collected.getArray();
+			lineMatchCount = collected.getSize();
+		}
+
+		liveMatches.clear();
+		if (isVisible(liveHighlight, buffer) && rangeEnd > rangeStart)
+		{
+			if (foldedLineValid && liveHighlight.getFoldedRegionMatcher() != null)
+			{
+				// the range was just folded for the automaton, search the folded word in it
+				addMatches(context, context.liveSlot, liveHighlight, true, 0, foldedLine, rangeStart, liveMatches);
+			}
+			else
 			{
-				Highlight highlight = highlightManager.getHighlight(i);
-				highlight(highlight, buffer, gfx, physicalLine, y, screenToPhysicalOffset,
-					tempLineContent);
-				tempLineContent = lineContent;
+				buffer.getText(lineStartOffset + rangeStart, rangeEnd - rangeStart, lineSegment);
+				addMatches(context, context.liveSlot, liveHighlight, false, 0, lineSegment, rangeStart, liveMatches);
 			}
 		}
-		finally
+	} //}}}
+
+	//{{{ getLineMatches() method
+	/**
+	 * Returns the matches of a physical line from the cache, or find them if they are not cached yet.
+	 *
+	 * @param context the context of the paint pass
+	 * @param buffer the buffer
+	 * @param physicalLine the physical line
+	 * @param lineStartOffset the start offset of the line
+	 * @param length the length of the line
+	 * @return the (highlight index, start, end) triples of the line
+	 */
+	private int[] getLineMatches(PaintContext context,
+				     JEditBuffer buffer,
+				     int physicalLine,
+				     int lineStartOffset,
+				     int length)
+	{
+		HighlightSnapshot highlights = context.snapshot;
+		LineMatchCache cache = LineMatchCache.getCache(buffer);
+		int[] matches = cache.getMatches(physicalLine, highlights.getVersion());
+		if (matches == null)
 		{
-			highlightManager.releaseLock();
+			collected.clear();
+			buffer.getText(lineStartOffset, length, lineSegment);
+			collectMatches(context, lineSegment, 0);
+			if (collected.getSize() == 0)
+				matches = LineMatchCache.NO_MATCH;
+			else
+				matches = Arrays.copyOf(collected.getArray(), collected.getSize());
+			cache.putMatches(physicalLine, highlights.getVersion(), matches);
 		}
-		tempLineContent = lineContent;
-		if (jEdit.getActiveView().getTextArea().getSelectionCount() == 0)
+		return matches;
+	} //}}}
+
+	//{{{ collectMatches() method
+	/**
+	 * Find the matches of all highlights in a text and add them to {@link #collected}.
+	 * The cost of each highlight is recorded in its {@link HighlightMetrics}.
+	 *
+	 * @param context the context of the paint pass
+	 * @param text the text
+	 * @param shift the offset of the text in the physical line
+	 */
+	private void collectMatches(PaintContext context, CharSequence text, int shift)
+	{
+		HighlightSnapshot highlights = context.snapshot;
+		if (highlights.hasLiterals())
 		{
-			highlight(HighlightManagerTableModel.currentWordHighlight, buffer, gfx, physicalLine, y,
-				screenToPhysicalOffset, tempLineContent);
+			int first = collected.getSize();
+			long start = System.nanoTime();
+			collector.init(highlights, shift, collected);
+			foldedLine.reset(text);
+			foldedLineValid = true;
+			highlights.match(text, foldedLine, 0, text.length(), collector);
+			recordLiteralMetrics(highlights, first, System.nanoTime() - start);
 		}
+		for (int i = 0; i < highlights.size(); i++)
+		{
+			Highlight highlight = highlights.get(i);
+			// the literal highlights were found by the automaton
+			if (highlight.isRegexp() && highlight.isEnabled() && highlight.isValid() && !highlight.isQuarantined())
+			{
+				int first = collected.getSize();
+				long start = System.nanoTime();
+				addMatches(context, i, highlight, false, i, text, shift, collected);
+				highlight.getMetrics().record(System.nanoTime() - start, (collected.getSize() - first) / 3);
+			}
+		}
+	} //}}}
+
+	//{{{ recordLiteralMetrics() method
+	/**
+	 * Record the cost of the literal highlights.
+	 * They are all matched in one pass of the automaton so each one is charged an
+	 * equal share of its time.
+	 *
+	 * @param highlights the highlights
+	 * @param first the index of the first triple found by the automaton in {@link #collected}
+	 * @param elapsed the time of the automaton pass in ns
+	 */
+	private void recordLiteralMetrics(HighlightSnapshot highlights, int first, long elapsed)
+	{
+		int size = highlights.size();
+		if (literalMatchCounts.length < size)
+			literalMatchCounts = new int[size];
 		else
+			Arrays.fill(literalMatchCounts, 0, size, 0);
+		int[] matches = collected.getArray();
+		int count = collected.getSize();
+		for (int i = first; i < count; i += 3)
+			literalMatchCounts[matches[i]]++;
+		int literalCount = highlights.getLiteralCount();
+		long share = elapsed / literalCount;
+		for (int pattern = 0; pattern < literalCount; pattern++)
 		{
-			highlight(HighlightManagerTableModel.selectionHighlight, buffer, gfx, physicalLine, y,
-				screenToPhysicalOffset, tempLineContent);
+			int index = highlights.getLiteralIndex(pattern);
+			highlights.get(index).getMetrics().record(share, literalMatchCounts[index]);
 		}
 	} //}}}
 
-	//{{{ highlight() method
-	private void highlight(Highlight highlight,
+	//{{{ paintMatches() method
+	/**
+	 * Paint the part of the matches that is in a screen line, their rectangles
+	 * are pending until {@link #flushPending} is called.
+	 *
+	 * @param context the context of the paint pass
+	 * @param matches the (highlight index, start, end) triples
+	 * @param count the number of ints used in matches
+	 * @param buffer the buffer
+	 * @param physicalLine the physical line
+	 * @param lineStartOffset the start offset of the physical line
+	 * @param fragmentStart the start of the screen line in the physical line
+	 * @param fragmentEnd the end of the screen line in the physical line
+	 */
+	private void paintMatches(PaintContext context,
+				  int[] matches,
+				  int count,
+				  JEditBuffer buffer,
+				  int physicalLine,
+				  int lineStartOffset,
+				  int fragmentStart,
+				  int fragmentEnd)
+	{
+		HighlightSnapshot highlights = context.snapshot;
+		for (int i = 0; i < count; i += 3)
+		{
+			int startOffset = matches[i + 1];
+			int endOffset = matches[i + 2];
+			if (endOffset <= fragmentStart || startOffset >= fragmentEnd)
+				continue;
+			Highlight highlight = highlights.get(matches[i]);
+			if (isVisible(highlight, buffer))
+			{
+				paintMatch(context, highlight, physicalLine, lineStartOffset,
+					Math.max(startOffset, fragmentStart),
+					Math.min(endOffset, fragmentEnd));
+			}
+		}
+	} //}}}
+
+	//{{{ paintTile() method
+	/**
+	 * Paint the permanent highlights of a screen line from its tile, rendering
+	 * the tile first if it is not cached or not up to date.
+	 *
+	 * @param gfx the graphics
+	 * @param context the context of the paint pass
+	 * @param buffer the buffer
+	 * @param physicalLine the physical line
+	 * @param lineStartOffset the start offset of the physical line
+	 * @param y the y co-ordinate of the line
+	 * @param fragmentStart the start of the screen line in the physical line
+	 * @param fragmentEnd the end of the screen line in the physical line
+	 */
+	private void paintTile(Graphics2D gfx,
+			       PaintContext context,
 			       JEditBuffer buffer,
-			       Graphics2D gfx,
 			       int physicalLine,
+			       int lineStartOffset,
 			       int y,
-			       int screenToPhysicalOffset,
-			       CharSequence tempLineContent)
+			       int fragmentStart,
+			       int fragmentEnd)
 	{
-		if (!highlight.isEnabled() ||
-		    !highlight.isValid() ||
-		    (highlight.getScope() == Highlight.BUFFER_SCOPE &&
-		     highlight.getBuffer() != buffer))
+		int[] matches = lineMatches;
+		HighlightTileCache.Tile tile = context.tiles.get(matches, fragmentStart, fragmentEnd,
+			context.horizontalOffset, context.fontMetrics, context.scale, context.config);
+		HighlightSnapshot highlights = context.snapshot;
+		boolean upToDate = tile != null;
+		for (int i = 0; i < lineMatchCount; i += 3)
 		{
-			return;
+			if (matches[i + 2] <= fragmentStart || matches[i + 1] >= fragmentEnd)
+				continue;
+			Highlight highlight = highlights.get(matches[i]);
+			Color color = getTileColor(highlight, buffer);
+			if (color != null)
+				highlight.updateLastSeen();
+			if (upToDate && !tile.isPainted(i / 3, color))
+				upToDate = false;
 		}
 
-		SearchMatcher searchMatcher = highlight.getSearchMatcher();
-		try
+		if (!upToDate)
 		{
-			int i = 0;
-			SearchMatcher.Match match = null;
-			while (true)
+			tile = renderTile(gfx, context, buffer, physicalLine, lineStartOffset, fragmentStart, fragmentEnd);
+			context.tiles.put(tile);
+		}
+		if (tile.image != null)
+			gfx.drawImage(tile.image, tile.x, y, tile.width, tile.height, null);
+	} //}}}
+
+	//{{{ renderTile() method
+	/**
+	 * Render the permanent highlights of a screen line in a new tile.
+	 */
+	private HighlightTileCache.Tile renderTile(Graphics2D gfx,
+						   PaintContext context,
+						   JEditBuffer buffer,
+						   int physicalLine,
+						   int lineStartOffset,
+						   int fragmentStart,
+						   int fragmentEnd)
+	{
+		int[] matches = lineMatches;
+		Color[] colors = new Color[lineMatchCount / 3];
+		for (int i = 0; i < lineMatchCount; i += 3)
+		{
+			if (matches[i + 2] > fragmentStart && matches[i + 1] < fragmentEnd)
+				colors[i / 3] = getTileColor(context.snapshot.get(matches[i]), buffer);
+		}
+		paintMatches(context, lineMatches, lineMatchCount, buffer, physicalLine, lineStartOffset,
+			fragmentStart, fragmentEnd);
+		flushPending(context, tileBatch, physicalLine, 0);
+		BufferedImage image = null;
+		int x = 0;
+		int width = 0;
+		int height = context.lineHeight;
+		if (tileBatch.getBounds(tileBounds))
+		{
+			// one more pixel on both sides for the outlines and the antialiasing
+			x = tileBounds.x - 1;
+			width = tileBounds.width + 3;
+			double scale = context.scale;
+			image = gfx.getDeviceConfiguration().createCompatibleImage(
+				(int) Math.ceil(width * scale), (int) Math.ceil(height * scale), Transparency.TRANSLUCENT);
+			Graphics2D imageGfx = image.createGraphics();
+			try
 			{
-				match = searchMatcher.nextMatch(tempLineContent,
-								i == 0,
-								true,
-								match == null,
-								false);
-				if (match == null || match.end == match.start)
-					break;
-				int offset = match.start + i +
-					     screenToPhysicalOffset + textArea.getLineStartOffset(physicalLine);
-				Selection selectionAtOffset = textArea.getSelectionAtOffset(offset);
-				if (selectionAtOffset == null)
-				{
-					int caretOffsetInLine = textArea.getCaretPosition() - textArea.getLineStartOffset(textArea.getCaretLine());
-					int endOffset = match.end + i + screenToPhysicalOffset;
-					int startOffset = match.start + i + screenToPhysicalOffset;
-					if (highlight != HighlightManagerTableModel.currentWordHighlight ||
-					    textArea.getCaretLine() != physicalLine ||
-					     caretOffsetInLine < startOffset || caretOffsetInLine > endOffset)
-					{
-						_highlight(highlight.getColor(), gfx, physicalLine, startOffset, endOffset, y, true);
-					}
-					else
-					{
-						_highlight(highlight.getColor(), gfx, physicalLine, startOffset, endOffset, y, false);
-					}
-				}
-				highlight.updateLastSeen();
-				i += match.end;
-				int length = tempLineContent.length() - match.end;
-				if (length <= 0)
-					break;
-				tempLineContent = tempLineContent.subSequence(match.end,
-					length + match.end);
+				imageGfx.setRenderingHints(gfx.getRenderingHints());
+				imageGfx.scale(scale, scale);
+				imageGfx.translate(-x, 0);
+				PaintConfig config = context.config;
+				tileBatch.flush(imageGfx, config.getFillComposite(), config.getOutlineComposite(),
+					config.isRoundCorner());
+			}
+			finally
+			{
+				imageGfx.dispose();
+			}
+		}
+		return new HighlightTileCache.Tile(lineMatches, fragmentStart, fragmentEnd, context.horizontalOffset,
+			context.fontMetrics, context.scale, context.config, image, x, width, height, colors);
+	} //}}}
+
+	//{{{ getTileColor() method
+	/**
+	 * Returns the color a highlight is painted with in a tile, null if it is not painted.
+	 */
+	private static Color getTileColor(Highlight highlight, JEditBuffer buffer)
+	{
+		return isVisible(highlight, buffer) ? highlight.getColor() : null;
+	} //}}}
+
+	//{{{ getTileCache() method
+	/**
+	 * Returns the tile cache to use for a paint pass.
+	 *
+	 * @param config the painting options
+	 * @param snapshot the highlights of the pass
+	 * @param transform the transform of the graphics
+	 * @return the cache, or null if it is disabled or if the graphics is rotated or not uniformly scaled
+	 */
+	private HighlightTileCache getTileCache(PaintConfig config, HighlightSnapshot snapshot, AffineTransform transform)
+	{
+		if (!config.isTileCache())
+		{
+			if (tileCache != null)
+			{
+				tileCache.clear();
+				tileCache = null;
 			}
+			return null;
+		}
+		if (tileCache == null)
+			tileCache = new HighlightTileCache(config.getTileCacheSize());
+		else
+			tileCache.setMaxSize(config.getTileCacheSize());
+		if (snapshot.getVersion() != tileVersion)
+		{
+			// the tiles of the previous version can no longer be found
+			tileCache.clear();
+			tileVersion = snapshot.getVersion();
+		}
+		Color background = config.isOpaque() ? painter.getBackground() : null;
+		if (!Objects.equals(background, tileBackground))
+		{
+			tileCache.clear();
+			tileBackground = background;
+		}
+		if ((transform.getType() & ~(AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE)) != 0)
+			return null;
+		return tileCache;
+	} //}}}
+
+	//{{{ isVisible() method
+	static boolean isVisible(Highlight highlight, JEditBuffer buffer)
+	{
+		return highlight.isEnabled() &&
+		       highlight.isValid() &&
+		       !highlight.isQuarantined() &&
+		       (highlight.getScope() != Highlight.BUFFER_SCOPE ||
+			highlight.getBuffer() == buffer);
+	} //}}}
+
+	//{{{ addMatches() method
+	/**
+	 * Find the matches of a highlight in a text.
+	 * The regexp has a time budget for each line, and the same budget for all
+	 * the lines of the paint pass: a regexp that is a little too slow on
+	 * every line is put in quarantine too.
+	 *
+	 * @param context the context of the paint pass
+	 * @param slot the slot of the highlight in the match times of the pass
+	 * @param highlight the highlight
+	 * @param folded true if the text is a {@link FoldedText}, the highlight must be an ignore case literal
+	 * @param index the index of the highlight stored with the matches
+	 * @param text the text
+	 * @param shift the offset of the text in the physical line
+	 * @param matches the array receiving the (index, start, end) triples
+	 */
+	private void addMatches(PaintContext context,
+				int slot,
+				Highlight highlight,
+				boolean folded,
+				int index,
+				CharSequence text,
+				int shift,
+				IntegerArray matches)
+	{
+		long start = System.nanoTime();
+		try
+		{
+			collector.init(null, shift, matches);
+			RegionMatcher matcher = folded ? highlight.getFoldedRegionMatcher() : highlight.getRegionMatcher();
+			matcher.findAll(text, 0, text.length(), index, collector);
+			long passTime = context.addMatchTime(slot, System.nanoTime() - start);
+			long timeBudget = highlight.getEffectiveTimeBudget() * 1000000L;
+			if (timeBudget > 0L && passTime > timeBudget)
+				quarantine(highlight, passTime);
 		}
 		catch (PatternSyntaxException e)
 		{
@@ -239,75 +702,130 @@ public class Highlighter extends TextAreaExtension implements HighlightChangeLis
 		{
 			highlight.setValid(false);	
 		}
+		catch (MatchTimeoutException e)
+		{
+			// the regexp is too slow, stop evaluating it until it is modified
+			quarantine(highlight, e.getElapsed());
+		}
 	} //}}}
 
-	//{{{ _highlight() method
-	private void _highlight(Color highlightColor,
-				Graphics2D gfx,
+	//{{{ quarantine() method
+	/**
+	 * Stop evaluating a highlight until it is modified.
+	 *
+	 * @param highlight the highlight
+	 * @param cost the time it spent in ns
+	 */
+	private static void quarantine(Highlight highlight, long cost)
+	{
+		highlight.quarantine(cost);
+		EventQueue.invokeLater(() -> HighlightManagerTableModel.getInstance().highlightQuarantined(highlight));
+	} //}}}
+
+	//{{{ paintMatch() method
+	/**
+	 * Paint a match unless it is in a selection.
+	 *
+	 * @param context the context of the paint pass
+	 * @param highlight the highlight that matched
+	 * @param physicalLine the physical line
+	 * @param lineStartOffset the start offset of the physical line
+	 * @param startOffset the start offset of the match in the physical line
+	 * @param endOffset the end offset of the match in the physical line
+	 */
+	private void paintMatch(PaintContext context,
+				Highlight highlight,
 				int physicalLine,
+				int lineStartOffset,
 				int startOffset,
-				int endOffset,
-				int y,
-				boolean filled)
+				int endOffset)
 	{
-		Point p = textArea.offsetToXY(physicalLine, startOffset, point);
-		if (p == null)
+		if (!selection.isSelected(startOffset + lineStartOffset))
 		{
-			// The start offset was not visible
-			return;
-		}
-		int startX = p.x;
-
-		p = textArea.offsetToXY(physicalLine, endOffset, point);
-		if (p == null)
-		{
-			// The end offset was not visible
-			return;
-		}
-		int endX = p.x;
-		Color oldColor = gfx.getColor();
-		Composite oldComposite = gfx.getComposite();
-		gfx.setColor(highlightColor);
-		gfx.setComposite(blend);
-		if (filled)
-		{
-			int lineHeight = painter.getLineHeight();
-			int charHeight = Math.min(lineHeight, painter.getFontHeight());
-			int charOffset = Math.max(lineHeight - charHeight, 0);
-			if (roundcorner)
+			int caretOffsetInLine = selection.getCaretOffsetInLine();
+			if (highlight != context.wordAtCaretHighlight ||
+			    selection.getCaretLine() != physicalLine ||
+			     caretOffsetInLine < startOffset || caretOffsetInLine > endOffset)
 			{
-				gfx.fillRoundRect(startX, y + charOffset, endX - startX, charHeight - 1, 5, 5);
+				_highlight(highlight.getColor(), startOffset, endOffset, true);
 			}
 			else
 			{
-				gfx.fillRect(startX, y + charOffset, endX - startX, charHeight - 1);
+				_highlight(highlight.getColor(), startOffset, endOffset, false);
 			}
 		}
+		highlight.updateLastSeen();
+	} //}}}
 
-		if (square)
-		{
-			gfx.setColor(squareColor);
-			drawRect(gfx, y, startX, endX);
-		}
-		else if (!filled)
-		{
-			drawRect(gfx, y, startX, endX);
-		}
+	//{{{ _highlight() method
+	/**
+	 * Add the rectangle of a match to the pending rectangles of the screen line.
+	 */
+	private void _highlight(Color highlightColor,
+				int startOffset,
+				int endOffset,
+				boolean filled)
+	{
+		pending.add(highlightColor, startOffset, endOffset, filled);
+	} //}}}
 
-		gfx.setColor(oldColor);
-		gfx.setComposite(oldComposite);
+	//{{{ flushPending() method
+	/**
+	 * Add the pending rectangles of a screen line to a batch.
+	 * The x co-ordinates of all their offsets are computed with one walk
+	 * of the line instead of two offsetToXY calls per match, and the
+	 * overlapping filled rectangles are flattened so each pixel is painted once.
+	 *
+	 * @param context the context of the paint pass
+	 * @param target the batch receiving the rectangles
+	 * @param physicalLine the physical line
+	 * @param y the y co-ordinate of the line
+	 */
+	private void flushPending(PaintContext context, RectangleBatch target, int physicalLine, int y)
+	{
+		if (pending.isEmpty())
+			return;
+		PaintConfig config = context.config;
+		OpaqueColors opaque = null;
+		if (config.isOpaque())
+			opaque = physicalLine == selection.getCaretLine() ? lineHighlightColors : backgroundColors;
+		pending.flush(view, physicalLine, target, y + context.charOffset, context.charHeight - 1,
+			config.isOverlapBlend(), config.getComposite().getAlpha(),
+			config.isSquare() ? config.getSquareColor() : null, opaque);
 	} //}}}
 
-	//{{{ drawRect() method
-	private void drawRect(Graphics2D gfx, int y, int startX, int endX)
+	//{{{ Collector class
+	/**
+	 * Collects the matches in an IntegerArray.
+	 */
+	private static class Collector implements MatchHandler
 	{
-		int lineHeight = painter.getLineHeight();
-		int charHeight = Math.min(lineHeight, painter.getFontHeight());
-		int charOffset = Math.max(lineHeight - charHeight, 0);
-		if (roundcorner)
-			gfx.drawRoundRect(startX, y + charOffset, endX - startX, charHeight - 1,5,5);
-		else
-			gfx.drawRect(startX, y + charOffset, endX - startX, charHeight - 1);
+		private HighlightSnapshot highlights;
+		private int shift;
+		private IntegerArray matches;
+
+		/**
+		 * Prepare the collector.
+		 *
+		 * @param highlights the highlights if the matches come from their automaton, null if
+		 * the matches already give the index of the highlight
+		 * @param shift the offset of the text in the physical line
+		 * @param matches the array receiving the matches
+		 */
+		void init(HighlightSnapshot highlights, int shift, IntegerArray matches)
+		{
+			this.highlights = highlights;
+			this.shift = shift;
+			this.matches = matches;
+		}
+
+		@Override
+		public void match(int index, int start, int end)
+		{
+			matches.add(highlights == null ? index : highlights.getLiteralIndex(index));
+			matches.add(start + shift);
+			matches.add(end + shift);
+		}
 	} //}}}
 
 	//{{{ highlightUpdated() method
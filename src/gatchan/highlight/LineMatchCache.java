@@ -0,0 +1,190 @@
+/*
+ * LineMatchCache.java - The cache of the highlight matches of a buffer
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import org.gjt.sp.jedit.buffer.BufferAdapter;
+import org.gjt.sp.jedit.buffer.JEditBuffer;
+
+import java.util.Arrays;
+//}}}
+
+/**
+ * The matches of the highlights for each physical line of a buffer.
+ * For each line it keeps an array of (highlight index, start, end) triples,
+ * the offsets being relative to the start of the line and the highlight index
+ * being an index of {@link HighlightSnapshot#get(int)}.
+ * <p>
+ * The buffer edits invalidate only the modified line and shift the
+ * following ones, a change of the highlights version invalidates everything.
+ * The cache is only used from the EDT.
+ *
+ * @author Matthieu Casanova
+ */
+final class LineMatchCache extends BufferAdapter
+{
+	private static final String BUFFER_PROPERTY = "gatchan.highlight.lineMatchCache";
+
+	/** A line that has no match. */
+	static final int[] NO_MATCH = new int[0];
+
+	/** The highlights version of the cached matches. */
+	private int version = -1;
+
+	/** The cached matches for each line, null if the line is not known. */
+	private int[][] lines;
+
+	//{{{ LineMatchCache constructor
+	private LineMatchCache(JEditBuffer buffer)
+	{
+		lines = new int[Math.max(buffer.getLineCount(), 16)][];
+	} //}}}
+
+	//{{{ getCache() method
+	/**
+	 * Returns the cache of a buffer, creating it if needed.
+	 *
+	 * @param buffer the buffer
+	 * @return the cache
+	 */
+	static LineMatchCache getCache(JEditBuffer buffer)
+	{
+		LineMatchCache cache = (LineMatchCache) buffer.getProperty(BUFFER_PROPERTY);
+		if (cache == null)
+		{
+			cache = new LineMatchCache(buffer);
+			buffer.addBufferListener(cache);
+			buffer.setProperty(BUFFER_PROPERTY, cache);
+		}
+		return cache;
+	} //}}}
+
+	//{{{ dispose() method
+	/**
+	 * Remove the cache of a buffer if there is one.
+	 *
+	 * @param buffer the buffer
+	 */
+	static void dispose(JEditBuffer buffer)
+	{
+		LineMatchCache cache = (LineMatchCache) buffer.getProperty(BUFFER_PROPERTY);
+		if (cache != null)
+		{
+			buffer.removeBufferListener(cache);
+			buffer.unsetProperty(BUFFER_PROPERTY);
+		}
+	} //}}}
+
+	//{{{ getMatches() method
+	/**
+	 * Returns the cached matches of a line.
+	 *
+	 * @param line    the physical line
+	 * @param version the current highlights version
+	 * @return the matches or null if they are not known
+	 */
+	int[] getMatches(int line, int version)
+	{
+		if (this.version != version)
+		{
+			clear();
+			this.version = version;
+			return null;
+		}
+		return line < lines.length ? lines[line] : null;
+	} //}}}
+
+	//{{{ putMatches() method
+	/**
+	 * Store the matches of a line.
+	 *
+	 * @param line    the physical line
+	 * @param version the highlights version used to compute the matches
+	 * @param matches the matches
+	 */
+	void putMatches(int line, int version, int[] matches)
+	{
+		if (this.version != version)
+		{
+			clear();
+			this.version = version;
+		}
+		ensureCapacity(line + 1);
+		lines[line] = matches;
+	} //}}}
+
+	//{{{ clear() method
+	void clear()
+	{
+		Arrays.fill(lines, null);
+	} //}}}
+
+	//{{{ ensureCapacity() method
+	private void ensureCapacity(int size)
+	{
+		if (size > lines.length)
+			lines = Arrays.copyOf(lines, Math.max(size, lines.length + (lines.length >> 1)));
+	} //}}}
+
+	//{{{ BufferListener methods
+	//{{{ contentInserted() method
+	@Override
+	public void contentInserted(JEditBuffer buffer, int startLine, int offset, int numLines, int length)
+	{
+		if (startLine >= lines.length)
+			return;
+		lines[startLine] = null;
+		if (numLines != 0)
+		{
+			int lineCount = buffer.getLineCount();
+			ensureCapacity(lineCount);
+			int moved = lineCount - numLines - startLine - 1;
+			if (moved > 0)
+				System.arraycopy(lines, startLine + 1, lines, startLine + 1 + numLines, moved);
+			Arrays.fill(lines, startLine + 1, Math.min(startLine + 1 + numLines, lines.length), null);
+		}
+	} //}}}
+
+	//{{{ contentRemoved() method
+	@Override
+	public void contentRemoved(JEditBuffer buffer, int startLine, int offset, int numLines, int length)
+	{
+		if (startLine >= lines.length)
+			return;
+		lines[startLine] = null;
+		if (numLines != 0)
+		{
+			int from = startLine + 1 + numLines;
+			if (from < lines.length)
+				System.arraycopy(lines, from, lines, startLine + 1, lines.length - from);
+			Arrays.fill(lines, Math.max(lines.length - numLines, startLine + 1), lines.length, null);
+		}
+	} //}}}
+
+	//{{{ bufferLoaded() method
+	@Override
+	public void bufferLoaded(JEditBuffer buffer)
+	{
+		lines = new int[Math.max(buffer.getLineCount(), 16)][];
+	} //}}}
+	//}}}
+}
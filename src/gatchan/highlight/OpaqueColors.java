@@ -0,0 +1,95 @@
+/*
+ * OpaqueColors.java - The highlight colors pre-blended with a background
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import java.awt.*;
+import java.util.HashMap;
+import java.util.Map;
+//}}}
+
+/**
+ * The opaque colors giving the same pixels as the highlight colors painted
+ * with the composite alpha on a background color. When the highlights are
+ * painted below the text only the background is under them, so they can be
+ * filled with these colors and {@link AlphaComposite#Src}, which is much
+ * cheaper than blending on a software pipeline.
+ * <p>
+ * Each color is blended once and kept until the background or the alpha changes.
+ *
+ * @author Matthieu Casanova
+ */
+final class OpaqueColors
+{
+	/** The number of colors kept, the mixed colors of the overlapping highlights are many. */
+	private static final int MAX_COLORS = 256;
+
+	private final Map<Color, Color> colors = new HashMap<>();
+	private Color background;
+	private float alpha;
+
+	//{{{ setBackground() method
+	/**
+	 * Set the background the colors are blended with.
+	 *
+	 * @param background the background color
+	 * @param alpha      the alpha of the highlights
+	 */
+	void setBackground(Color background, float alpha)
+	{
+		if (!background.equals(this.background) || alpha != this.alpha)
+		{
+			colors.clear();
+			this.background = background;
+			this.alpha = alpha;
+		}
+	} //}}}
+
+	//{{{ get() method
+	/**
+	 * Returns the opaque color of a highlight color.
+	 *
+	 * @param color the highlight color
+	 * @return the color blended with the background
+	 */
+	Color get(Color color)
+	{
+		Color opaque = colors.get(color);
+		if (opaque == null)
+		{
+			float a = alpha * color.getAlpha() / 255.0f;
+			opaque = new Color(blend(color.getRed(), background.getRed(), a),
+					   blend(color.getGreen(), background.getGreen(), a),
+					   blend(color.getBlue(), background.getBlue(), a));
+			if (colors.size() >= MAX_COLORS)
+				colors.clear();
+			colors.put(color, opaque);
+		}
+		return opaque;
+	} //}}}
+
+	//{{{ blend() method
+	private static int blend(int component, int background, float alpha)
+	{
+		return Math.round(component * alpha + background * (1.0f - alpha));
+	} //}}}
+}
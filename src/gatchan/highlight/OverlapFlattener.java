@@ -0,0 +1,338 @@
+/*
+ * OverlapFlattener.java - Turns the overlapping filled rectangles of a line into segments
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import java.awt.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+//}}}
+
+/**
+ * Collects the filled spans of a screen line in their paint order, then sweeps
+ * them from left to right so the overlapping ones become non overlapping
+ * segments with one resolved color. Every pixel is then blended once with the
+ * text area instead of once per highlight covering it.
+ * <p>
+ * The color of a segment covered by several spans is either the one of the
+ * last painted span, or the mix of their colors weighted like if they were
+ * painted on each other with the composite alpha, but painted once.
+ * The spans that do not overlap another one are added to the batch unchanged.
+ * The mixed colors are kept by stack of colors until the alpha changes, the
+ * same highlights overlap each other on many lines.
+ *
+ * @author Matthieu Casanova
+ */
+final class OverlapFlattener
+{
+	/** The number of mixed colors kept. */
+	private static final int MAX_BLENDED_COLORS = 256;
+
+	private int[] starts = new int[16];
+	private int[] ends = new int[16];
+	private Color[] colors = new Color[16];
+	private int count;
+
+	/** The indexes of the spans sorted by start. */
+	private int[] order = new int[16];
+	/** The sorted starts and ends of the spans of a cluster. */
+	private int[] bounds = new int[32];
+
+	/** The colors covering the part being resolved, from the top one. */
+	private final ColorStack covering = new ColorStack();
+	/** The mixed colors of the stacks of colors, painted with {@link #blendedAlpha}. */
+	private final Map<ColorStack, Color> blendedColors = new HashMap<>();
+	private float blendedAlpha;
+
+	//{{{ add() method
+	/**
+	 * Add a span, the spans must be added in their paint order.
+	 *
+	 * @param color the color
+	 * @param start the x co-ordinate of the start
+	 * @param end   the x co-ordinate of the end
+	 */
+	void add(Color color, int start, int end)
+	{
+		if (end <= start)
+			return;
+		if (count == starts.length)
+		{
+			int length = count << 1;
+			starts = Arrays.copyOf(starts, length);
+			ends = Arrays.copyOf(ends, length);
+			colors = Arrays.copyOf(colors, length);
+			order = new int[length];
+			bounds = new int[length << 1];
+		}
+		starts[count] = start;
+		ends[count] = end;
+		colors[count] = color;
+		count++;
+	} //}}}
+
+	//{{{ flush() method
+	/**
+	 * Add the flattened spans to a batch and forget them.
+	 *
+	 * @param target the batch
+	 * @param y      the y co-ordinate of the rectangles
+	 * @param height the height of the rectangles
+	 * @param blend  true if the colors of the overlapping spans are mixed, false if the last one wins
+	 * @param alpha  the alpha of the highlights
+	 * @param opaque the colors pre-blended with the background of the line, null if the batch is painted with alpha
+	 */
+	void flush(RectangleBatch target, int y, int height, boolean blend, float alpha, OpaqueColors opaque)
+	{
+		// insertion sort by start, the lines have few spans and they are mostly sorted
+		for (int i = 0; i < count; i++)
+		{
+			int j = i;
+			while (j > 0 && starts[order[j - 1]] > starts[i])
+			{
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = i;
+		}
+
+		int i = 0;
+		while (i < count)
+		{
+			// the cluster of the spans overlapping each other
+			int first = i;
+			int clusterEnd = ends[order[i]];
+			i++;
+			while (i < count && starts[order[i]] < clusterEnd)
+			{
+				clusterEnd = Math.max(clusterEnd, ends[order[i]]);
+				i++;
+			}
+			if (i - first == 1)
+			{
+				int span = order[first];
+				target.fill(paintColor(colors[span], opaque), starts[span], y, ends[span] - starts[span], height);
+			}
+			else
+			{
+				flattenCluster(target, first, i, y, height, blend, alpha, opaque);
+			}
+		}
+		Arrays.fill(colors, 0, count, null);
+		count = 0;
+	} //}}}
+
+	//{{{ flattenCluster() method
+	/**
+	 * Add the segments of a cluster of overlapping spans, the consecutive
+	 * segments with the same color are merged. Only the ends of the cluster
+	 * have round corners.
+	 *
+	 * @param first the index in {@link #order} of the first span of the cluster
+	 * @param last  the index in {@link #order} after the last span of the cluster
+	 */
+	private void flattenCluster(RectangleBatch target,
+				    int first,
+				    int last,
+				    int y,
+				    int height,
+				    boolean blend,
+				    float alpha,
+				    OpaqueColors opaque)
+	{
+		int n = 0;
+		for (int i = first; i < last; i++)
+		{
+			bounds[n++] = starts[order[i]];
+			bounds[n++] = ends[order[i]];
+		}
+		Arrays.sort(bounds, 0, n);
+
+		int clusterStart = bounds[0];
+		int segmentStart = clusterStart;
+		Color segmentColor = null;
+		for (int b = 0; b + 1 < n; b++)
+		{
+			int left = bounds[b];
+			int right = bounds[b + 1];
+			if (left == right)
+				continue;
+			// the spans chain each other so every part of the cluster is covered
+			Color color = resolve(left, right, blend, alpha);
+			if (segmentColor == null)
+			{
+				segmentStart = left;
+			}
+			else if (!segmentColor.equals(color))
+			{
+				target.fill(paintColor(segmentColor, opaque), segmentStart, y, left - segmentStart, height,
+					segmentStart == clusterStart ? RectangleBatch.ROUND_LEFT : 0);
+				segmentStart = left;
+			}
+			segmentColor = color;
+		}
+		target.fill(paintColor(segmentColor, opaque), segmentStart, y, bounds[n - 1] - segmentStart, height,
+			segmentStart == clusterStart ? RectangleBatch.ROUND_BOTH : RectangleBatch.ROUND_RIGHT);
+	} //}}}
+
+	//{{{ paintColor() method
+	private static Color paintColor(Color color, OpaqueColors opaque)
+	{
+		return opaque == null ? color : opaque.get(color);
+	} //}}}
+
+	//{{{ resolve() method
+	/**
+	 * Returns the color of a part covered by the same spans.
+	 */
+	private Color resolve(int left, int right, boolean blend, float alpha)
+	{
+		covering.clear();
+		for (int span = count - 1; span >= 0; span--)
+		{
+			if (starts[span] > left || ends[span] < right)
+				continue;
+			if (!blend)
+				return colors[span];
+			covering.push(colors[span]);
+		}
+		if (covering.size == 1)
+			return covering.colors[0];
+		if (alpha != blendedAlpha)
+		{
+			blendedColors.clear();
+			blendedAlpha = alpha;
+		}
+		Color color = blendedColors.get(covering);
+		if (color == null)
+		{
+			color = blend(covering, alpha);
+			if (blendedColors.size() >= MAX_BLENDED_COLORS)
+				blendedColors.clear();
+			blendedColors.put(covering.copy(), color);
+		}
+		return color;
+	} //}}}
+
+	//{{{ blend() method
+	/**
+	 * Returns the mix of a stack of colors painted on each other with an alpha.
+	 *
+	 * @param stack the colors, from the top one
+	 * @param alpha the alpha of the highlights
+	 * @return the mixed color
+	 */
+	private static Color blend(ColorStack stack, float alpha)
+	{
+		float red = 0.0f;
+		float green = 0.0f;
+		float blue = 0.0f;
+		int maxAlpha = 0;
+		// the part of the area left uncovered by the spans painted after
+		float uncovered = 1.0f;
+		for (int i = 0; i < stack.size; i++)
+		{
+			Color color = stack.colors[i];
+			float layerAlpha = alpha * color.getAlpha() / 255.0f;
+			float weight = uncovered * layerAlpha;
+			red += weight * color.getRed();
+			green += weight * color.getGreen();
+			blue += weight * color.getBlue();
+			maxAlpha = Math.max(maxAlpha, color.getAlpha());
+			uncovered *= 1.0f - layerAlpha;
+		}
+		float covered = 1.0f - uncovered;
+		if (covered <= 0.0f)
+			return stack.colors[0];
+		return new Color(Math.min(255, Math.round(red / covered)),
+				 Math.min(255, Math.round(green / covered)),
+				 Math.min(255, Math.round(blue / covered)),
+				 maxAlpha);
+	} //}}}
+
+	//{{{ ColorStack class
+	/**
+	 * The colors of the spans covering a part, from the top one. The stack of
+	 * the flattener is reused to look up the mixed colors, a copy is kept as key.
+	 */
+	private static final class ColorStack
+	{
+		private Color[] colors;
+		private int size;
+		private int hash;
+
+		private ColorStack()
+		{
+			colors = new Color[8];
+		}
+
+		private ColorStack(ColorStack stack)
+		{
+			colors = Arrays.copyOf(stack.colors, stack.size);
+			size = stack.size;
+			hash = stack.hash;
+		}
+
+		private void clear()
+		{
+			Arrays.fill(colors, 0, size, null);
+			size = 0;
+			hash = 1;
+		}
+
+		private void push(Color color)
+		{
+			if (size == colors.length)
+				colors = Arrays.copyOf(colors, size << 1);
+			colors[size++] = color;
+			hash = 31 * hash + color.hashCode();
+		}
+
+		private ColorStack copy()
+		{
+			return new ColorStack(this);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (!(obj instanceof ColorStack))
+				return false;
+			ColorStack stack = (ColorStack) obj;
+			if (stack.size != size || stack.hash != hash)
+				return false;
+			for (int i = 0; i < size; i++)
+			{
+				if (!colors[i].equals(stack.colors[i]))
+					return false;
+			}
+			return true;
+		}
+	} //}}}
+}
@@ -0,0 +1,742 @@
+/*
+ * OverviewLines.java - The lines of a buffer matched by the overview highlights
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import gatchan.highlight.editor.EditorView;
+import gatchan.highlight.matcher.MatchTimeoutException;
+import gatchan.highlight.matcher.RegionMatcher;
+import org.gjt.sp.util.IntegerArray;
+import org.gjt.sp.util.Log;
+
+import javax.swing.text.Segment;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+import java.util.regex.PatternSyntaxException;
+//}}}
+
+/**
+ * The lines of a buffer containing a match of each highlight shown by the
+ * overview, one bit per line and per highlight.
+ * The buffer is read through an {@link EditorView} and its edits are
+ * forwarded by the owner of the lines, the matchers of the highlights are
+ * given by a {@link MatcherSource}.
+ * <p>
+ * A highlight is scanned on the whole buffer only when it is new or when its
+ * matcher changed, the lines of the others are kept. The scan runs in the
+ * background on a copy of the text, so the EDT never waits for it.
+ * The large buffers are split in blocks of lines scanned in parallel in the
+ * common {@link ForkJoinPool}, each block collecting its matched lines in its
+ * own arrays, the arrays are put together in order at the end.
+ * Each scan has a generation, starting a scan or clearing the lines
+ * increments it, the older scans stop as soon as they see it and their
+ * result is dropped.
+ * A highlight exceeding its time budget on a line is not matched anymore by
+ * the scan and is put in quarantine, like the painter does.
+ * <p>
+ * The buffer edits shift the bits of the following lines and mark the
+ * modified lines, they are scanned again on the EDT when the transaction is
+ * complete. The edits made while a scan is running are recorded and applied
+ * to its result when it is published.
+ * Except the scan itself it is only used from the EDT.
+ *
+ * @param <H> the type of the highlights
+ * @author Matthieu Casanova
+ */
+final class OverviewLines<H>
+{
+	/** The number of lines scanned between two checks of the generation. */
+	private static final int CANCEL_CHECK_LINES = 1024;
+	/** The buffers with less lines are scanned by one thread. */
+	private static final int PARALLEL_THRESHOLD = 50000;
+	/** The number of blocks per thread of the pool, so the threads finishing first take more. */
+	private static final int BLOCKS_PER_THREAD = 4;
+
+	private static final int INSERT = 0;
+	private static final int REMOVE = 1;
+
+	/** The tracked highlights in their order of priority. */
+	private List<Entry<H>> entries = new ArrayList<>();
+	/** The lines modified since the last scan. */
+	private final BitSet dirty = new BitSet();
+	/** The text of the line being scanned, reused for every line. */
+	private final Segment segment = new Segment();
+	private final EditorView view;
+	private final MatcherSource<H> source;
+	/** Called when the lines changed after a buffer edit. */
+	private final Runnable changeListener;
+	/** Called when a scan of the whole buffer is published. */
+	private final Runnable scanListener;
+	/** Runs the scans in the background. */
+	private final Executor background;
+	/** Runs the results of the scans on the EDT. */
+	private final Executor edt;
+
+	/** The generation of the current scan, read by the scanning threads. */
+	private final AtomicInteger generation = new AtomicInteger();
+	/** True while the current scan is running. */
+	private boolean scanning;
+	/** The (type, start line, number of lines) of the edits made while scanning. */
+	private final IntegerArray pendingEdits = new IntegerArray(30);
+
+	/**
+	 * The copy of the buffer text given to the running scan, the scans
+	 * started before it is published share it while the buffer is not
+	 * modified. Null if there is no scan or if it must be copied again.
+	 */
+	private String text;
+
+	//{{{ OverviewLines constructor
+	/**
+	 * Create the lines.
+	 *
+	 * @param view           the view of the buffer
+	 * @param source         gives the matchers of the highlights
+	 * @param changeListener called when the lines changed after a buffer edit
+	 * @param scanListener   called when a scan of the whole buffer is published
+	 * @param background     runs the scans in the background
+	 * @param edt            runs the results of the scans on the EDT
+	 */
+	OverviewLines(EditorView view,
+		      MatcherSource<H> source,
+		      Runnable changeListener,
+		      Runnable scanListener,
+		      Executor background,
+		      Executor edt)
+	{
+		this.view = view;
+		this.source = source;
+		this.changeListener = changeListener;
+		this.scanListener = scanListener;
+		this.background = background;
+		this.edt = edt;
+	} //}}}
+
+	//{{{ update() method
+	/**
+	 * Track the lines of the buffer matched by highlights, starting a scan of
+	 * the whole buffer for the highlights that are new or whose matcher changed.
+	 * The highlights whose regexp is invalid are ignored.
+	 * The lines must be cleared first if the view shows another buffer.
+	 *
+	 * @param highlights the highlights in their order of priority
+	 * @return true if the highlights changed
+	 */
+	boolean update(List<H> highlights)
+	{
+		List<Entry<H>> newEntries = new ArrayList<>(highlights.size());
+		for (H highlight : highlights)
+		{
+			RegionMatcher matcher;
+			try
+			{
+				matcher = source.getRegionMatcher(highlight);
+			}
+			catch (PatternSyntaxException e)
+			{
+				// it cannot be shown
+				continue;
+			}
+			// the matcher is replaced when the highlight is modified
+			Entry<H> entry = find(highlight, matcher);
+			newEntries.add(entry == null ? new Entry<>(highlight, matcher) : entry);
+		}
+
+		if (newEntries.equals(entries))
+			return false;
+		entries = newEntries;
+		startScan();
+		return true;
+	} //}}}
+
+	//{{{ clear() method
+	/**
+	 * Stop tracking the lines until the next {@link #update}, cancelling the scan.
+	 * It must be called when the view shows another buffer.
+	 */
+	void clear()
+	{
+		generation.incrementAndGet();
+		scanning = false;
+		text = null;
+		pendingEdits.clear();
+		entries = new ArrayList<>();
+		dirty.clear();
+	} //}}}
+
+	//{{{ getHighlightCount() method
+	/**
+	 * Returns the number of tracked highlights.
+	 *
+	 * @return the number of highlights
+	 */
+	int getHighlightCount()
+	{
+		return entries.size();
+	} //}}}
+
+	//{{{ getHighlight() method
+	H getHighlight(int index)
+	{
+		return entries.get(index).highlight;
+	} //}}}
+
+	//{{{ getLines() method
+	/**
+	 * Returns the lines matched by a highlight, it must not be modified.
+	 * It is empty while the first scan of the highlight is running.
+	 *
+	 * @param index the index of the highlight
+	 * @return a bit for each matched line
+	 */
+	BitSet getLines(int index)
+	{
+		return entries.get(index).lines;
+	} //}}}
+
+	//{{{ find() method
+	private Entry<H> find(H highlight, RegionMatcher matcher)
+	{
+		for (Entry<H> entry : entries)
+		{
+			if (entry.highlight == highlight && entry.matcher == matcher)
+				return entry;
+		}
+		return null;
+	} //}}}
+
+	//{{{ startScan() method
+	/**
+	 * Cancel the running scan and scan a copy of the buffer text in the
+	 * background for the highlights whose lines are not known.
+	 * A scan started while the previous one is running reuses its copy if the
+	 * buffer was not modified since.
+	 */
+	private void startScan()
+	{
+		int scanGeneration = generation.incrementAndGet();
+		pendingEdits.clear();
+		List<Entry<H>> scanned = new ArrayList<>();
+		List<H> highlights = new ArrayList<>();
+		List<Supplier<RegionMatcher>> matchers = new ArrayList<>();
+		for (Entry<H> entry : entries)
+		{
+			if (entry.ready)
+				continue;
+			try
+			{
+				matchers.add(source.getRegionMatcherFactory(entry.highlight));
+				highlights.add(entry.highlight);
+				scanned.add(entry);
+			}
+			catch (PatternSyntaxException e)
+			{
+				// getRegionMatcher() would have failed first
+			}
+		}
+		scanning = !scanned.isEmpty();
+		if (!scanning)
+		{
+			text = null;
+			return;
+		}
+		// the lines are always separated by \n
+		if (text == null)
+			text = view.getText(0, view.getLength());
+		String snapshot = text;
+		int lineCount = view.getLineCount();
+		background.execute(() ->
+		{
+			BitSet[] result;
+			try
+			{
+				result = scan(snapshot, lineCount, matchers, highlights, scanGeneration);
+			}
+			catch (RuntimeException | StackOverflowError e)
+			{
+				Log.log(Log.ERROR, OverviewLines.class, e);
+				edt.execute(() -> scanFailed(scanGeneration));
+				return;
+			}
+			if (result != null)
+				edt.execute(() -> publish(scanGeneration, scanned, result));
+		});
+	} //}}}
+
+	//{{{ scanFailed() method
+	/**
+	 * Forget a scan that failed if it is still the current one, its highlights
+	 * stay without lines until the next scan.
+	 */
+	private void scanFailed(int scanGeneration)
+	{
+		if (scanGeneration != generation.get())
+			return;
+		scanning = false;
+		text = null;
+		pendingEdits.clear();
+	} //}}}
+
+	//{{{ scan() method
+	/**
+	 * Find the lines of a text matched by highlights, it runs in the background.
+	 *
+	 * @param text           the text
+	 * @param lineCount      the number of lines of the text
+	 * @param matchers       the factories of the matchers of the highlights
+	 * @param highlights     the highlights, put in quarantine if they are too slow
+	 * @param scanGeneration the generation of the scan
+	 * @return the matched lines of each highlight, or null if the scan was cancelled
+	 */
+	private BitSet[] scan(String text,
+			      int lineCount,
+			      List<Supplier<RegionMatcher>> matchers,
+			      List<H> highlights,
+			      int scanGeneration)
+	{
+		// the highlights that exceeded their time budget, shared by the blocks
+		AtomicIntegerArray timedOut = new AtomicIntegerArray(matchers.size());
+		int parallelism = ForkJoinPool.getCommonPoolParallelism();
+		int blockCount = lineCount < PARALLEL_THRESHOLD || parallelism < 2 ? 1 : parallelism * BLOCKS_PER_THREAD;
+		int length = text.length();
+		int blockLength = length / blockCount + 1;
+		List<ScanBlock> blocks = new ArrayList<>(blockCount);
+		int start = 0;
+		while (start <= length)
+		{
+			// a block ends at the end of a line
+			int end = start + blockLength >= length ? -1 : text.indexOf('\n', start + blockLength);
+			if (end == -1)
+				end = length;
+			blocks.add(new ScanBlock(text, start, end, matchers, highlights, timedOut, scanGeneration));
+			start = end + 1;
+		}
+
+		if (blocks.size() == 1)
+			blocks.get(0).invoke();
+		else
+			ForkJoinTask.invokeAll(blocks);
+
+		BitSet[] result = new BitSet[matchers.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = new BitSet(lineCount);
+		int firstLine = 0;
+		for (ScanBlock block : blocks)
+		{
+			IntegerArray[] matched = block.join();
+			if (matched == null)
+				return null;
+			for (int i = 0; i < result.length; i++)
+			{
+				int[] blockLines = matched[i].getArray();
+				for (int j = 0; j < matched[i].getSize(); j++)
+					result[i].set(firstLine + blockLines[j]);
+			}
+			firstLine += block.lineCount;
+		}
+		for (int i = 0; i < result.length; i++)
+		{
+			// the lines of a quarantined highlight are incomplete
+			if (timedOut.get(i) != 0)
+				result[i].clear();
+		}
+		return result;
+	} //}}}
+
+	//{{{ publish() method
+	/**
+	 * Publish the result of a scan if it is still the current one, applying
+	 * the edits made since the copy of the text.
+	 */
+	private void publish(int scanGeneration, List<Entry<H>> scanned, BitSet[] result)
+	{
+		if (scanGeneration != generation.get())
+			return;
+		scanning = false;
+		// no scan needs the copy anymore, it is as large as the buffer
+		text = null;
+		int[] edits = pendingEdits.getArray();
+		for (int i = 0; i < scanned.size(); i++)
+		{
+			Entry<H> entry = scanned.get(i);
+			entry.lines.clear();
+			entry.lines.or(result[i]);
+			for (int j = 0; j < pendingEdits.getSize(); j += 3)
+			{
+				if (edits[j] == INSERT)
+					insertLines(entry.lines, edits[j + 1], edits[j + 2]);
+				else
+					removeLines(entry.lines, edits[j + 1], edits[j + 2]);
+			}
+			entry.ready = true;
+		}
+		// the edits were applied to the lines of the other highlights as they came
+		BitSet edited = new BitSet();
+		for (int j = 0; j < pendingEdits.getSize(); j += 3)
+		{
+			if (edits[j] == INSERT)
+				markInserted(edited, edits[j + 1], edits[j + 2]);
+			else
+				markRemoved(edited, edits[j + 1], edits[j + 2]);
+		}
+		pendingEdits.clear();
+		scanLines(edited, scanned);
+		scanListener.run();
+	} //}}}
+
+	//{{{ scanLines() method
+	/**
+	 * Match lines again on the EDT.
+	 *
+	 * @param lines       the lines to match, it is cleared
+	 * @param lineEntries the highlights to match
+	 */
+	private void scanLines(BitSet lines, List<Entry<H>> lineEntries)
+	{
+		int lineCount = view.getLineCount();
+		for (int line = lines.nextSetBit(0); line >= 0 && line < lineCount; line = lines.nextSetBit(line + 1))
+		{
+			view.getLineText(line, segment);
+			for (Entry<H> entry : lineEntries)
+				entry.lines.set(line, match(entry.matcher));
+		}
+		lines.clear();
+		for (Entry<H> entry : lineEntries)
+			entry.lines.clear(lineCount, Math.max(lineCount, entry.lines.length()));
+	} //}}}
+
+	//{{{ match() method
+	private boolean match(RegionMatcher matcher)
+	{
+		try
+		{
+			return matcher.find(segment, 0, segment.count);
+		}
+		catch (PatternSyntaxException | InterruptedException | MatchTimeoutException ignored)
+		{
+		}
+		return false;
+	} //}}}
+
+	//{{{ getReadyEntries() method
+	private List<Entry<H>> getReadyEntries()
+	{
+		List<Entry<H>> ready = new ArrayList<>(entries.size());
+		for (Entry<H> entry : entries)
+		{
+			if (entry.ready)
+				ready.add(entry);
+		}
+		return ready;
+	} //}}}
+
+	//{{{ markInserted() method
+	/**
+	 * Shift the dirty lines after inserted lines and mark the inserted ones.
+	 */
+	private static void markInserted(BitSet dirty, int startLine, int numLines)
+	{
+		if (numLines != 0)
+			insertLines(dirty, startLine, numLines);
+		dirty.set(startLine, startLine + numLines + 1);
+	} //}}}
+
+	//{{{ markRemoved() method
+	/**
+	 * Shift the dirty lines after removed lines and mark the line that remains.
+	 */
+	private static void markRemoved(BitSet dirty, int startLine, int numLines)
+	{
+		if (numLines != 0)
+			removeLines(dirty, startLine, numLines);
+		dirty.set(startLine);
+	} //}}}
+
+	//{{{ insertLines() method
+	/**
+	 * Move the bits after a line to make room for inserted lines.
+	 */
+	private static void insertLines(BitSet bits, int startLine, int numLines)
+	{
+		for (int bit = bits.length() - 1; bit > startLine; bit = bits.previousSetBit(bit - 1))
+		{
+			bits.clear(bit);
+			bits.set(bit + numLines);
+		}
+	} //}}}
+
+	//{{{ removeLines() method
+	/**
+	 * Remove the bits of the lines after a line and move the following ones.
+	 */
+	private static void removeLines(BitSet bits, int startLine, int numLines)
+	{
+		int from = startLine + 1 + numLines;
+		bits.clear(startLine + 1, from);
+		for (int bit = bits.nextSetBit(from); bit >= 0; bit = bits.nextSetBit(bit + 1))
+		{
+			bits.clear(bit);
+			bits.set(bit - numLines);
+		}
+	} //}}}
+
+	//{{{ Entry class
+	/**
+	 * A tracked highlight.
+	 */
+	private static final class Entry<H>
+	{
+		private final H highlight;
+		/** The EDT matcher of the highlight when it was added. */
+		private final RegionMatcher matcher;
+		private final BitSet lines = new BitSet();
+		/** True once the lines were scanned. */
+		private boolean ready;
+
+		private Entry(H highlight, RegionMatcher matcher)
+		{
+			this.highlight = highlight;
+			this.matcher = matcher;
+		}
+	} //}}}
+
+	//{{{ ScanBlock class
+	/**
+	 * Scans the lines of a part of the text with matchers of its own.
+	 * Its result is for each highlight the matched lines relative to its
+	 * first line, or null if the scan was cancelled.
+	 */
+	private final class ScanBlock extends RecursiveTask<IntegerArray[]>
+	{
+		private final String text;
+		private final int start;
+		/** The end of the last line of the block. */
+		private final int end;
+		private final List<Supplier<RegionMatcher>> matchers;
+		private final List<H> highlights;
+		/** Non zero for the highlights that exceeded their time budget in any block. */
+		private final AtomicIntegerArray timedOut;
+		private final int scanGeneration;
+		/** The number of lines of the block, known when it is done. */
+		private int lineCount;
+
+		private ScanBlock(String text,
+				  int start,
+				  int end,
+				  List<Supplier<RegionMatcher>> matchers,
+				  List<H> highlights,
+				  AtomicIntegerArray timedOut,
+				  int scanGeneration)
+		{
+			this.text = text;
+			this.start = start;
+			this.end = end;
+			this.matchers = matchers;
+			this.highlights = highlights;
+			this.timedOut = timedOut;
+			this.scanGeneration = scanGeneration;
+		}
+
+		@Override
+		protected IntegerArray[] compute()
+		{
+			RegionMatcher[] blockMatchers = new RegionMatcher[matchers.size()];
+			IntegerArray[] matched = new IntegerArray[blockMatchers.length];
+			for (int i = 0; i < blockMatchers.length; i++)
+			{
+				blockMatchers[i] = matchers.get(i).get();
+				matched[i] = new IntegerArray(64);
+			}
+			int line = 0;
+			int lineStart = start;
+			while (true)
+			{
+				if (line % CANCEL_CHECK_LINES == 0 && generation.get() != scanGeneration)
+					return null;
+				int lineEnd = text.indexOf('\n', lineStart);
+				if (lineEnd == -1 || lineEnd > end)
+					lineEnd = end;
+				for (int i = 0; i < blockMatchers.length; i++)
+				{
+					if (timedOut.get(i) != 0)
+						continue;
+					try
+					{
+						if (blockMatchers[i].find(text, lineStart, lineEnd))
+							matched[i].add(line);
+					}
+					catch (InterruptedException e)
+					{
+						return null;
+					}
+					catch (MatchTimeoutException e)
+					{
+						// the regexp is too slow, it is not matched on the other lines
+						if (timedOut.compareAndSet(i, 0, 1))
+						{
+							H highlight = highlights.get(i);
+							long cost = e.getElapsed();
+							edt.execute(() -> source.quarantine(highlight, cost));
+						}
+						// a timed out line takes long, the scan may have been cancelled meanwhile
+						if (generation.get() != scanGeneration)
+							return null;
+					}
+				}
+				line++;
+				if (lineEnd == end)
+					break;
+				lineStart = lineEnd + 1;
+			}
+			lineCount = line;
+			return matched;
+		}
+	} //}}}
+
+	//{{{ Buffer edits
+	//{{{ contentInserted() method
+	/**
+	 * Called when text was inserted in the buffer.
+	 *
+	 * @param startLine the first line of the insertion
+	 * @param numLines  the number of inserted lines
+	 */
+	void contentInserted(int startLine, int numLines)
+	{
+		text = null;
+		if (entries.isEmpty())
+			return;
+		if (scanning)
+			addPendingEdit(INSERT, startLine, numLines);
+		for (Entry<H> entry : entries)
+		{
+			if (entry.ready && numLines != 0)
+				insertLines(entry.lines, startLine, numLines);
+		}
+		markInserted(dirty, startLine, numLines);
+	} //}}}
+
+	//{{{ contentRemoved() method
+	/**
+	 * Called when text was removed from the buffer.
+	 *
+	 * @param startLine the first line of the removal
+	 * @param numLines  the number of removed lines
+	 */
+	void contentRemoved(int startLine, int numLines)
+	{
+		text = null;
+		if (entries.isEmpty())
+			return;
+		if (scanning)
+			addPendingEdit(REMOVE, startLine, numLines);
+		for (Entry<H> entry : entries)
+		{
+			if (entry.ready && numLines != 0)
+				removeLines(entry.lines, startLine, numLines);
+		}
+		markRemoved(dirty, startLine, numLines);
+	} //}}}
+
+	//{{{ addPendingEdit() method
+	private void addPendingEdit(int type, int startLine, int numLines)
+	{
+		pendingEdits.add(type);
+		pendingEdits.add(startLine);
+		pendingEdits.add(numLines);
+	} //}}}
+
+	//{{{ transactionComplete() method
+	/**
+	 * Called when a buffer transaction is complete, the modified lines are matched again.
+	 */
+	void transactionComplete()
+	{
+		if (dirty.isEmpty())
+			return;
+		// the highlights being scanned get the edits when their result is published
+		scanLines(dirty, getReadyEntries());
+		changeListener.run();
+	} //}}}
+
+	//{{{ bufferLoaded() method
+	/**
+	 * Called when the buffer was loaded again, all the highlights are scanned again.
+	 */
+	void bufferLoaded()
+	{
+		text = null;
+		if (entries.isEmpty())
+			return;
+		List<Entry<H>> reloaded = new ArrayList<>(entries.size());
+		for (Entry<H> entry : entries)
+			reloaded.add(new Entry<>(entry.highlight, entry.matcher));
+		entries = reloaded;
+		dirty.clear();
+		startScan();
+	} //}}}
+	//}}}
+
+	//{{{ MatcherSource interface
+	/**
+	 * Gives the matchers of the highlights.
+	 *
+	 * @param <H> the type of the highlights
+	 */
+	interface MatcherSource<H>
+	{
+		/**
+		 * Returns the matcher of a highlight used on the EDT, a new matcher
+		 * means the highlight was modified.
+		 *
+		 * @param highlight the highlight
+		 * @return the matcher
+		 * @throws PatternSyntaxException if the regexp is invalid
+		 */
+		RegionMatcher getRegionMatcher(H highlight);
+
+		/**
+		 * Returns a factory of new matchers of a highlight for the scanning threads.
+		 *
+		 * @param highlight the highlight
+		 * @return the factory
+		 * @throws PatternSyntaxException if the regexp is invalid
+		 */
+		Supplier<RegionMatcher> getRegionMatcherFactory(H highlight);
+
+		/**
+		 * Called on the EDT when a highlight exceeded its time budget in a scan.
+		 *
+		 * @param highlight the highlight
+		 * @param cost      the time spent on the line in ns
+		 */
+		void quarantine(H highlight, long cost);
+	} //}}}
+}
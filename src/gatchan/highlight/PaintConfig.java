@@ -0,0 +1,210 @@
+/*
+ * PaintConfig.java - The painting options of the highlights
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import org.gjt.sp.jedit.jEdit;
+import org.gjt.sp.jedit.textarea.TextAreaPainter;
+
+import java.awt.*;
+//}}}
+
+/**
+ * An immutable snapshot of the options read by the painters.
+ * It is read from the jEdit properties when they change and published in a
+ * volatile field, so the painters never look up a property while painting.
+ *
+ * @author Matthieu Casanova
+ */
+public final class PaintConfig
+{
+	private static volatile PaintConfig current;
+
+	private final AlphaComposite composite;
+	private final boolean opaque;
+	private final boolean roundCorner;
+	private final boolean overlapBlend;
+	private final boolean square;
+	private final Color squareColor;
+	private final boolean highlightColors;
+	private final boolean tileCache;
+	private final long tileCacheSize;
+
+	//{{{ PaintConfig constructor
+	private PaintConfig()
+	{
+		float alpha = jEdit.getIntegerProperty(HighlightOptionPane.PROP_ALPHA, 50) / 100f;
+		composite = AlphaComposite.getInstance(AlphaComposite.SRC_OVER, alpha);
+		// the layers below the selection only have the background and the line highlight under them,
+		// the opaque rectangles would erase the selection, the wrap guide or the bracket highlight
+		int layer = jEdit.getIntegerProperty(HighlightOptionPane.PROP_LAYER_PROPERTY, TextAreaPainter.HIGHEST_LAYER);
+		opaque = jEdit.getBooleanProperty(HighlightOptionPane.PROP_OPAQUE) && layer <= TextAreaPainter.BELOW_SELECTION_LAYER;
+		roundCorner = jEdit.getBooleanProperty(HighlightOptionPane.PROP_HIGHLIGHT_ROUND_CORNER);
+		overlapBlend = jEdit.getBooleanProperty(HighlightOptionPane.PROP_OVERLAP_BLEND, true);
+		square = jEdit.getBooleanProperty(HighlightOptionPane.PROP_SQUARE);
+		squareColor = jEdit.getColorProperty(HighlightOptionPane.PROP_SQUARE_COLOR);
+		highlightColors = jEdit.getBooleanProperty(HighlightOptionPane.PROP_HIGHLIGHT_COLORS);
+		tileCache = jEdit.getBooleanProperty(HighlightOptionPane.PROP_TILE_CACHE);
+		tileCacheSize = jEdit.getIntegerProperty(HighlightOptionPane.PROP_TILE_CACHE_SIZE, 16) * 1024L * 1024L;
+	} //}}}
+
+	//{{{ get() method
+	/**
+	 * Returns the current options.
+	 *
+	 * @return the options
+	 */
+	public static PaintConfig get()
+	{
+		PaintConfig config = current;
+		if (config == null)
+		{
+			config = new PaintConfig();
+			current = config;
+		}
+		return config;
+	} //}}}
+
+	//{{{ reload() method
+	/**
+	 * Read the options again from the jEdit properties, it must be called
+	 * when they changed.
+	 */
+	public static void reload()
+	{
+		current = new PaintConfig();
+	} //}}}
+
+	//{{{ getComposite() method
+	/**
+	 * Returns the composite used to blend the highlights with the text area.
+	 *
+	 * @return the composite
+	 */
+	public AlphaComposite getComposite()
+	{
+		return composite;
+	} //}}}
+
+	//{{{ isOpaque() method
+	/**
+	 * Returns true if the highlights are painted with opaque colors pre-blended
+	 * with the background, it is only possible below the selection.
+	 *
+	 * @return true if the highlights are opaque
+	 */
+	public boolean isOpaque()
+	{
+		return opaque;
+	} //}}}
+
+	//{{{ getFillComposite() method
+	/**
+	 * Returns the composite the filled rectangles of the highlights are painted with.
+	 *
+	 * @return {@link AlphaComposite#Src} if the colors are opaque, the alpha composite otherwise
+	 */
+	public AlphaComposite getFillComposite()
+	{
+		return opaque ? AlphaComposite.Src : composite;
+	} //}}}
+
+	//{{{ getOutlineComposite() method
+	/**
+	 * Returns the composite the outlines of the highlights are painted with.
+	 * The antialiased edges of the outlines must be blended even if the colors are opaque.
+	 *
+	 * @return {@link AlphaComposite#SrcOver} if the colors are opaque, the alpha composite otherwise
+	 */
+	public AlphaComposite getOutlineComposite()
+	{
+		return opaque ? AlphaComposite.SrcOver : composite;
+	} //}}}
+
+	//{{{ isRoundCorner() method
+	public boolean isRoundCorner()
+	{
+		return roundCorner;
+	} //}}}
+
+	//{{{ isOverlapBlend() method
+	/**
+	 * Returns true if the colors of the overlapping highlights are mixed,
+	 * false if the last painted one hides the others.
+	 *
+	 * @return true if the overlapping colors are mixed
+	 */
+	public boolean isOverlapBlend()
+	{
+		return overlapBlend;
+	} //}}}
+
+	//{{{ isSquare() method
+	/**
+	 * Returns true if a border is drawn around the matches.
+	 *
+	 * @return true if a border is drawn
+	 */
+	public boolean isSquare()
+	{
+		return square;
+	} //}}}
+
+	//{{{ getSquareColor() method
+	public Color getSquareColor()
+	{
+		return squareColor;
+	} //}}}
+
+	//{{{ isHighlightColors() method
+	/**
+	 * Returns true if the colors written in the text are underlined with their color.
+	 *
+	 * @return true if the colors are highlighted
+	 */
+	public boolean isHighlightColors()
+	{
+		return highlightColors;
+	} //}}}
+
+	//{{{ isTileCache() method
+	/**
+	 * Returns true if the rendered highlights of the lines are cached.
+	 *
+	 * @return true if the tile cache is enabled
+	 */
+	public boolean isTileCache()
+	{
+		return tileCache;
+	} //}}}
+
+	//{{{ getTileCacheSize() method
+	/**
+	 * Returns the maximum memory of the tile cache of a text area.
+	 *
+	 * @return the size in bytes
+	 */
+	public long getTileCacheSize()
+	{
+		return tileCacheSize;
+	} //}}}
+}
@@ -0,0 +1,116 @@
+/*
+ * PaintContext.java - The state of a paint pass of the highlighter
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import java.awt.*;
+//}}}
+
+/**
+ * Everything a paint pass of the {@link Highlighter} reads that does not change
+ * during the pass, gathered once by {@link Highlighter#paintScreenLineRange}
+ * so painting the lines and the matches only reads final fields.
+ * It also adds up the time each regexp spends matching the lines of the pass.
+ *
+ * @author Matthieu Casanova
+ */
+final class PaintContext
+{
+	final PaintConfig config;
+	/** The highlights of the pass. */
+	final HighlightSnapshot snapshot;
+	/** The word at caret or selection highlight of the pass. */
+	final Highlight liveHighlight;
+	/** The word at caret highlight, its match under the caret is not filled. */
+	final Highlight wordAtCaretHighlight;
+
+	/** The first screen line of the pass. */
+	final int firstLine;
+	/** The physical line of each screen line of the pass. */
+	final int[] physicalLines;
+	/** The end offset of each screen line of the pass. */
+	final int[] end;
+
+	final int lineHeight;
+	/** The vertical offset of the match rectangles in a line. */
+	final int charOffset;
+	/** The height of the match rectangles. */
+	final int charHeight;
+
+	/** The cache of the rendered lines, null if it is disabled or cannot be used with the graphics. */
+	final HighlightTileCache tiles;
+	/** The horizontal scroll, font metrics and scale of the graphics, the tiles depend on them. */
+	final int horizontalOffset;
+	final FontMetrics fontMetrics;
+	final double scale;
+
+	/** The slot of the live highlight in {@link #matchTimes}, after the ones of the snapshot. */
+	final int liveSlot;
+	/** The time spent matching each highlight in the pass in ns, by index in the snapshot. */
+	private final long[] matchTimes;
+
+	//{{{ PaintContext constructor
+	PaintContext(PaintConfig config,
+		     HighlightSnapshot snapshot,
+		     Highlight liveHighlight,
+		     Highlight wordAtCaretHighlight,
+		     int firstLine,
+		     int[] physicalLines,
+		     int[] end,
+		     int lineHeight,
+		     int fontHeight,
+		     HighlightTileCache tiles,
+		     int horizontalOffset,
+		     FontMetrics fontMetrics,
+		     double scale)
+	{
+		this.config = config;
+		this.snapshot = snapshot;
+		this.liveHighlight = liveHighlight;
+		this.wordAtCaretHighlight = wordAtCaretHighlight;
+		this.firstLine = firstLine;
+		this.physicalLines = physicalLines;
+		this.end = end;
+		this.lineHeight = lineHeight;
+		charHeight = Math.min(lineHeight, fontHeight);
+		charOffset = Math.max(lineHeight - charHeight, 0);
+		this.tiles = tiles;
+		this.horizontalOffset = horizontalOffset;
+		this.fontMetrics = fontMetrics;
+		this.scale = scale;
+		liveSlot = snapshot.size();
+		matchTimes = new long[liveSlot + 1];
+	} //}}}
+
+	//{{{ addMatchTime() method
+	/**
+	 * Add the time spent matching a highlight in a line to its total of the pass.
+	 *
+	 * @param slot the index of the highlight in the snapshot, or {@link #liveSlot}
+	 * @param elapsed the time spent in ns
+	 * @return the time spent matching the highlight since the start of the pass in ns
+	 */
+	long addMatchTime(int slot, long elapsed)
+	{
+		return matchTimes[slot] += elapsed;
+	} //}}}
+}
@@ -0,0 +1,170 @@
+/*
+ * PendingRectangles.java - The rectangles of the matches of a screen line
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import gatchan.highlight.editor.EditorView;
+import gatchan.highlight.editor.LineOffsets;
+import org.gjt.sp.util.IntegerArray;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+//}}}
+
+/**
+ * The rectangles of the matches painted on a screen line, collected by
+ * offsets then added to a batch once the x co-ordinates of all their offsets
+ * are computed together.
+ * <p>
+ * On a wrapped screen line the end offset of the screen line is the first
+ * offset of the next one, the text area puts it at the start of the next
+ * screen line. It is never measured: a match reaching it ends at the right of
+ * the last char of the screen line instead.
+ * It is only used from the EDT.
+ *
+ * @author Matthieu Casanova
+ */
+final class PendingRectangles
+{
+	private static final int FILLED = 1;
+	/** The rectangle ends at the right of its end char instead of at its end offset. */
+	private static final int AFTER_END = 2;
+
+	/** The (start, end, flags) triples of the rectangles. */
+	private final IntegerArray rectangles = new IntegerArray(30);
+	/** The color of each rectangle. */
+	private final List<Color> colors = new ArrayList<>();
+	/** The offsets of the rectangles, their x co-ordinates are computed together. */
+	private final LineOffsets offsets = new LineOffsets();
+	/** Flattens the overlapping filled rectangles of the screen line. */
+	private final OverlapFlattener flattener = new OverlapFlattener();
+	/** The end of the screen line in the physical line if it is wrapped, -1 if it is the last one. */
+	private int wrapEnd = -1;
+
+	//{{{ setWrapEnd() method
+	/**
+	 * Set where the screen line of the next rectangles ends.
+	 *
+	 * @param wrapEnd the end of the screen line in the physical line if the
+	 *                physical line continues on the next screen line, -1 otherwise
+	 */
+	void setWrapEnd(int wrapEnd)
+	{
+		this.wrapEnd = wrapEnd;
+	} //}}}
+
+	//{{{ isEmpty() method
+	boolean isEmpty()
+	{
+		return colors.isEmpty();
+	} //}}}
+
+	//{{{ add() method
+	/**
+	 * Add the rectangle of a match clipped to the screen line.
+	 *
+	 * @param color  the color
+	 * @param start  the start offset in the physical line
+	 * @param end    the end offset in the physical line, at most the end of the screen line
+	 * @param filled true if the rectangle is filled, false if it is outlined
+	 */
+	void add(Color color, int start, int end, boolean filled)
+	{
+		int flags = filled ? FILLED : 0;
+		if (end == wrapEnd)
+		{
+			end--;
+			flags |= AFTER_END;
+		}
+		colors.add(color);
+		rectangles.add(start);
+		rectangles.add(end);
+		rectangles.add(flags);
+		offsets.add(start);
+		offsets.add(end);
+	} //}}}
+
+	//{{{ flush() method
+	/**
+	 * Add the rectangles to a batch and forget them.
+	 * The overlapping filled rectangles are flattened so each pixel is painted
+	 * once, the rectangles with an offset the view cannot place are skipped.
+	 *
+	 * @param view        the view giving the x co-ordinates
+	 * @param line        the physical line
+	 * @param target      the batch
+	 * @param y           the y co-ordinate of the rectangles
+	 * @param height      the height of the rectangles
+	 * @param blend       true if the colors of the overlapping rectangles are mixed
+	 * @param alpha       the alpha of the highlights
+	 * @param squareColor the color of the outline of every rectangle, null if only the unfilled ones have one
+	 * @param opaque      the colors pre-blended with the background of the line, null if the batch is painted with alpha
+	 */
+	void flush(EditorView view,
+		   int line,
+		   RectangleBatch target,
+		   int y,
+		   int height,
+		   boolean blend,
+		   float alpha,
+		   Color squareColor,
+		   OpaqueColors opaque)
+	{
+		if (colors.isEmpty())
+			return;
+		try
+		{
+			offsets.compute(view, line);
+			int[] values = rectangles.getArray();
+			for (int i = 0; i < colors.size(); i++)
+			{
+				Color color = colors.get(i);
+				int start = values[i * 3];
+				int end = values[i * 3 + 1];
+				int flags = values[i * 3 + 2];
+				int startX = offsets.getX(start);
+				int endX = offsets.getX(end);
+				if (startX == EditorView.UNRESOLVED_X || endX == EditorView.UNRESOLVED_X)
+					continue;
+				if ((flags & AFTER_END) != 0)
+					endX += view.getCharWidth(line, end, endX);
+				boolean filled = (flags & FILLED) != 0;
+				if (filled)
+					flattener.add(color, startX, endX);
+
+				Color outline = squareColor;
+				if (outline == null && !filled)
+					outline = color;
+				if (outline != null && endX > startX)
+					target.draw(opaque == null ? outline : opaque.get(outline), startX, y, endX - startX, height);
+			}
+			flattener.flush(target, y, height, blend, alpha, opaque);
+		}
+		finally
+		{
+			rectangles.clear();
+			colors.clear();
+			offsets.clear();
+		}
+	} //}}}
+}
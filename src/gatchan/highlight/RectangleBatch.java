@@ -0,0 +1,287 @@
+/*
+ * RectangleBatch.java - The highlight rectangles of a paint pass
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+
+//{{{ Imports
+import org.gjt.sp.util.IntegerArray;
+
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.geom.RoundRectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+//}}}
+
+/**
+ * Collects the rectangles painted by the {@link Highlighter} during a paint
+ * pass, grouped by color and by style (filled or outlined).
+ * When the pass is done each group is painted with a single fill or draw of a
+ * path, so the graphics state changes once per group instead of once per match.
+ * Overlapping rectangles of the same group are painted once.
+ *
+ * @author Matthieu Casanova
+ */
+final class RectangleBatch
+{
+	/** The number of unused groups kept to be reused by the next passes. */
+	private static final int MAX_KEPT_GROUPS = 32;
+
+	/** The corners of a filled rectangle that are round when the round corners are enabled. */
+	static final int ROUND_LEFT = 1;
+	static final int ROUND_RIGHT = 2;
+	static final int ROUND_BOTH = ROUND_LEFT | ROUND_RIGHT;
+	/** The radius of the round corners. */
+	private static final float ARC = 2.5f;
+
+	private final List<Group> groups = new ArrayList<>();
+	private final Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, 256);
+	private final RoundRectangle2D.Float roundRectangle = new RoundRectangle2D.Float();
+
+	//{{{ fill() method
+	/**
+	 * Add a filled rectangle.
+	 *
+	 * @param color  the color
+	 * @param x      the x co-ordinate
+	 * @param y      the y co-ordinate
+	 * @param width  the width
+	 * @param height the height
+	 */
+	void fill(Color color, int x, int y, int width, int height)
+	{
+		getGroup(color, true).add(x, y, width, height, ROUND_BOTH);
+	} //}}}
+
+	//{{{ fill() method
+	/**
+	 * Add a filled rectangle that is a part of a wider shape, only its
+	 * sides on the outside of the shape have round corners.
+	 *
+	 * @param color   the color
+	 * @param x       the x co-ordinate
+	 * @param y       the y co-ordinate
+	 * @param width   the width
+	 * @param height  the height
+	 * @param corners the round sides, {@link #ROUND_LEFT}, {@link #ROUND_RIGHT}, both or none
+	 */
+	void fill(Color color, int x, int y, int width, int height, int corners)
+	{
+		getGroup(color, true).add(x, y, width, height, corners);
+	} //}}}
+
+	//{{{ draw() method
+	/**
+	 * Add an outlined rectangle.
+	 *
+	 * @param color  the color
+	 * @param x      the x co-ordinate
+	 * @param y      the y co-ordinate
+	 * @param width  the width
+	 * @param height the height
+	 */
+	void draw(Color color, int x, int y, int width, int height)
+	{
+		getGroup(color, false).add(x, y, width, height, ROUND_BOTH);
+	} //}}}
+
+	//{{{ flush() method
+	/**
+	 * Paint all the rectangles and empty the batch.
+	 * The filled rectangles are painted first, then the outlines.
+	 *
+	 * @param gfx              the graphics
+	 * @param fillComposite    the composite of the filled rectangles
+	 * @param outlineComposite the composite of the outlines
+	 * @param roundcorner      true if the rectangles have round corners
+	 */
+	void flush(Graphics2D gfx, Composite fillComposite, Composite outlineComposite, boolean roundcorner)
+	{
+		boolean empty = true;
+		for (Group group : groups)
+		{
+			if (!group.rectangles.isEmpty())
+			{
+				empty = false;
+				break;
+			}
+		}
+		if (empty)
+		{
+			if (groups.size() > MAX_KEPT_GROUPS)
+				groups.clear();
+			return;
+		}
+
+		Color oldColor = gfx.getColor();
+		Composite oldComposite = gfx.getComposite();
+		gfx.setComposite(fillComposite);
+		paintGroups(gfx, true, roundcorner);
+		gfx.setComposite(outlineComposite);
+		paintGroups(gfx, false, roundcorner);
+		gfx.setColor(oldColor);
+		gfx.setComposite(oldComposite);
+		if (groups.size() > MAX_KEPT_GROUPS)
+			groups.clear();
+	} //}}}
+
+	//{{{ getBounds() method
+	/**
+	 * Compute the bounds of the rectangles not painted yet.
+	 *
+	 * @param bounds the rectangle receiving the bounds
+	 * @return false if the batch is empty
+	 */
+	boolean getBounds(Rectangle bounds)
+	{
+		int minX = Integer.MAX_VALUE;
+		int minY = Integer.MAX_VALUE;
+		int maxX = Integer.MIN_VALUE;
+		int maxY = Integer.MIN_VALUE;
+		for (Group group : groups)
+		{
+			int[] rectangles = group.rectangles.getArray();
+			for (int i = 0; i < group.rectangles.getSize(); i += 5)
+			{
+				minX = Math.min(minX, rectangles[i]);
+				minY = Math.min(minY, rectangles[i + 1]);
+				maxX = Math.max(maxX, rectangles[i] + rectangles[i + 2]);
+				maxY = Math.max(maxY, rectangles[i + 1] + rectangles[i + 3]);
+			}
+		}
+		if (minX > maxX)
+			return false;
+		bounds.setBounds(minX, minY, maxX - minX, maxY - minY);
+		return true;
+	} //}}}
+
+	//{{{ paintGroups() method
+	private void paintGroups(Graphics2D gfx, boolean filled, boolean roundcorner)
+	{
+		for (Group group : groups)
+		{
+			if (group.filled != filled || group.rectangles.isEmpty())
+				continue;
+			path.reset();
+			int[] rectangles = group.rectangles.getArray();
+			for (int i = 0; i < group.rectangles.getSize(); i += 5)
+			{
+				int x = rectangles[i];
+				int y = rectangles[i + 1];
+				int width = rectangles[i + 2];
+				int height = rectangles[i + 3];
+				int corners = rectangles[i + 4];
+				if (roundcorner && corners == ROUND_BOTH)
+				{
+					roundRectangle.setRoundRect(x, y, width, height, ARC * 2, ARC * 2);
+					path.append(roundRectangle, false);
+				}
+				else if (roundcorner && corners != 0)
+				{
+					appendHalfRound(x, y, width, height, corners);
+				}
+				else
+				{
+					path.moveTo(x, y);
+					path.lineTo(x + width, y);
+					path.lineTo(x + width, y + height);
+					path.lineTo(x, y + height);
+					path.closePath();
+				}
+			}
+			gfx.setColor(group.color);
+			if (filled)
+				gfx.fill(path);
+			else
+				gfx.draw(path);
+			group.rectangles.clear();
+		}
+		path.reset();
+	} //}}}
+
+	//{{{ appendHalfRound() method
+	/**
+	 * Add a rectangle with round corners on one side to the path.
+	 */
+	private void appendHalfRound(int x, int y, int width, int height, int corners)
+	{
+		float right = x + width;
+		float bottom = y + height;
+		if ((corners & ROUND_LEFT) != 0)
+		{
+			path.moveTo(x + ARC, y);
+			path.lineTo(right, y);
+			path.lineTo(right, bottom);
+			path.lineTo(x + ARC, bottom);
+			path.quadTo(x, bottom, x, bottom - ARC);
+			path.lineTo(x, y + ARC);
+			path.quadTo(x, y, x + ARC, y);
+		}
+		else
+		{
+			path.moveTo(x, y);
+			path.lineTo(right - ARC, y);
+			path.quadTo(right, y, right, y + ARC);
+			path.lineTo(right, bottom - ARC);
+			path.quadTo(right, bottom, right - ARC, bottom);
+			path.lineTo(x, bottom);
+		}
+		path.closePath();
+	} //}}}
+
+	//{{{ getGroup() method
+	private Group getGroup(Color color, boolean filled)
+	{
+		for (Group group : groups)
+		{
+			if (group.filled == filled && group.color.equals(color))
+				return group;
+		}
+		Group group = new Group(color, filled);
+		groups.add(group);
+		return group;
+	} //}}}
+
+	//{{{ Group class
+	private static final class Group
+	{
+		private final Color color;
+		private final boolean filled;
+		/** The (x, y, width, height, round corners) of the rectangles. */
+		private final IntegerArray rectangles = new IntegerArray(64);
+
+		private Group(Color color, boolean filled)
+		{
+			this.color = color;
+			this.filled = filled;
+		}
+
+		private void add(int x, int y, int width, int height, int corners)
+		{
+			rectangles.add(x);
+			rectangles.add(y);
+			rectangles.add(width);
+			rectangles.add(height);
+			rectangles.add(corners);
+		}
+	} //}}}
+}
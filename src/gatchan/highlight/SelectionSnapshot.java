@@ -0,0 +1,173 @@
+/*
+ * SelectionSnapshot.java - The selections and caret of a paint pass
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+
+//{{{ Imports
+import gatchan.highlight.editor.EditorView;
+import org.gjt.sp.jedit.textarea.TextArea;
+
+import java.util.Arrays;
+//}}}
+
+/**
+ * The selections and the caret of a text area, taken once per paint pass so the
+ * {@link Highlighter} can check each match without calling back the text area.
+ * The selections are kept as sorted and merged [start, end] intervals, like
+ * {@link TextArea#getSelectionAtOffset(int)} an offset is selected if it is in
+ * the bounds of a selection, ends included.
+ *
+ * @author Matthieu Casanova
+ */
+final class SelectionSnapshot
+{
+	/** The sorted, non overlapping start and end offsets of the selections. */
+	private int[] bounds = new int[8];
+	/** The number of intervals. */
+	private int count;
+
+	private int caretLine;
+	private int caretOffsetInLine;
+
+	//{{{ update() method
+	/**
+	 * Take the selections and caret of a view.
+	 *
+	 * @param view the view
+	 */
+	void update(EditorView view)
+	{
+		count = 0;
+		int selectionCount = view.getSelectionCount();
+		if (bounds.length < selectionCount << 1)
+			bounds = Arrays.copyOf(bounds, selectionCount << 1);
+		for (int i = 0; i < selectionCount; i++)
+			insert(view.getSelectionStart(i), view.getSelectionEnd(i));
+		caretLine = view.getCaretLine();
+		caretOffsetInLine = view.getCaretPosition() - view.getLineStartOffset(caretLine);
+	} //}}}
+
+	//{{{ insert() method
+	/**
+	 * Insert an interval keeping them sorted by start offset, then merge it with
+	 * its neighbours if they overlap.
+	 */
+	private void insert(int start, int end)
+	{
+		int i = count;
+		while (i > 0 && bounds[(i - 1) << 1] > start)
+		{
+			bounds[i << 1] = bounds[(i - 1) << 1];
+			bounds[(i << 1) + 1] = bounds[((i - 1) << 1) + 1];
+			i--;
+		}
+		bounds[i << 1] = start;
+		bounds[(i << 1) + 1] = end;
+		count++;
+
+		// merge with the previous interval
+		if (i > 0 && bounds[((i - 1) << 1) + 1] >= start)
+		{
+			i--;
+			bounds[(i << 1) + 1] = Math.max(bounds[(i << 1) + 1], end);
+			remove(i + 1);
+		}
+		// merge with the following intervals
+		while (i + 1 < count && bounds[(i + 1) << 1] <= bounds[(i << 1) + 1])
+		{
+			bounds[(i << 1) + 1] = Math.max(bounds[(i << 1) + 1], bounds[((i + 1) << 1) + 1]);
+			remove(i + 1);
+		}
+	} //}}}
+
+	//{{{ remove() method
+	private void remove(int index)
+	{
+		System.arraycopy(bounds, (index + 1) << 1, bounds, index << 1, (count - index - 1) << 1);
+		count--;
+	} //}}}
+
+	//{{{ isSelected() method
+	/**
+	 * Check if an offset is in a selection.
+	 *
+	 * @param offset the offset in the buffer
+	 * @return true if a selection contains the offset
+	 */
+	boolean isSelected(int offset)
+	{
+		int low = 0;
+		int high = count - 1;
+		while (low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if (offset < bounds[mid << 1])
+				high = mid - 1;
+			else if (offset > bounds[(mid << 1) + 1])
+				low = mid + 1;
+			else
+				return true;
+		}
+		return false;
+	} //}}}
+
+	//{{{ intersects() method
+	/**
+	 * Check if a range contains a selected offset.
+	 *
+	 * @param start the start offset in the buffer (inclusive)
+	 * @param end   the end offset in the buffer (inclusive)
+	 * @return true if a selection overlaps the range
+	 */
+	boolean intersects(int start, int end)
+	{
+		// the first interval ending at or after the start
+		int low = 0;
+		int high = count;
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if (bounds[(mid << 1) + 1] < start)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low < count && bounds[low << 1] <= end;
+	} //}}}
+
+	//{{{ getCaretLine() method
+	int getCaretLine()
+	{
+		return caretLine;
+	} //}}}
+
+	//{{{ getCaretOffsetInLine() method
+	/**
+	 * Returns the offset of the caret in its line.
+	 *
+	 * @return the offset of the caret from the start of the caret line
+	 */
+	int getCaretOffsetInLine()
+	{
+		return caretOffsetInLine;
+	} //}}}
+}
@@ -0,0 +1,93 @@
+/*
+ * VisibleWindow.java - The visible part of a long line
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+
+//{{{ Imports
+import org.gjt.sp.jedit.textarea.TextArea;
+//}}}
+
+/**
+ * The part of a screen line that is visible in the text area, widened by a
+ * margin so the matches that begin before the visible part or end after it are
+ * still found.
+ * The painters use it for the lines too long to be matched entirely, the
+ * cost of a repaint then depends on the width of the text area and not on the
+ * length of the line, and the matches are found at any column.
+ * <p>
+ * A match longer than the margin that crosses an edge of the visible part may
+ * not be found.
+ *
+ * @author Matthieu Casanova
+ */
+public final class VisibleWindow
+{
+	private int start;
+	private int end;
+
+	//{{{ update() method
+	/**
+	 * Compute the visible window of a screen line.
+	 *
+	 * @param textArea        the text area
+	 * @param screenLine      the screen line
+	 * @param lineStartOffset the start offset of the physical line
+	 * @param fragmentStart   the start of the screen line in the physical line
+	 * @param fragmentEnd     the end of the screen line in the physical line
+	 * @param margin          the number of chars added on both sides of the visible part
+	 */
+	public void update(TextArea textArea,
+			   int screenLine,
+			   int lineStartOffset,
+			   int fragmentStart,
+			   int fragmentEnd,
+			   int margin)
+	{
+		int width = textArea.getPainter().getWidth();
+		int firstVisible = textArea.xToScreenLineOffset(screenLine, 0, false) - lineStartOffset;
+		int lastVisible = textArea.xToScreenLineOffset(screenLine, width, true) - lineStartOffset;
+		start = Math.max(fragmentStart, firstVisible - margin);
+		end = Math.max(start, Math.min(fragmentEnd, lastVisible + 1 + margin));
+	} //}}}
+
+	//{{{ getStart() method
+	/**
+	 * Returns the start of the window.
+	 *
+	 * @return the start offset in the physical line (inclusive)
+	 */
+	public int getStart()
+	{
+		return start;
+	} //}}}
+
+	//{{{ getEnd() method
+	/**
+	 * Returns the end of the window.
+	 *
+	 * @return the end offset in the physical line (exclusive)
+	 */
+	public int getEnd()
+	{
+		return end;
+	} //}}}
+}
@@ -21,9 +21,12 @@
 
 package gatchan.highlight.color;
 
-import gatchan.highlight.HighlightOptionPane;
+import gatchan.highlight.PaintConfig;
+import gatchan.highlight.VisibleWindow;
+import gatchan.highlight.editor.EditorView;
+import gatchan.highlight.editor.LineOffsets;
+import gatchan.highlight.editor.TextAreaEditorView;
 import org.gjt.sp.jedit.buffer.JEditBuffer;
-import org.gjt.sp.jedit.jEdit;
 import org.gjt.sp.jedit.textarea.TextArea;
 import org.gjt.sp.jedit.textarea.TextAreaExtension;
 import org.gjt.sp.util.Log;
@@ -32,6 +35,8 @@ import java.awt.*;
 import java.io.CharArrayReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 import javax.swing.text.Segment;
 
 /**
@@ -39,15 +44,30 @@ import javax.swing.text.Segment;
  */
 public class FlexColorPainter extends TextAreaExtension
 {
+	/**
+	 * The lines longer than that are scanned only in their visible part.
+	 */
 	public static final int MAX_LINE_LENGTH = 10000;
+
+	/**
+	 * The number of chars scanned on both sides of the visible part of a long line,
+	 * it must be longer than the longest color.
+	 */
+	private static final int WINDOW_MARGIN = 64;
 	private final TextArea textArea;
-	private final Point point = new Point();
+	private final TextAreaEditorView view;
+	/** The tokens of the screen line being painted. */
+	private final List<ColorToken> tokens = new ArrayList<>();
+	/** The offsets of the tokens, their x co-ordinates are computed together. */
+	private final LineOffsets offsets = new LineOffsets();
 	private final Segment seg;
 	private final FlexColorScanner flexColor;
+	private final VisibleWindow window = new VisibleWindow();
 
 	public FlexColorPainter(TextArea textArea)
 	{
 		this.textArea = textArea;
+		view = new TextAreaEditorView(textArea);
 		seg = new Segment();
 		flexColor = new FlexColorScanner(new StringReader(""));
 	}
@@ -56,7 +76,7 @@ public class FlexColorPainter extends TextAreaExtension
 	@Override
 	public void paintScreenLineRange(Graphics2D gfx, int firstLine, int lastLine, int[] physicalLines, int[] start, int[] end, int y, int lineHeight)
 	{
-		if (jEdit.getBooleanProperty(HighlightOptionPane.PROP_HIGHLIGHT_COLORS))
+		if (PaintConfig.get().isHighlightColors())
 			super.paintScreenLineRange(gfx, firstLine, lastLine, physicalLines, start, end, y, lineHeight);
 	} //}}}
 
@@ -70,11 +90,21 @@ public class FlexColorPainter extends TextAreaExtension
 
 		int screenToPhysicalOffset = start - lineStartOffset;
 		int l = length - screenToPhysicalOffset - lineEndOffset + end;
-		if (l > MAX_LINE_LENGTH)
-			l = MAX_LINE_LENGTH;
-		if (l == 0)
+		if (l <= 0)
 			return;
-		buffer.getText(lineStartOffset + screenToPhysicalOffset, l, seg);
+		int textStart = screenToPhysicalOffset;
+		if (l > MAX_LINE_LENGTH)
+		{
+			window.update(textArea, screenLine, lineStartOffset, screenToPhysicalOffset,
+				screenToPhysicalOffset + l, WINDOW_MARGIN);
+			textStart = window.getStart();
+			l = window.getEnd() - textStart;
+			if (l == 0)
+				return;
+		}
+		buffer.getText(lineStartOffset + textStart, l, seg);
+		tokens.clear();
+		offsets.clear();
 
 		try (CharArrayReader charArrayReader = new CharArrayReader(seg.array, seg.offset, seg.count))
 		{
@@ -82,7 +112,9 @@ public class FlexColorPainter extends TextAreaExtension
 			ColorToken token = flexColor.yylex();
 			while (token != null)
 			{
-				paint(token, gfx, physicalLine, start, y);
+				tokens.add(token);
+				offsets.add(textStart + token.getStart());
+				offsets.add(textStart + token.getEnd());
 				try
 				{
 					token = flexColor.yylex();
@@ -98,38 +130,40 @@ public class FlexColorPainter extends TextAreaExtension
 			Log.log(Log.ERROR, this, e);
 		}
 		seg.array = null;
-	}
-
-	private void paint(ColorToken token, Graphics2D gfx, int physicalLine, int start, int y)
-	{
-		int phycialLineStartOffset = textArea.getLineStartOffset(physicalLine);
-		int screenStartOffset = start + token.getStart();
-		int screenEndOffset = start + token.getEnd();
-		Point p = textArea.offsetToXY(physicalLine, screenStartOffset - phycialLineStartOffset, point);
-
-		if (p == null)
+		// the x co-ordinates of all the tokens are computed with one walk of the line
+		if (!tokens.isEmpty())
 		{
-			// The start offset was not visible
-			return;
+			offsets.compute(view, physicalLine);
+			paint(gfx, textStart, y);
 		}
-		int startX = p.x;
+		tokens.clear();
+	}
 
-		p = textArea.offsetToXY(physicalLine, screenEndOffset - phycialLineStartOffset, point);
-		if (p == null)
-		{
-			// The end offset was not visible
-			return;
-		}
-		int endX = p.x;
+	//{{{ paint() method
+	/**
+	 * Underline the tokens of a screen line.
+	 *
+	 * @param gfx the graphics
+	 * @param textStart the offset of the scanned text in the physical line
+	 * @param y the y co-ordinate of the line
+	 */
+	private void paint(Graphics2D gfx, int textStart, int y)
+	{
 		Color oldColor = gfx.getColor();
 		Composite oldComposite = gfx.getComposite();
-		gfx.setColor(token.getColor());
 		FontMetrics fm = textArea.getPainter().getFontMetrics();
-
 		int y2 = y + fm.getHeight() - 2;
 		int y3 = y + fm.getHeight() - 1;
-		gfx.drawLine(startX, y2, endX, y2);
-		gfx.drawLine(startX, y3, endX, y3);
+		for (ColorToken token : tokens)
+		{
+			int startX = offsets.getX(textStart + token.getStart());
+			int endX = offsets.getX(textStart + token.getEnd());
+			if (startX == EditorView.UNRESOLVED_X || endX == EditorView.UNRESOLVED_X)
+				continue;
+			gfx.setColor(token.getColor());
+			gfx.drawLine(startX, y2, endX, y2);
+			gfx.drawLine(startX, y3, endX, y3);
+		}
 
 		gfx.setColor(oldColor);
 		gfx.setComposite(oldComposite);
@@ -0,0 +1,148 @@
+/*
+ * EditorView.java - What the highlight engine needs from the editor
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.editor;
+
+//{{{ Imports
+import javax.swing.text.Segment;
+import java.awt.Point;
+//}}}
+
+/**
+ * The part of a text area the highlight engine uses: the lines, the caret,
+ * the selections and the position of the offsets on screen.
+ * {@link TextAreaEditorView} reads them from a jEdit text area,
+ * {@link MemoryEditorView} keeps them in memory so the engine can run
+ * without Swing.
+ * The offsets are buffer offsets, the lines are physical lines.
+ *
+ * @author Matthieu Casanova
+ */
+public interface EditorView
+{
+	/** The x co-ordinate given by {@link #offsetsToX} to the offsets it cannot place on screen. */
+	int UNRESOLVED_X = Integer.MIN_VALUE;
+
+	//{{{ Text
+	int getLineCount();
+
+	/**
+	 * Returns the length of the whole text, the line separators included.
+	 *
+	 * @return the length
+	 */
+	int getLength();
+
+	int getLineStartOffset(int line);
+
+	/**
+	 * Returns the length of a line without its line separator.
+	 *
+	 * @param line the physical line
+	 * @return the length of the line
+	 */
+	int getLineLength(int line);
+
+	int getLineOfOffset(int offset);
+
+	/**
+	 * Point a segment to the text of a line, without its line separator.
+	 *
+	 * @param line    the physical line
+	 * @param segment the segment
+	 */
+	void getLineText(int line, Segment segment);
+
+	String getText(int start, int length);
+
+	/**
+	 * Returns the chars that are part of words in addition to the letters and digits.
+	 *
+	 * @return the noWordSep property of the buffer
+	 */
+	String getNoWordSep();
+	//}}}
+
+	//{{{ Caret and selections
+	int getCaretPosition();
+
+	int getCaretLine();
+
+	int getSelectionCount();
+
+	/**
+	 * Returns the start of a selection.
+	 *
+	 * @param index the index of the selection, from 0 to {@link #getSelectionCount()} excluded
+	 * @return the start offset
+	 */
+	int getSelectionStart(int index);
+
+	/**
+	 * Returns the end of a selection.
+	 *
+	 * @param index the index of the selection, from 0 to {@link #getSelectionCount()} excluded
+	 * @return the end offset
+	 */
+	int getSelectionEnd(int index);
+
+	boolean hasFocus();
+	//}}}
+
+	//{{{ offsetToXY() method
+	/**
+	 * Returns the position on screen of an offset of a line.
+	 *
+	 * @param line   the physical line
+	 * @param offset the offset from the start of the line
+	 * @param point  the point that will receive the position
+	 * @return the point or null if the line is not visible
+	 */
+	Point offsetToXY(int line, int offset, Point point); //}}}
+
+	//{{{ offsetsToX() method
+	/**
+	 * Returns the x co-ordinates of several offsets of a screen line in one left
+	 * to right walk, instead of one {@link #offsetToXY(int, int, Point)} call per offset.
+	 * The offsets far outside of the visible part of the line may get an x
+	 * co-ordinate clamped outside of it instead of their exact one, the
+	 * offsets that are not visible at all get {@link #UNRESOLVED_X}.
+	 *
+	 * @param line    the physical line
+	 * @param offsets the offsets from the start of the line, in ascending order and all in the same screen line
+	 * @param count   the number of offsets
+	 * @param xs      the array receiving the x co-ordinate of each offset
+	 */
+	void offsetsToX(int line, int[] offsets, int count, int[] xs); //}}}
+
+	//{{{ getCharWidth() method
+	/**
+	 * Returns the width of a char on screen. The end offset of a wrapped
+	 * screen line is the start of the next one, so the right of its last char
+	 * is found with the x co-ordinate of the char and its width.
+	 *
+	 * @param line   the physical line
+	 * @param offset the offset of the char from the start of the line
+	 * @param x      the x co-ordinate of the char, the width of a tab depends on it
+	 * @return the width of the char
+	 */
+	int getCharWidth(int line, int offset, int x); //}}}
+}
@@ -0,0 +1,95 @@
+/*
+ * LineOffsets.java - The x co-ordinates of the offsets painted on a screen line
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.editor;
+
+//{{{ Imports
+import java.util.Arrays;
+//}}}
+
+/**
+ * Collects the offsets a painter needs on a screen line, in any order, then
+ * computes all their x co-ordinates with one
+ * {@link EditorView#offsetsToX(int, int[], int, int[])} call.
+ * The arrays are reused from line to line, it must only be used by one thread at a time.
+ *
+ * @author Matthieu Casanova
+ */
+public final class LineOffsets
+{
+	private int[] offsets = new int[64];
+	private int[] xs = new int[64];
+	private int count;
+
+	//{{{ clear() method
+	public void clear()
+	{
+		count = 0;
+	} //}}}
+
+	//{{{ add() method
+	/**
+	 * Add an offset.
+	 *
+	 * @param offset the offset from the start of the physical line
+	 */
+	public void add(int offset)
+	{
+		if (count == offsets.length)
+			offsets = Arrays.copyOf(offsets, count << 1);
+		offsets[count++] = offset;
+	} //}}}
+
+	//{{{ compute() method
+	/**
+	 * Compute the x co-ordinates of the offsets.
+	 *
+	 * @param view the view
+	 * @param line the physical line
+	 */
+	public void compute(EditorView view, int line)
+	{
+		Arrays.sort(offsets, 0, count);
+		// remove the duplicates, the starts and ends of adjacent matches are often equal
+		int unique = 0;
+		for (int i = 0; i < count; i++)
+		{
+			if (unique == 0 || offsets[i] != offsets[unique - 1])
+				offsets[unique++] = offsets[i];
+		}
+		count = unique;
+		if (xs.length < count)
+			xs = new int[offsets.length];
+		view.offsetsToX(line, offsets, count, xs);
+	} //}}}
+
+	//{{{ getX() method
+	/**
+	 * Returns the x co-ordinate of an offset, it must have been added before {@link #compute}.
+	 *
+	 * @param offset the offset from the start of the physical line
+	 * @return the x co-ordinate, {@link EditorView#UNRESOLVED_X} if the offset is not visible
+	 */
+	public int getX(int offset)
+	{
+		return xs[Arrays.binarySearch(offsets, 0, count, offset)];
+	} //}}}
+}
@@ -0,0 +1,315 @@
+/*
+ * MemoryEditorView.java - An editor view over a text in memory
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.editor;
+
+//{{{ Imports
+import org.gjt.sp.util.IntegerArray;
+
+import javax.swing.text.Segment;
+import java.awt.Point;
+import java.util.Arrays;
+//}}}
+
+/**
+ * An {@link EditorView} over a text in memory, it needs neither jEdit nor
+ * Swing so the highlight engine can be run in tests and benchmarks on large
+ * synthetic texts.
+ * The lines are separated by '\n', every char is {@link #getCharWidth()}
+ * wide and every line is visible. The lines can be soft wrapped every
+ * {@link #getWrapColumns()} chars, like the text area the end offset of a
+ * wrapped screen line is then at the start of the next one.
+ *
+ * @author Matthieu Casanova
+ */
+public class MemoryEditorView implements EditorView
+{
+	private char[] text;
+	private int length;
+	/** The start offset of each line. */
+	private final IntegerArray lineStarts = new IntegerArray(1024);
+
+	private int caretPosition;
+	/** The start and end offsets of the selections. */
+	private final IntegerArray selections = new IntegerArray(4);
+	private boolean focus = true;
+	private String noWordSep = "_";
+
+	private int charWidth = 8;
+	private int lineHeight = 16;
+	/** The number of chars of the wrapped screen lines, 0 if the lines are not wrapped. */
+	private int wrapColumns;
+
+	//{{{ MemoryEditorView constructors
+	public MemoryEditorView()
+	{
+		this("");
+	}
+
+	public MemoryEditorView(CharSequence text)
+	{
+		setText(text);
+	} //}}}
+
+	//{{{ setText() method
+	/**
+	 * Replace the text, the caret moves to the start and the selections are removed.
+	 *
+	 * @param text the new text
+	 */
+	public void setText(CharSequence text)
+	{
+		length = text.length();
+		this.text = new char[length];
+		lineStarts.clear();
+		lineStarts.add(0);
+		for (int i = 0; i < length; i++)
+		{
+			char c = text.charAt(i);
+			this.text[i] = c;
+			if (c == '\n')
+				lineStarts.add(i + 1);
+		}
+		caretPosition = 0;
+		selections.clear();
+	} //}}}
+
+	//{{{ Text
+	@Override
+	public int getLineCount()
+	{
+		return lineStarts.getSize();
+	}
+
+	@Override
+	public int getLength()
+	{
+		return length;
+	}
+
+	@Override
+	public int getLineStartOffset(int line)
+	{
+		return lineStarts.get(line);
+	}
+
+	@Override
+	public int getLineLength(int line)
+	{
+		int end = line + 1 < lineStarts.getSize() ? lineStarts.get(line + 1) - 1 : length;
+		return end - lineStarts.get(line);
+	}
+
+	@Override
+	public int getLineOfOffset(int offset)
+	{
+		int index = Arrays.binarySearch(lineStarts.getArray(), 0, lineStarts.getSize(), offset);
+		return index >= 0 ? index : -index - 2;
+	}
+
+	@Override
+	public void getLineText(int line, Segment segment)
+	{
+		segment.array = text;
+		segment.offset = lineStarts.get(line);
+		segment.count = getLineLength(line);
+	}
+
+	@Override
+	public String getText(int start, int length)
+	{
+		return new String(text, start, length);
+	}
+
+	@Override
+	public String getNoWordSep()
+	{
+		return noWordSep;
+	}
+
+	public void setNoWordSep(String noWordSep)
+	{
+		this.noWordSep = noWordSep;
+	} //}}}
+
+	//{{{ Caret and selections
+	@Override
+	public int getCaretPosition()
+	{
+		return caretPosition;
+	}
+
+	public void setCaretPosition(int caretPosition)
+	{
+		if (caretPosition < 0 || caretPosition > length)
+			throw new IllegalArgumentException("The caret must be in [0," + length + "]: " + caretPosition);
+		this.caretPosition = caretPosition;
+	}
+
+	@Override
+	public int getCaretLine()
+	{
+		return getLineOfOffset(caretPosition);
+	}
+
+	@Override
+	public int getSelectionCount()
+	{
+		return selections.getSize() >> 1;
+	}
+
+	@Override
+	public int getSelectionStart(int index)
+	{
+		return selections.get(index << 1);
+	}
+
+	@Override
+	public int getSelectionEnd(int index)
+	{
+		return selections.get((index << 1) + 1);
+	}
+
+	/**
+	 * Add a selection.
+	 *
+	 * @param start the start offset
+	 * @param end   the end offset
+	 */
+	public void addSelection(int start, int end)
+	{
+		if (start < 0 || end < start || end > length)
+			throw new IllegalArgumentException("Invalid selection [" + start + ',' + end + ']');
+		selections.add(start);
+		selections.add(end);
+	}
+
+	public void selectNone()
+	{
+		selections.clear();
+	}
+
+	@Override
+	public boolean hasFocus()
+	{
+		return focus;
+	}
+
+	public void setFocus(boolean focus)
+	{
+		this.focus = focus;
+	} //}}}
+
+	//{{{ offsetToXY() method
+	@Override
+	public Point offsetToXY(int line, int offset, Point point)
+	{
+		int screenLine = 0;
+		for (int i = 0; i < line; i++)
+			screenLine += getScreenLineCount(i);
+		int subregion = getSubregion(line, offset);
+		point.x = (offset - subregion * wrapColumns) * charWidth;
+		point.y = (screenLine + subregion) * lineHeight;
+		return point;
+	} //}}}
+
+	//{{{ offsetsToX() method
+	@Override
+	public void offsetsToX(int line, int[] offsets, int count, int[] xs)
+	{
+		for (int i = 0; i < count; i++)
+			xs[i] = (offsets[i] - getSubregion(line, offsets[i]) * wrapColumns) * charWidth;
+	} //}}}
+
+	//{{{ getScreenLineCount() method
+	/**
+	 * Returns the number of screen lines of a physical line.
+	 *
+	 * @param line the physical line
+	 * @return the number of screen lines
+	 */
+	public int getScreenLineCount(int line)
+	{
+		int lineLength = getLineLength(line);
+		if (wrapColumns == 0 || lineLength == 0)
+			return 1;
+		return (lineLength + wrapColumns - 1) / wrapColumns;
+	} //}}}
+
+	//{{{ getSubregion() method
+	/**
+	 * Returns the screen line of an offset in its physical line, the end of
+	 * the line is on its last screen line.
+	 */
+	private int getSubregion(int line, int offset)
+	{
+		if (wrapColumns == 0)
+			return 0;
+		return Math.min(offset / wrapColumns, getScreenLineCount(line) - 1);
+	} //}}}
+
+	//{{{ getWrapColumns() method
+	public int getWrapColumns()
+	{
+		return wrapColumns;
+	} //}}}
+
+	//{{{ setWrapColumns() method
+	/**
+	 * Soft wrap the lines.
+	 *
+	 * @param wrapColumns the number of chars of the wrapped screen lines, 0 to not wrap the lines
+	 */
+	public void setWrapColumns(int wrapColumns)
+	{
+		this.wrapColumns = wrapColumns;
+	} //}}}
+
+	//{{{ getCharWidth() methods
+	@Override
+	public int getCharWidth(int line, int offset, int x)
+	{
+		return charWidth;
+	}
+
+	public int getCharWidth()
+	{
+		return charWidth;
+	} //}}}
+
+	//{{{ setCharWidth() method
+	public void setCharWidth(int charWidth)
+	{
+		this.charWidth = charWidth;
+	} //}}}
+
+	//{{{ getLineHeight() method
+	public int getLineHeight()
+	{
+		return lineHeight;
+	} //}}}
+
+	//{{{ setLineHeight() method
+	public void setLineHeight(int lineHeight)
+	{
+		this.lineHeight = lineHeight;
+	} //}}}
+}
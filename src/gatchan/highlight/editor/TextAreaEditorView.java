@@ -0,0 +1,248 @@
+/*
+ * TextAreaEditorView.java - The editor view of a jEdit text area
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.editor;
+
+//{{{ Imports
+import org.gjt.sp.jedit.buffer.JEditBuffer;
+import org.gjt.sp.jedit.syntax.DefaultTokenHandler;
+import org.gjt.sp.jedit.syntax.Token;
+import org.gjt.sp.jedit.textarea.TextArea;
+import org.gjt.sp.jedit.textarea.TextAreaPainter;
+
+import javax.swing.text.Segment;
+import java.awt.Font;
+import java.awt.Point;
+//}}}
+
+/**
+ * An {@link EditorView} that delegates to a jEdit text area and its buffer.
+ *
+ * @author Matthieu Casanova
+ */
+public final class TextAreaEditorView implements EditorView
+{
+	/**
+	 * The distance outside of the painter where the x co-ordinates of the
+	 * offsets that are not visible are clamped, more than the round corners.
+	 */
+	private static final int CLAMP_MARGIN = 16;
+
+	private final TextArea textArea;
+	private final Point point = new Point();
+	private final Segment segment = new Segment();
+	private final DefaultTokenHandler tokenHandler = new DefaultTokenHandler();
+
+	//{{{ TextAreaEditorView constructor
+	public TextAreaEditorView(TextArea textArea)
+	{
+		this.textArea = textArea;
+	} //}}}
+
+	//{{{ getTextArea() method
+	public TextArea getTextArea()
+	{
+		return textArea;
+	} //}}}
+
+	//{{{ Text
+	@Override
+	public int getLineCount()
+	{
+		return textArea.getBuffer().getLineCount();
+	}
+
+	@Override
+	public int getLength()
+	{
+		return textArea.getBuffer().getLength();
+	}
+
+	@Override
+	public int getLineStartOffset(int line)
+	{
+		return textArea.getBuffer().getLineStartOffset(line);
+	}
+
+	@Override
+	public int getLineLength(int line)
+	{
+		return textArea.getBuffer().getLineLength(line);
+	}
+
+	@Override
+	public int getLineOfOffset(int offset)
+	{
+		return textArea.getBuffer().getLineOfOffset(offset);
+	}
+
+	@Override
+	public void getLineText(int line, Segment segment)
+	{
+		textArea.getBuffer().getLineText(line, segment);
+	}
+
+	@Override
+	public String getText(int start, int length)
+	{
+		return textArea.getBuffer().getText(start, length);
+	}
+
+	@Override
+	public String getNoWordSep()
+	{
+		return textArea.getBuffer().getStringProperty("noWordSep");
+	} //}}}
+
+	//{{{ Caret and selections
+	@Override
+	public int getCaretPosition()
+	{
+		return textArea.getCaretPosition();
+	}
+
+	@Override
+	public int getCaretLine()
+	{
+		return textArea.getCaretLine();
+	}
+
+	@Override
+	public int getSelectionCount()
+	{
+		return textArea.getSelectionCount();
+	}
+
+	@Override
+	public int getSelectionStart(int index)
+	{
+		return textArea.getSelection(index).getStart();
+	}
+
+	@Override
+	public int getSelectionEnd(int index)
+	{
+		return textArea.getSelection(index).getEnd();
+	}
+
+	@Override
+	public boolean hasFocus()
+	{
+		return textArea.hasFocus();
+	} //}}}
+
+	//{{{ offsetToXY() method
+	@Override
+	public Point offsetToXY(int line, int offset, Point point)
+	{
+		return textArea.offsetToXY(line, offset, point);
+	} //}}}
+
+	//{{{ offsetsToX() method
+	/**
+	 * {@inheritDoc}
+	 * The text area walks the chunks of the line for each offset, so only the
+	 * visible offsets are measured: the first visible one is found by
+	 * bisection when the text area is scrolled horizontally, and the walk
+	 * stops at the first offset after the right edge. The others are given
+	 * an x co-ordinate {@link #CLAMP_MARGIN} pixels outside of the painter,
+	 * far enough to hide the ends of the rectangles. Equal offsets are measured once.
+	 * An offset the text area cannot place, for instance on a screen line
+	 * below the painter, only makes its own x co-ordinate unresolved.
+	 */
+	@Override
+	public void offsetsToX(int line, int[] offsets, int count, int[] xs)
+	{
+		if (count == 0)
+			return;
+		int first = 0;
+		if (textArea.getHorizontalOffset() < 0)
+		{
+			// the first offset that is not left of the visible area
+			int high = count;
+			while (first < high)
+			{
+				int mid = (first + high) >>> 1;
+				// an offset that cannot be placed is measured again by the walk
+				if (textArea.offsetToXY(line, offsets[mid], point) != null && point.x < 0)
+					first = mid + 1;
+				else
+					high = mid;
+			}
+			for (int i = 0; i < first; i++)
+				xs[i] = -CLAMP_MARGIN;
+		}
+
+		int width = textArea.getPainter().getWidth();
+		for (int i = first; i < count; i++)
+		{
+			if (i > 0 && offsets[i] == offsets[i - 1])
+			{
+				xs[i] = xs[i - 1];
+				continue;
+			}
+			if (textArea.offsetToXY(line, offsets[i], point) == null)
+			{
+				xs[i] = UNRESOLVED_X;
+				continue;
+			}
+			xs[i] = point.x;
+			if (point.x > width)
+			{
+				xs[i] = Math.min(point.x, width + CLAMP_MARGIN);
+				// the following offsets are further to the right
+				for (int j = i + 1; j < count; j++)
+					xs[j] = width + CLAMP_MARGIN;
+				break;
+			}
+		}
+	} //}}}
+
+	//{{{ getCharWidth() method
+	/**
+	 * {@inheritDoc}
+	 * A tab extends to the next tab stop of the painter, the other chars are
+	 * measured with the font of the syntax style of their token, as jEdit
+	 * paints them.
+	 */
+	@Override
+	public int getCharWidth(int line, int offset, int x)
+	{
+		JEditBuffer buffer = textArea.getBuffer();
+		TextAreaPainter painter = textArea.getPainter();
+		buffer.getLineText(line, segment);
+		char c = offset < segment.count ? segment.array[segment.offset + offset] : ' ';
+		if (c == '\t')
+		{
+			// the tab stops are relative to the start of the line
+			int horizontalOffset = textArea.getHorizontalOffset();
+			int tabStop = (int) painter.nextTabStop(x - horizontalOffset, offset) + horizontalOffset;
+			return Math.max(0, tabStop - x);
+		}
+		tokenHandler.init();
+		buffer.markTokens(line, tokenHandler);
+		Token token = tokenHandler.getTokens();
+		while (token.id != Token.END && token.offset + token.length <= offset)
+			token = token.next;
+		Font font = token.id == Token.END ? painter.getFont() : painter.getStyles()[token.id].getFont();
+		return painter.getFontMetrics(font).charWidth(c);
+	} //}}}
+}
@@ -21,18 +21,18 @@
  */
 package gatchan.highlight.hypersearch;
 
-import gatchan.highlight.Highlight;
+import java.awt.*;
 
 class HighlightPosition
 {
 	private final int pos;
-	private final Highlight highlight;
+	private final Color color;
 	private final boolean start;
 
-	HighlightPosition(int p, Highlight h, boolean s)
+	HighlightPosition(int p, Color c, boolean s)
 	{
 		pos = p;
-		highlight = h;
+		color = c;
 		start = s;
 	}
 
@@ -41,9 +41,9 @@ class HighlightPosition
 		return pos;
 	}
 
-	public Highlight getHighlight()
+	public Color getColor()
 	{
-		return highlight;
+		return color;
 	}
 
 	public boolean isStart()
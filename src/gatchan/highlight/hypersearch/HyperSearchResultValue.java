@@ -24,14 +24,19 @@ package gatchan.highlight.hypersearch;
 import gatchan.highlight.Highlight;
 import gatchan.highlight.HighlightManager;
 import gatchan.highlight.HighlightManagerTableModel;
-import org.gjt.sp.jedit.search.SearchMatcher;
+import gatchan.highlight.HighlightSnapshot;
+import gatchan.highlight.matcher.MatchTimeoutException;
+import gatchan.highlight.matcher.RegionMatcher;
 
 import java.awt.*;
 import java.util.*;
 import java.util.List;
+import java.util.regex.PatternSyntaxException;
 
 public class HyperSearchResultValue
 {
+	private static final HighlightMatchers<Highlight> PLUGIN_HIGHLIGHTS = new PluginHighlights();
+
 	private String originalText;
 	private String str;
 
@@ -54,36 +59,41 @@ public class HyperSearchResultValue
 	private static String getHighlightedString(String s)
 	{
 		HighlightManager manager = HighlightManagerTableModel.getManager();
-		List<HighlightPosition> highlights = new LinkedList<>();
-		try
-		{
-			manager.getReadLock();
-			int highlightCount = manager.countHighlights();
-			for (int hi = 0; hi < highlightCount; hi++)
-			{
-				Highlight highlight = manager.getHighlight(hi);
-				addHighlight(highlights, s, highlight);
-			}
-		}
-		finally
-		{
-			manager.releaseLock();
-		}
+		List<Highlight> highlights = new ArrayList<>();
+		HighlightSnapshot snapshot = manager.getSnapshot();
+		for (int hi = 0; hi < snapshot.size(); hi++)
+			highlights.add(snapshot.get(hi));
 		if (manager.isHighlightWordAtCaret())
-			addHighlight(highlights, s, HighlightManagerTableModel.currentWordHighlight);
+			highlights.add(HighlightManagerTableModel.currentWordHighlight);
 		if (manager.isHighlightSelection())
-			addHighlight(highlights, s, HighlightManagerTableModel.selectionHighlight);
+			highlights.add(HighlightManagerTableModel.selectionHighlight);
+		return getHighlightedString(s, highlights, PLUGIN_HIGHLIGHTS);
+	}
+
+	/**
+	 * Returns the html of a result line with the matches of highlights.
+	 *
+	 * @param s the result line
+	 * @param highlights the highlights
+	 * @param matchers the matchers and colors of the highlights
+	 * @return the html
+	 */
+	public static <H> String getHighlightedString(String s, List<? extends H> highlights, HighlightMatchers<H> matchers)
+	{
+		List<HighlightPosition> positions = new LinkedList<>();
+		for (H highlight : highlights)
+			addHighlight(positions, s, highlight, matchers);
 
-		highlights.sort(Comparator.comparingInt(HighlightPosition::getPos));
+		positions.sort(Comparator.comparingInt(HighlightPosition::getPos));
 		StringBuilder sb = new StringBuilder("<html><body>");
 		int i = 0;
-		for (HighlightPosition hlPos : highlights)
+		for (HighlightPosition hlPos : positions)
 		{
 			appendString2html(sb, s.substring(i, hlPos.getPos()));
 			if (hlPos.isStart())
 			{
 				sb.append("<font style bgcolor=\"#");
-				Color c = hlPos.getHighlight().getColor();
+				Color c = hlPos.getColor();
 				sb.append(Integer.toHexString(c.getRGB()).substring(2));
 				sb.append("\">");
 			}
@@ -98,23 +108,30 @@ public class HyperSearchResultValue
 		return sb.toString();
 	}
 
-	private static void addHighlight(Collection<? super HighlightPosition> highlights, String s, Highlight highlight)
+	private static <H> void addHighlight(Collection<? super HighlightPosition> positions,
+					     String s,
+					     H highlight,
+					     HighlightMatchers<H> matchers)
 	{
-		SearchMatcher matcher = highlight.getSearchMatcher();
+		RegionMatcher matcher = matchers.getRegionMatcher(highlight);
+		if (matcher == null)
+			return;
+		Color color = matchers.getColor(highlight);
 		try
 		{
-			SearchMatcher.Match m;
-			int i = 0;
-			while ((m = matcher.nextMatch(s.substring(i), true, true, true, false)) != null)
+			matcher.findAll(s, 0, s.length(), 0, (index, start, end) ->
 			{
-				highlights.add(new HighlightPosition(i + m.start, highlight, true));
-				highlights.add(new HighlightPosition(i + m.end, highlight, false));
-				i += m.end;
-			}
+				positions.add(new HighlightPosition(start, color, true));
+				positions.add(new HighlightPosition(end, color, false));
+			});
 		}
-		catch (InterruptedException ie)
+		catch (PatternSyntaxException | InterruptedException e)
 		{
 		}
+		catch (MatchTimeoutException e)
+		{
+			matchers.quarantine(highlight, e.getElapsed());
+		}
 	}
 
 	private static void appendString2html(StringBuilder sb, CharSequence s)
@@ -149,4 +166,49 @@ public class HyperSearchResultValue
 		}
 	}
 
+	/**
+	 * Gives the matcher and the color of the highlights of a result line.
+	 */
+	public interface HighlightMatchers<H>
+	{
+		/**
+		 * Returns the matcher of a highlight.
+		 *
+		 * @param highlight the highlight
+		 * @return the matcher, or null if the highlight is not matched
+		 */
+		RegionMatcher getRegionMatcher(H highlight);
+
+		Color getColor(H highlight);
+
+		/**
+		 * The highlight exceeded its time budget.
+		 *
+		 * @param highlight the highlight
+		 * @param cost the time spent in ns
+		 */
+		void quarantine(H highlight, long cost);
+	}
+
+	private static class PluginHighlights implements HighlightMatchers<Highlight>
+	{
+		@Override
+		public RegionMatcher getRegionMatcher(Highlight highlight)
+		{
+			return highlight.isQuarantined() ? null : highlight.getRegionMatcher();
+		}
+
+		@Override
+		public Color getColor(Highlight highlight)
+		{
+			return highlight.getColor();
+		}
+
+		@Override
+		public void quarantine(Highlight highlight, long cost)
+		{
+			highlight.quarantine(cost);
+			EventQueue.invokeLater(() -> HighlightManagerTableModel.getInstance().highlightQuarantined(highlight));
+		}
+	}
 }
@@ -0,0 +1,114 @@
+/*
+ * CharSequenceWindow.java - A reusable window over a text
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.matcher;
+
+
+//{{{ Imports
+import javax.swing.text.Segment;
+//}}}
+
+/**
+ * A window over a range of a text that can be moved without allocating,
+ * it replaces the {@link CharSequence#subSequence(int, int)} calls that were
+ * done to feed the rest of a line to a search matcher after each match.
+ * When the text is a {@link Segment} the chars are read directly from its array.
+ *
+ * @author Matthieu Casanova
+ */
+final class CharSequenceWindow implements CharSequence
+{
+	private char[] array;
+	private CharSequence text;
+	/** The offset of the window in the array or in the text. */
+	private int base;
+	private int length;
+
+	//{{{ reset() method
+	/**
+	 * Move the window.
+	 *
+	 * @param text  the text
+	 * @param start the start of the window in the text (inclusive)
+	 * @param end   the end of the window in the text (exclusive)
+	 */
+	void reset(CharSequence text, int start, int end)
+	{
+		if (text instanceof Segment)
+		{
+			Segment segment = (Segment) text;
+			array = segment.array;
+			this.text = null;
+			base = segment.offset + start;
+		}
+		else
+		{
+			array = null;
+			this.text = text;
+			base = start;
+		}
+		length = end - start;
+	} //}}}
+
+	//{{{ release() method
+	/**
+	 * Forget the text so it can be garbage collected.
+	 */
+	void release()
+	{
+		array = null;
+		text = null;
+		length = 0;
+	} //}}}
+
+	//{{{ CharSequence methods
+	@Override
+	public int length()
+	{
+		return length;
+	}
+
+	@Override
+	public char charAt(int index)
+	{
+		if (index < 0 || index >= length)
+			throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+		return array == null ? text.charAt(base + index) : array[base + index];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end)
+	{
+		if (start < 0 || end > length || start > end)
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+		if (array == null)
+			return text.subSequence(base + start, base + end);
+		return new Segment(array, base + start, end - start);
+	}
+
+	@Override
+	public String toString()
+	{
+		if (array == null)
+			return text.subSequence(base, base + length).toString();
+		return new String(array, base, length);
+	} //}}}
+}
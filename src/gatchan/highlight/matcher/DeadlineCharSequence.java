@@ -0,0 +1,98 @@
+/*
+ * DeadlineCharSequence.java - A text that stops the regexp evaluation after a deadline
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.matcher;
+
+
+/**
+ * A text that checks the time while a regular expression reads it and throws a
+ * {@link MatchTimeoutException} once the deadline is passed.
+ * {@link java.util.regex.Matcher} cannot be interrupted, but even a catastrophic
+ * backtracking keeps reading chars, so it will be stopped there.
+ * The time is checked every {@link #CHECK_INTERVAL} chars to keep the cost low.
+ *
+ * @author Matthieu Casanova
+ */
+final class DeadlineCharSequence implements CharSequence
+{
+	private static final int CHECK_INTERVAL = 1024;
+
+	private CharSequence text;
+	private long start;
+	private long deadline;
+	private int countdown;
+
+	//{{{ reset() method
+	/**
+	 * Wrap a text and start the clock.
+	 *
+	 * @param text   the text
+	 * @param budget the time budget in ns
+	 */
+	void reset(CharSequence text, long budget)
+	{
+		this.text = text;
+		start = System.nanoTime();
+		deadline = start + budget;
+		countdown = CHECK_INTERVAL;
+	} //}}}
+
+	//{{{ release() method
+	/**
+	 * Forget the text so it can be garbage collected.
+	 */
+	void release()
+	{
+		text = null;
+	} //}}}
+
+	//{{{ CharSequence methods
+	@Override
+	public int length()
+	{
+		return text.length();
+	}
+
+	@Override
+	public char charAt(int index)
+	{
+		if (--countdown == 0)
+		{
+			countdown = CHECK_INTERVAL;
+			long now = System.nanoTime();
+			if (now - deadline > 0L)
+				throw new MatchTimeoutException(now - start);
+		}
+		return text.charAt(index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end)
+	{
+		return text.subSequence(start, end);
+	}
+
+	@Override
+	public String toString()
+	{
+		return text.toString();
+	} //}}}
+}
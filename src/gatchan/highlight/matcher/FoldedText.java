@@ -0,0 +1,117 @@
+/*
+ * FoldedText.java - A case folded copy of a text
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.matcher;
+
+/**
+ * A copy of a text where every char is folded with {@link #fold(char)}, the
+ * offsets are the same as in the original text.
+ * Folding a line once lets all the ignore case literal matchers compare it
+ * case sensitively against folded patterns instead of folding every char they
+ * read. The buffer is reused, folding a text allocates only if it is longer
+ * than all the previous ones.
+ * <p>
+ * Only literals can be matched on a folded text, the meaning of a regexp
+ * would change.
+ *
+ * @author Matthieu Casanova
+ */
+public final class FoldedText implements CharSequence
+{
+	private char[] chars = new char[256];
+	private int length;
+
+	//{{{ fold() methods
+	/**
+	 * Fold a char like the ignore case {@link org.gjt.sp.jedit.search.BoyerMooreSearchMatcher} does.
+	 *
+	 * @param c the char
+	 * @return the folded char
+	 */
+	public static char fold(char c)
+	{
+		return Character.toUpperCase(c);
+	}
+
+	/**
+	 * Fold a pattern char by char, unlike {@link String#toUpperCase()} it keeps its length.
+	 *
+	 * @param s the pattern
+	 * @return the folded pattern
+	 */
+	public static String fold(String s)
+	{
+		char[] folded = s.toCharArray();
+		for (int i = 0; i < folded.length; i++)
+			folded[i] = fold(folded[i]);
+		return new String(folded);
+	}
+
+	/**
+	 * Replace the content with the folded copy of a text.
+	 *
+	 * @param text the text
+	 */
+	public void reset(CharSequence text)
+	{
+		length = text.length();
+		if (chars.length < length)
+			chars = new char[Math.max(length, chars.length << 1)];
+		for (int i = 0; i < length; i++)
+			chars[i] = fold(text.charAt(i));
+	} //}}}
+
+	//{{{ getChars() method
+	/**
+	 * Returns the folded chars, only the first {@link #length()} ones are valid.
+	 */
+	char[] getChars()
+	{
+		return chars;
+	} //}}}
+
+	//{{{ CharSequence methods
+	@Override
+	public int length()
+	{
+		return length;
+	}
+
+	@Override
+	public char charAt(int index)
+	{
+		if (index < 0 || index >= length)
+			throw new IndexOutOfBoundsException(index);
+		return chars[index];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end)
+	{
+		return new String(chars, start, end - start);
+	}
+
+	@Override
+	public String toString()
+	{
+		return new String(chars, 0, length);
+	} //}}}
+}
@@ -0,0 +1,282 @@
+/*
+ * LiteralAutomaton.java - An Aho-Corasick automaton for literal highlights
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.matcher;
+
+//{{{ Imports
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+//}}}
+
+/**
+ * An Aho-Corasick automaton that finds all the occurrences of a set of literal
+ * patterns in one pass over the text.
+ * The matches of a pattern are reported like successive calls to
+ * {@link org.gjt.sp.jedit.search.BoyerMooreSearchMatcher} would report them:
+ * leftmost first and never overlapping another match of the same pattern.
+ * Ignore case patterns are compared with {@link FoldedText#fold(char)}
+ * like the BoyerMooreSearchMatcher does.
+ * <p>
+ * An automaton is immutable once built but the matching state is not shared
+ * between threads, it must only be used by one thread at a time.
+ *
+ * @author Matthieu Casanova
+ */
+public final class LiteralAutomaton
+{
+	private static final int ASCII = 128;
+	private static final int[] NO_OUTPUT = new int[0];
+
+	/** The patterns as given, used to check case sensitive patterns. */
+	private final char[][] patterns;
+	private final boolean[] ignoreCase;
+
+	/** The sorted folded chars leaving each node. */
+	private final char[][] keys;
+	/** The target node for each key. */
+	private final int[][] targets;
+	/** Dense transitions for the root node and ascii chars. */
+	private final int[] rootAscii;
+	private final int[] fail;
+	/** The patterns ending on each node. */
+	private final int[][] outputs;
+	/** The nearest node on the fail chain having outputs, 0 if there is none. */
+	private final int[] dictionaryLink;
+
+	/** The end of the last reported match per pattern. */
+	private final int[] lastEnd;
+	/** The pass in which {@link #lastEnd} was written. */
+	private final int[] lastEndStamp;
+	private int stamp;
+
+	//{{{ LiteralAutomaton constructor
+	/**
+	 * Build an automaton.
+	 *
+	 * @param patterns   the patterns, none of them can be empty
+	 * @param ignoreCase for each pattern true if the case must be ignored
+	 */
+	public LiteralAutomaton(List<String> patterns, boolean[] ignoreCase)
+	{
+		int patternCount = patterns.size();
+		this.patterns = new char[patternCount][];
+		this.ignoreCase = ignoreCase.clone();
+		lastEnd = new int[patternCount];
+		lastEndStamp = new int[patternCount];
+
+		List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+		List<List<Integer>> nodeOutputs = new ArrayList<>();
+		trie.add(new TreeMap<>());
+		nodeOutputs.add(new ArrayList<>());
+		for (int p = 0; p < patternCount; p++)
+		{
+			char[] pattern = patterns.get(p).toCharArray();
+			if (pattern.length == 0)
+				throw new IllegalArgumentException("The pattern cannot be empty");
+			this.patterns[p] = pattern;
+			int node = 0;
+			for (char c : pattern)
+			{
+				Integer next = trie.get(node).get(fold(c));
+				if (next == null)
+				{
+					next = trie.size();
+					trie.add(new TreeMap<>());
+					nodeOutputs.add(new ArrayList<>());
+					trie.get(node).put(fold(c), next);
+				}
+				node = next;
+			}
+			nodeOutputs.get(node).add(p);
+		}
+
+		int nodeCount = trie.size();
+		keys = new char[nodeCount][];
+		targets = new int[nodeCount][];
+		outputs = new int[nodeCount][];
+		fail = new int[nodeCount];
+		dictionaryLink = new int[nodeCount];
+		for (int node = 0; node < nodeCount; node++)
+		{
+			Map<Character, Integer> transitions = trie.get(node);
+			char[] nodeKeys = new char[transitions.size()];
+			int[] nodeTargets = new int[transitions.size()];
+			int i = 0;
+			for (Map.Entry<Character, Integer> entry : transitions.entrySet())
+			{
+				nodeKeys[i] = entry.getKey();
+				nodeTargets[i] = entry.getValue();
+				i++;
+			}
+			keys[node] = nodeKeys;
+			targets[node] = nodeTargets;
+			List<Integer> out = nodeOutputs.get(node);
+			outputs[node] = out.isEmpty() ? NO_OUTPUT : out.stream().mapToInt(Integer::intValue).toArray();
+		}
+
+		rootAscii = new int[ASCII];
+		for (int i = 0; i < keys[0].length; i++)
+		{
+			if (keys[0][i] < ASCII)
+				rootAscii[keys[0][i]] = targets[0][i];
+		}
+
+		// breadth first computation of the fail links
+		Deque<Integer> queue = new ArrayDeque<>();
+		for (int child : targets[0])
+		{
+			fail[child] = 0;
+			queue.add(child);
+		}
+		while (!queue.isEmpty())
+		{
+			int node = queue.poll();
+			char[] nodeKeys = keys[node];
+			int[] nodeTargets = targets[node];
+			for (int i = 0; i < nodeKeys.length; i++)
+			{
+				int child = nodeTargets[i];
+				int f = fail[node];
+				int next;
+				while ((next = transition(f, nodeKeys[i])) == -1 && f != 0)
+					f = fail[f];
+				fail[child] = next == -1 ? 0 : next;
+				dictionaryLink[child] = outputs[fail[child]].length != 0 ? fail[child] : dictionaryLink[fail[child]];
+				queue.add(child);
+			}
+		}
+	} //}}}
+
+	//{{{ getPatternCount() method
+	public int getPatternCount()
+	{
+		return patterns.length;
+	} //}}}
+
+	//{{{ match() methods
+	/**
+	 * Find all the occurrences of the patterns in a range of the text.
+	 * The offsets given to the handler are relative to the text, not to the
+	 * start of the range.
+	 *
+	 * @param text    the text
+	 * @param start   the start offset in the text (inclusive)
+	 * @param end     the end offset in the text (exclusive)
+	 * @param handler the handler that will receive (pattern, start, end) for each match
+	 */
+	public void match(CharSequence text, int start, int end, MatchHandler handler)
+	{
+		match(text, null, start, end, handler);
+	}
+
+	/**
+	 * Find all the occurrences of the patterns in a range of the text, reading
+	 * the folded chars from a folded copy of the text instead of folding them.
+	 *
+	 * @param text    the text
+	 * @param folded  the folded copy of the text, or null to fold the chars of the text
+	 * @param start   the start offset in the text (inclusive)
+	 * @param end     the end offset in the text (exclusive)
+	 * @param handler the handler that will receive (pattern, start, end) for each match
+	 */
+	public void match(CharSequence text, FoldedText folded, int start, int end, MatchHandler handler)
+	{
+		int pass = nextStamp();
+		int state = 0;
+		for (int i = start; i < end; i++)
+		{
+			char c = folded == null ? fold(text.charAt(i)) : folded.charAt(i);
+			int next;
+			while ((next = transition(state, c)) == -1 && state != 0)
+				state = fail[state];
+			state = next == -1 ? 0 : next;
+			int node = outputs[state].length != 0 ? state : dictionaryLink[state];
+			while (node != 0)
+			{
+				for (int pattern : outputs[node])
+					report(text, pattern, i + 1, pass, handler);
+				node = dictionaryLink[node];
+			}
+		}
+	} //}}}
+
+	//{{{ report() method
+	private void report(CharSequence text, int pattern, int matchEnd, int pass, MatchHandler handler)
+	{
+		char[] chars = patterns[pattern];
+		int matchStart = matchEnd - chars.length;
+		if (lastEndStamp[pattern] == pass && matchStart < lastEnd[pattern])
+			return;
+		if (!ignoreCase[pattern])
+		{
+			for (int j = 0; j < chars.length; j++)
+			{
+				if (text.charAt(matchStart + j) != chars[j])
+					return;
+			}
+		}
+		lastEnd[pattern] = matchEnd;
+		lastEndStamp[pattern] = pass;
+		handler.match(pattern, matchStart, matchEnd);
+	} //}}}
+
+	//{{{ nextStamp() method
+	private int nextStamp()
+	{
+		if (++stamp == 0)
+		{
+			// wrapped, the old stamps could be confused with the new ones
+			Arrays.fill(lastEndStamp, 0);
+			stamp = 1;
+		}
+		return stamp;
+	} //}}}
+
+	//{{{ transition() method
+	/**
+	 * Returns the node reached from a node with a folded char.
+	 *
+	 * @param node the node
+	 * @param c    the folded char
+	 * @return the next node or -1 if there is no transition
+	 */
+	private int transition(int node, char c)
+	{
+		if (node == 0 && c < ASCII)
+		{
+			int next = rootAscii[c];
+			return next == 0 ? -1 : next;
+		}
+		int index = Arrays.binarySearch(keys[node], c);
+		return index < 0 ? -1 : targets[node][index];
+	} //}}}
+
+	//{{{ fold() method
+	private static char fold(char c)
+	{
+		return FoldedText.fold(c);
+	} //}}}
+}
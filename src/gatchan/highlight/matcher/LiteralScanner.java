@@ -0,0 +1,244 @@
+/*
+ * LiteralScanner.java - Finds a short literal using the vector instructions
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.matcher;
+
+//{{{ Imports
+import org.gjt.sp.util.Log;
+
+import javax.swing.text.Segment;
+import java.lang.reflect.Constructor;
+//}}}
+
+/**
+ * Finds the occurrences of a short literal, reporting them like
+ * {@link org.gjt.sp.jedit.search.BoyerMooreSearchMatcher} does: leftmost first,
+ * the ignore case comparison being done with {@link FoldedText#fold(char)}.
+ * <p>
+ * With a pattern of a few chars Boyer-Moore skips very little, the vector
+ * implementation compares the first and the last char of the pattern at many
+ * offsets at once and only checks the whole pattern where both match.
+ * It is written with the jdk.incubator.vector module, compiled separately
+ * and loaded by reflection: {@link #create(String, boolean)} returns null if the
+ * module is not available (jEdit must be started with
+ * <code>--add-modules jdk.incubator.vector</code>) or if the pattern is not a good
+ * fit, the caller then keeps the scalar Boyer-Moore search.
+ * <p>
+ * A scanner keeps a buffer, it must only be used by one thread at a time.
+ *
+ * @author Matthieu Casanova
+ */
+public abstract class LiteralScanner
+{
+	/** The shortest pattern for which the vector search is used. */
+	public static final int MIN_LENGTH = 2;
+	/** The longest pattern for which the vector search is used, Boyer-Moore is better above. */
+	public static final int MAX_LENGTH = 8;
+
+	private static final String VECTOR_SCANNER = "gatchan.highlight.matcher.VectorLiteralScanner";
+	private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+	/** The constructor of the vector implementation, null if it is not available. */
+	private static final Constructor<? extends LiteralScanner> vectorConstructor = loadVectorScanner();
+
+	/** The pattern, folded if the case is ignored. */
+	protected final char[] pattern;
+	protected final boolean ignoreCase;
+
+	/** The copy of the texts that are neither a {@link Segment} nor a {@link FoldedText}. */
+	private char[] buffer = new char[256];
+
+	//{{{ LiteralScanner constructor
+	/**
+	 * Create a scanner.
+	 *
+	 * @param pattern    the pattern
+	 * @param ignoreCase true if the case must be ignored
+	 */
+	protected LiteralScanner(String pattern, boolean ignoreCase)
+	{
+		this.pattern = (ignoreCase ? FoldedText.fold(pattern) : pattern).toCharArray();
+		this.ignoreCase = ignoreCase;
+	} //}}}
+
+	//{{{ create() method
+	/**
+	 * Create the fastest scanner available for a literal.
+	 *
+	 * @param pattern    the pattern
+	 * @param ignoreCase true if the case must be ignored
+	 * @return the scanner, or null if the Boyer-Moore search should be used
+	 */
+	public static LiteralScanner create(String pattern, boolean ignoreCase)
+	{
+		if (vectorConstructor == null || pattern.length() < MIN_LENGTH || pattern.length() > MAX_LENGTH)
+			return null;
+		try
+		{
+			return vectorConstructor.newInstance(pattern, ignoreCase);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			// the pattern is not supported, for example an ignore case non ascii char
+			return null;
+		}
+	} //}}}
+
+	//{{{ isVectorAvailable() method
+	/**
+	 * Returns true if the vector implementation could be loaded.
+	 *
+	 * @return true if the vector search is used
+	 */
+	public static boolean isVectorAvailable()
+	{
+		return vectorConstructor != null;
+	} //}}}
+
+	//{{{ getLength() method
+	public int getLength()
+	{
+		return pattern.length;
+	} //}}}
+
+	//{{{ indexOf() method
+	/**
+	 * Returns the first occurrence of the pattern in a range of a text.
+	 *
+	 * @param text  the text
+	 * @param start the start offset in the text (inclusive)
+	 * @param end   the end offset in the text (exclusive)
+	 * @return the offset of the occurrence in the text, or -1 if there is none
+	 */
+	public int indexOf(CharSequence text, int start, int end)
+	{
+		char[] array;
+		int base;
+		if (text instanceof Segment)
+		{
+			Segment segment = (Segment) text;
+			array = segment.array;
+			base = segment.offset;
+		}
+		else if (text instanceof FoldedText)
+		{
+			array = ((FoldedText) text).getChars();
+			base = 0;
+		}
+		else
+		{
+			int length = end - start;
+			if (buffer.length < length)
+				buffer = new char[Math.max(length, buffer.length << 1)];
+			if (text instanceof String)
+			{
+				((String) text).getChars(start, end, buffer, 0);
+			}
+			else
+			{
+				for (int i = 0; i < length; i++)
+					buffer[i] = text.charAt(start + i);
+			}
+			array = buffer;
+			base = -start;
+		}
+		int index = indexOf(array, base + start, base + end);
+		return index == -1 ? -1 : index - base;
+	}
+
+	/**
+	 * Returns the first occurrence of the pattern in a range of an array.
+	 *
+	 * @param array the chars
+	 * @param from  the start index (inclusive)
+	 * @param to    the end index (exclusive)
+	 * @return the index of the occurrence, or -1 if there is none
+	 */
+	protected abstract int indexOf(char[] array, int from, int to);
+	//}}}
+
+	//{{{ scalarIndexOf() method
+	/**
+	 * Returns the first occurrence of the pattern in a range of an array
+	 * without vector instructions, used for the tail of the range.
+	 *
+	 * @param array the chars
+	 * @param from  the start index (inclusive)
+	 * @param to    the end index (exclusive)
+	 * @return the index of the occurrence, or -1 if there is none
+	 */
+	protected final int scalarIndexOf(char[] array, int from, int to)
+	{
+		for (int i = from, last = to - pattern.length; i <= last; i++)
+		{
+			if (matchesAt(array, i))
+				return i;
+		}
+		return -1;
+	} //}}}
+
+	//{{{ matchesAt() method
+	/**
+	 * Check if the whole pattern is found at an index.
+	 *
+	 * @param array the chars
+	 * @param index the index, there must be at least a pattern length of chars after it
+	 * @return true if the pattern is found
+	 */
+	protected final boolean matchesAt(char[] array, int index)
+	{
+		if (ignoreCase)
+		{
+			for (int j = 0; j < pattern.length; j++)
+			{
+				if (FoldedText.fold(array[index + j]) != pattern[j])
+					return false;
+			}
+		}
+		else
+		{
+			for (int j = 0; j < pattern.length; j++)
+			{
+				if (array[index + j] != pattern[j])
+					return false;
+			}
+		}
+		return true;
+	} //}}}
+
+	//{{{ loadVectorScanner() method
+	private static Constructor<? extends LiteralScanner> loadVectorScanner()
+	{
+		if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty())
+			return null;
+		try
+		{
+			Class<? extends LiteralScanner> scannerClass = Class.forName(VECTOR_SCANNER, true,
+				LiteralScanner.class.getClassLoader()).asSubclass(LiteralScanner.class);
+			return scannerClass.getConstructor(String.class, boolean.class);
+		}
+		catch (ReflectiveOperationException | LinkageError e)
+		{
+			Log.log(Log.WARNING, LiteralScanner.class, "The vector literal search is not available: " + e);
+			return null;
+		}
+	} //}}}
+}
@@ -0,0 +1,43 @@
+/*
+ * MatchHandler.java - Receives the matches of a highlight
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.matcher;
+
+
+/**
+ * Receives the matches found in a text.
+ * The matchers call it for each match instead of returning objects so walking
+ * all the matches of a line does not allocate anything.
+ *
+ * @author Matthieu Casanova
+ */
+@FunctionalInterface
+public interface MatchHandler
+{
+	/**
+	 * A match was found.
+	 *
+	 * @param index the index of what matched, a pattern or a highlight depending on the matcher
+	 * @param start the start offset of the match
+	 * @param end   the end offset of the match
+	 */
+	void match(int index, int start, int end);
+}
@@ -0,0 +1,57 @@
+/*
+ * MatchTimeoutException.java - A regexp evaluation took too long
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.matcher;
+
+
+/**
+ * Thrown when the evaluation of a regular expression exceeded its time budget.
+ *
+ * @author Matthieu Casanova
+ */
+public class MatchTimeoutException extends RuntimeException
+{
+	private final long elapsed;
+
+	//{{{ MatchTimeoutException constructor
+	/**
+	 * Create the exception.
+	 *
+	 * @param elapsed the time spent in the evaluation in ns
+	 */
+	public MatchTimeoutException(long elapsed)
+	{
+		// no stack trace, the exception is expected and only tells the caller to stop
+		super("The regexp evaluation took " + elapsed / 1000000L + "ms", null, false, false);
+		this.elapsed = elapsed;
+	} //}}}
+
+	//{{{ getElapsed() method
+	/**
+	 * Returns the time spent in the evaluation before it was stopped.
+	 *
+	 * @return the elapsed time in ns
+	 */
+	public long getElapsed()
+	{
+		return elapsed;
+	} //}}}
+}
@@ -0,0 +1,271 @@
+/*
+ * RegionMatcher.java - Finds the matches of a highlight in a range of a text
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.matcher;
+
+
+//{{{ Imports
+import org.gjt.sp.jedit.search.SearchMatcher;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+//}}}
+
+/**
+ * Walks all the matches of a highlight in a range of a text using offsets, without
+ * allocating anything per match or per line.
+ * Regular expressions are matched with a {@link Matcher} that is reset on each
+ * text, the short literals are found by a {@link LiteralScanner} and the other
+ * matchers are given a {@link CharSequenceWindow} that is moved after each match.
+ * <p>
+ * A RegionMatcher keeps its matching state, it must only be used by one thread at a time.
+ *
+ * @author Matthieu Casanova
+ */
+public final class RegionMatcher
+{
+	private final Matcher matcher;
+	private final SearchMatcher searchMatcher;
+	private final LiteralScanner scanner;
+	private final CharSequenceWindow window;
+	/** The literals a match of the regexp must contain, null if they are not known. */
+	private final RequiredLiterals requiredLiterals;
+
+	/** The text given to the regexp when it has a time budget. */
+	private DeadlineCharSequence deadlineText;
+	/** The time budget of a regexp evaluation in ns, 0 if there is no limit. */
+	private long timeBudget;
+
+	//{{{ RegionMatcher constructors
+	/**
+	 * Create a region matcher for a regular expression.
+	 *
+	 * @param pattern the pattern
+	 */
+	public RegionMatcher(Pattern pattern)
+	{
+		this(pattern, null);
+	}
+
+	/**
+	 * Create a region matcher for a regular expression with a prefilter.
+	 * The ranges that contain none of the required literals are rejected
+	 * without running the regexp.
+	 *
+	 * @param pattern          the pattern
+	 * @param requiredLiterals the literals every match contains, or null
+	 */
+	public RegionMatcher(Pattern pattern, RequiredLiterals requiredLiterals)
+	{
+		matcher = pattern.matcher("");
+		searchMatcher = null;
+		scanner = null;
+		window = null;
+		this.requiredLiterals = requiredLiterals;
+	}
+
+	/**
+	 * Create a region matcher for a jEdit search matcher.
+	 *
+	 * @param searchMatcher the search matcher
+	 */
+	public RegionMatcher(SearchMatcher searchMatcher)
+	{
+		matcher = null;
+		this.searchMatcher = searchMatcher;
+		scanner = null;
+		window = new CharSequenceWindow();
+		requiredLiterals = null;
+	}
+
+	/**
+	 * Create a region matcher for a literal scanner.
+	 *
+	 * @param scanner the scanner
+	 */
+	public RegionMatcher(LiteralScanner scanner)
+	{
+		matcher = null;
+		searchMatcher = null;
+		this.scanner = scanner;
+		window = null;
+		requiredLiterals = null;
+	} //}}}
+
+	//{{{ getFlags() method
+	/**
+	 * Returns the flags used by jEdit to compile a regular expression search.
+	 *
+	 * @param ignoreCase true if the case must be ignored
+	 * @return the pattern flags
+	 */
+	public static int getFlags(boolean ignoreCase)
+	{
+		int flags = Pattern.MULTILINE;
+		if (ignoreCase)
+			flags |= Pattern.CASE_INSENSITIVE;
+		return flags;
+	} //}}}
+
+	//{{{ setTimeBudget() method
+	/**
+	 * Set the maximum time an evaluation of the regular expression can take.
+	 * It has no effect on the other matchers.
+	 *
+	 * @param timeBudget the time budget in ns, 0 for no limit
+	 */
+	public void setTimeBudget(long timeBudget)
+	{
+		this.timeBudget = timeBudget;
+	} //}}}
+
+	//{{{ findAll() method
+	/**
+	 * Find all the matches in a range of a text, a match never overlaps the
+	 * previous one and empty matches are ignored.
+	 * The offsets given to the handler are relative to the text, not to the
+	 * start of the range.
+	 *
+	 * @param text    the text
+	 * @param start   the start offset (inclusive)
+	 * @param end     the end offset (exclusive)
+	 * @param index   the index given to the handler
+	 * @param handler the handler that will receive the matches
+	 * @throws InterruptedException if the search matcher was interrupted
+	 * @throws MatchTimeoutException if the regexp exceeded its time budget
+	 */
+	public void findAll(CharSequence text, int start, int end, int index, MatchHandler handler)
+		throws InterruptedException
+	{
+		if (matcher != null)
+		{
+			if (requiredLiterals != null && !requiredLiterals.mayMatch(text, start, end))
+				return;
+			matcher.reset(withDeadline(text)).region(start, end);
+			try
+			{
+				while (matcher.find())
+				{
+					if (matcher.end() != matcher.start())
+						handler.match(index, matcher.start(), matcher.end());
+				}
+			}
+			finally
+			{
+				matcher.reset("");
+				if (deadlineText != null)
+					deadlineText.release();
+			}
+			return;
+		}
+
+		if (scanner != null)
+		{
+			int length = scanner.getLength();
+			int offset = start;
+			int found;
+			while ((found = scanner.indexOf(text, offset, end)) != -1)
+			{
+				handler.match(index, found, found + length);
+				offset = found + length;
+			}
+			return;
+		}
+
+		try
+		{
+			int offset = start;
+			SearchMatcher.Match match = null;
+			while (offset < end)
+			{
+				window.reset(text, offset, end);
+				match = searchMatcher.nextMatch(window, offset == start, true, match == null, false);
+				if (match == null || match.end == match.start)
+					break;
+				handler.match(index, offset + match.start, offset + match.end);
+				offset += match.end;
+			}
+		}
+		finally
+		{
+			window.release();
+		}
+	} //}}}
+
+	//{{{ find() method
+	/**
+	 * Check if there is a match in a range of a text.
+	 *
+	 * @param text  the text
+	 * @param start the start offset (inclusive)
+	 * @param end   the end offset (exclusive)
+	 * @return true if there is a match
+	 * @throws InterruptedException if the search matcher was interrupted
+	 * @throws MatchTimeoutException if the regexp exceeded its time budget
+	 */
+	public boolean find(CharSequence text, int start, int end) throws InterruptedException
+	{
+		if (matcher != null)
+		{
+			if (requiredLiterals != null && !requiredLiterals.mayMatch(text, start, end))
+				return false;
+			matcher.reset(withDeadline(text)).region(start, end);
+			try
+			{
+				return matcher.find();
+			}
+			finally
+			{
+				matcher.reset("");
+				if (deadlineText != null)
+					deadlineText.release();
+			}
+		}
+
+		if (scanner != null)
+			return scanner.indexOf(text, start, end) != -1;
+
+		window.reset(text, start, end);
+		try
+		{
+			return searchMatcher.nextMatch(window, true, true, true, false) != null;
+		}
+		finally
+		{
+			window.release();
+		}
+	} //}}}
+
+	//{{{ withDeadline() method
+	/**
+	 * Returns the text to give to the regexp, wrapped in a deadline check if
+	 * there is a time budget.
+	 */
+	private CharSequence withDeadline(CharSequence text)
+	{
+		if (timeBudget <= 0L)
+			return text;
+		if (deadlineText == null)
+			deadlineText = new DeadlineCharSequence();
+		deadlineText.reset(text, timeBudget);
+		return deadlineText;
+	} //}}}
+}
@@ -0,0 +1,542 @@
+/*
+ * RequiredLiterals.java - The literals a regexp match must contain
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.matcher;
+
+//{{{ Imports
+import java.util.ArrayList;
+import java.util.List;
+//}}}
+
+/**
+ * A set of literals such that every match of a regular expression contains at
+ * least one of them, used to reject the lines that cannot match with a plain
+ * scan before running the regexp.
+ * For <code>ERROR\s+\[(\w+)\]</code> it is <code>ERROR</code>, for
+ * <code>foo\d+|bar</code> it is <code>foo</code> or <code>bar</code>.
+ * <p>
+ * The analysis is conservative: groups, classes, optional atoms and the
+ * unknown constructs end the literal being read, and if any alternative has
+ * no literal of {@link #MIN_LENGTH} chars there is no prefilter at all.
+ * The comparison ignores the case of the ascii letters only, like
+ * {@link java.util.regex.Pattern#CASE_INSENSITIVE} does without
+ * {@link java.util.regex.Pattern#UNICODE_CASE}, so there is no prefilter for
+ * the regexps enabling it with an inline <code>u</code> or <code>U</code> flag.
+ *
+ * @author Matthieu Casanova
+ */
+public final class RequiredLiterals
+{
+	/** The literals shorter than that would reject too few lines. */
+	private static final int MIN_LENGTH = 2;
+
+	/** The literals with their ascii letters lower cased if the case is ignored. */
+	private final char[][] lower;
+	/** The literals with their ascii letters upper cased if the case is ignored. */
+	private final char[][] upper;
+
+	//{{{ RequiredLiterals constructor
+	private RequiredLiterals(List<String> literals, boolean ignoreCase)
+	{
+		int count = literals.size();
+		lower = new char[count][];
+		upper = new char[count][];
+		for (int i = 0; i < count; i++)
+		{
+			lower[i] = literals.get(i).toCharArray();
+			upper[i] = lower[i].clone();
+			if (ignoreCase)
+			{
+				for (int j = 0; j < lower[i].length; j++)
+				{
+					char c = lower[i][j];
+					if (c >= 'A' && c <= 'Z')
+						lower[i][j] = (char) (c + ('a' - 'A'));
+					else if (c >= 'a' && c <= 'z')
+						upper[i][j] = (char) (c - ('a' - 'A'));
+				}
+			}
+		}
+	} //}}}
+
+	//{{{ extract() method
+	/**
+	 * Find the literals required by a regular expression.
+	 *
+	 * @param regexp     the regular expression
+	 * @param ignoreCase true if the regexp is compiled with CASE_INSENSITIVE
+	 * @return the required literals or null if they cannot be found
+	 */
+	public static RequiredLiterals extract(String regexp, boolean ignoreCase)
+	{
+		Parser parser = new Parser(regexp, ignoreCase);
+		List<String> literals = parser.parse();
+		if (literals == null)
+			return null;
+		return new RequiredLiterals(literals, parser.ignoreCase);
+	} //}}}
+
+	//{{{ mayMatch() method
+	/**
+	 * Check if a range of a text contains one of the literals.
+	 *
+	 * @param text  the text
+	 * @param start the start offset (inclusive)
+	 * @param end   the end offset (exclusive)
+	 * @return false if the regexp cannot match in the range
+	 */
+	public boolean mayMatch(CharSequence text, int start, int end)
+	{
+		for (int i = 0; i < lower.length; i++)
+		{
+			if (contains(text, start, end, lower[i], upper[i]))
+				return true;
+		}
+		return false;
+	} //}}}
+
+	//{{{ contains() method
+	private static boolean contains(CharSequence text, int start, int end, char[] lower, char[] upper)
+	{
+		int last = end - lower.length;
+		char firstLower = lower[0];
+		char firstUpper = upper[0];
+		for (int i = start; i <= last; i++)
+		{
+			char c = text.charAt(i);
+			if (c != firstLower && c != firstUpper)
+				continue;
+			int j = 1;
+			while (j < lower.length)
+			{
+				c = text.charAt(i + j);
+				if (c != lower[j] && c != upper[j])
+					break;
+				j++;
+			}
+			if (j == lower.length)
+				return true;
+		}
+		return false;
+	} //}}}
+
+	//{{{ toString() method
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder("RequiredLiterals[");
+		for (int i = 0; i < lower.length; i++)
+		{
+			if (i != 0)
+				builder.append('|');
+			builder.append(lower[i]);
+		}
+		return builder.append(']').toString();
+	} //}}}
+
+	//{{{ Parser class
+	/**
+	 * Reads the top level sequence of each alternative of a regexp and keeps
+	 * its longest run of literal chars that are not optional.
+	 */
+	private static final class Parser
+	{
+		private final String regexp;
+		private final int length;
+		private int pos;
+		private boolean failed;
+		/** True if the case is ignored by the flags or an inline (?i). */
+		private boolean ignoreCase;
+
+		//{{{ Parser constructor
+		Parser(String regexp, boolean ignoreCase)
+		{
+			this.regexp = regexp;
+			length = regexp.length();
+			this.ignoreCase = ignoreCase;
+		} //}}}
+
+		//{{{ parse() method
+		/**
+		 * Returns the longest required literal of each alternative.
+		 *
+		 * @return the literals or null if an alternative has none
+		 */
+		List<String> parse()
+		{
+			List<String> literals = new ArrayList<>();
+			while (true)
+			{
+				String literal = parseBranch();
+				if (failed || literal.length() < MIN_LENGTH)
+					return null;
+				literals.add(literal);
+				if (pos >= length)
+					return literals;
+				// skip the '|'
+				pos++;
+			}
+		} //}}}
+
+		//{{{ parseBranch() method
+		private String parseBranch()
+		{
+			StringBuilder run = new StringBuilder();
+			String best = "";
+			while (pos < length && !failed)
+			{
+				char c = regexp.charAt(pos);
+				if (c == '|')
+					break;
+				// the offset of the quantified atom in the run if it is a literal char
+				int atom = run.length();
+				boolean literal = true;
+				switch (c)
+				{
+					case '\\':
+						literal = readEscape(run);
+						atom = run.length() - 1;
+						break;
+					case '[':
+						skipClass();
+						literal = false;
+						break;
+					case '(':
+						literal = false;
+						if (readInlineFlags())
+							continue;
+						skipGroup();
+						break;
+					case '.':
+					case '^':
+					case '$':
+						pos++;
+						literal = false;
+						break;
+					case '*':
+					case '+':
+					case '?':
+					case '{':
+						// a quantifier without atom
+						failed = true;
+						return best;
+					default:
+						run.append(c);
+						pos++;
+				}
+				int min = readQuantifier();
+				if (min == 0 && literal)
+					// the atom is optional
+					run.setLength(atom);
+				if (min != -1 || !literal)
+				{
+					// the run cannot continue after a repeated or non literal atom
+					best = longest(best, run);
+					run.setLength(0);
+				}
+			}
+			return longest(best, run);
+		} //}}}
+
+		//{{{ readEscape() method
+		/**
+		 * Read an escape sequence.
+		 *
+		 * @param run the run receiving the literal chars
+		 * @return true if the escape is a literal, false if it must end the run
+		 */
+		private boolean readEscape(StringBuilder run)
+		{
+			pos++;
+			if (pos >= length)
+			{
+				failed = true;
+				return false;
+			}
+			char e = regexp.charAt(pos++);
+			if (!Character.isLetterOrDigit(e))
+			{
+				run.append(e);
+				return true;
+			}
+			switch (e)
+			{
+				case 't':
+					run.append('\t');
+					return true;
+				case 'n':
+					run.append('\n');
+					return true;
+				case 'r':
+					run.append('\r');
+					return true;
+				case 'f':
+					run.append('\f');
+					return true;
+				case 'a':
+					run.append('\u0007');
+					return true;
+				case 'e':
+					run.append('\u001B');
+					return true;
+				case 'Q':
+					int quoteEnd = regexp.indexOf("\\E", pos);
+					if (quoteEnd == -1)
+						quoteEnd = length;
+					if (quoteEnd == pos)
+					{
+						// an empty quote is not an atom, do not guess what a quantifier would apply to
+						failed = true;
+						return false;
+					}
+					run.append(regexp, pos, quoteEnd);
+					pos = Math.min(quoteEnd + 2, length);
+					return true;
+				case 'p':
+				case 'P':
+				case 'x':
+				case 'N':
+				case 'b':
+					if (pos < length && regexp.charAt(pos) == '{')
+						skipPast('}');
+					else if (e == 'x')
+						pos += 2;
+					else if (e == 'p' || e == 'P')
+						pos++;
+					break;
+				case 'u':
+					pos += 4;
+					break;
+				case 'c':
+					pos++;
+					break;
+				case 'k':
+					skipPast('>');
+					break;
+				case '0':
+					for (int i = 0; i < 3 && pos < length && regexp.charAt(pos) >= '0' && regexp.charAt(pos) <= '7'; i++)
+						pos++;
+					break;
+				default:
+					if (e >= '1' && e <= '9')
+					{
+						while (pos < length && Character.isDigit(regexp.charAt(pos)))
+							pos++;
+					}
+					else if ("dDwWsSBAzZGhHvVRX".indexOf(e) == -1)
+						failed = true;
+			}
+			if (pos > length)
+				failed = true;
+			return false;
+		} //}}}
+
+		//{{{ readInlineFlags() method
+		/**
+		 * Read a (?flags) construct, it changes the flags of the rest of the regexp.
+		 *
+		 * @return true if it was an inline flags construct
+		 */
+		private boolean readInlineFlags()
+		{
+			if (pos + 2 >= length || regexp.charAt(pos + 1) != '?')
+				return false;
+			int i = pos + 2;
+			boolean on = true;
+			boolean caseFlag = false;
+			while (i < length)
+			{
+				char c = regexp.charAt(i);
+				if (c == ')')
+					break;
+				if (c == '-')
+					on = false;
+				else if (!Character.isLetter(c))
+					return false;
+				else if (c == 'x' && on)
+				{
+					// the comments mode changes the meaning of the whitespaces
+					failed = true;
+					return true;
+				}
+				else if ((c == 'u' || c == 'U') && on)
+				{
+					// the unicode case folding is not the ascii folding of the literals
+					failed = true;
+					return true;
+				}
+				else if (c == 'i' && on)
+					caseFlag = true;
+				i++;
+			}
+			if (i >= length)
+				return false;
+			if (caseFlag)
+				ignoreCase = true;
+			pos = i + 1;
+			return true;
+		} //}}}
+
+		//{{{ readQuantifier() method
+		/**
+		 * Read the quantifier following an atom.
+		 *
+		 * @return the minimum number of repetitions, or -1 if there is no quantifier
+		 */
+		private int readQuantifier()
+		{
+			if (pos >= length || failed)
+				return -1;
+			int min;
+			char c = regexp.charAt(pos);
+			switch (c)
+			{
+				case '*':
+				case '?':
+					min = 0;
+					pos++;
+					break;
+				case '+':
+					min = 1;
+					pos++;
+					break;
+				case '{':
+					int end = regexp.indexOf('}', pos);
+					if (end == -1)
+					{
+						failed = true;
+						return -1;
+					}
+					int comma = regexp.indexOf(',', pos);
+					String minString = regexp.substring(pos + 1, comma != -1 && comma < end ? comma : end).trim();
+					try
+					{
+						min = Integer.parseInt(minString);
+					}
+					catch (NumberFormatException e)
+					{
+						failed = true;
+						return -1;
+					}
+					pos = end + 1;
+					break;
+				default:
+					return -1;
+			}
+			// lazy or possessive
+			if (pos < length && (regexp.charAt(pos) == '?' || regexp.charAt(pos) == '+'))
+				pos++;
+			return min;
+		} //}}}
+
+		//{{{ skipClass() method
+		/**
+		 * Skip a character class, the nested classes included.
+		 */
+		private void skipClass()
+		{
+			pos++;
+			if (pos < length && regexp.charAt(pos) == '^')
+				pos++;
+			// a leading ']' is a literal
+			if (pos < length && regexp.charAt(pos) == ']')
+				pos++;
+			int depth = 1;
+			while (pos < length)
+			{
+				char c = regexp.charAt(pos);
+				if (c == '\\')
+				{
+					if (pos + 1 < length && regexp.charAt(pos + 1) == 'Q')
+					{
+						failed = true;
+						return;
+					}
+					pos += 2;
+					continue;
+				}
+				pos++;
+				if (c == '[')
+					depth++;
+				else if (c == ']' && --depth == 0)
+					return;
+			}
+			failed = true;
+		} //}}}
+
+		//{{{ skipGroup() method
+		/**
+		 * Skip a group, its content is ignored.
+		 */
+		private void skipGroup()
+		{
+			pos++;
+			int depth = 1;
+			while (pos < length && !failed)
+			{
+				char c = regexp.charAt(pos);
+				switch (c)
+				{
+					case '\\':
+						if (pos + 1 < length && regexp.charAt(pos + 1) == 'Q')
+						{
+							int quoteEnd = regexp.indexOf("\\E", pos + 2);
+							pos = quoteEnd == -1 ? length : quoteEnd + 2;
+						}
+						else
+							pos += 2;
+						break;
+					case '[':
+						skipClass();
+						break;
+					case '(':
+						depth++;
+						pos++;
+						break;
+					case ')':
+						pos++;
+						if (--depth == 0)
+							return;
+						break;
+					default:
+						pos++;
+				}
+			}
+			failed = true;
+		} //}}}
+
+		//{{{ skipPast() method
+		private void skipPast(char c)
+		{
+			int index = regexp.indexOf(c, pos);
+			if (index == -1)
+				failed = true;
+			else
+				pos = index + 1;
+		} //}}}
+
+		//{{{ longest() method
+		private static String longest(String best, CharSequence run)
+		{
+			return run.length() > best.length() ? run.toString() : best;
+		} //}}}
+	} //}}}
+}
@@ -0,0 +1,160 @@
+/*
+ * CaretTextTest.java - The tests of the word and the selection at the caret
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import gatchan.highlight.editor.MemoryEditorView;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+//}}}
+
+/**
+ * @author Matthieu Casanova
+ */
+public class CaretTextTest
+{
+	//{{{ word at caret tests
+	@Test
+	public void wordAroundTheCaret()
+	{
+		MemoryEditorView view = new MemoryEditorView("foo bar baz");
+		view.setCaretPosition(5);
+		assertEquals("bar", CaretText.getWordAtCaret(view, false, false, 2));
+	}
+
+	@Test
+	public void wordBeforeTheCaret()
+	{
+		MemoryEditorView view = new MemoryEditorView("foo bar baz");
+		view.setCaretPosition(7);
+		assertEquals("bar", CaretText.getWordAtCaret(view, false, false, 2));
+	}
+
+	@Test
+	public void wordOfTheCaretLine()
+	{
+		MemoryEditorView view = new MemoryEditorView("first line\nsecond line");
+		view.setCaretPosition(13);
+		assertEquals("second", CaretText.getWordAtCaret(view, false, false, 2));
+	}
+
+	@Test
+	public void noWordOnAnEmptyLine()
+	{
+		MemoryEditorView view = new MemoryEditorView("foo\n\nbar");
+		view.setCaretPosition(4);
+		assertNull(CaretText.getWordAtCaret(view, false, false, 0));
+	}
+
+	@Test
+	public void noWordWithASelection()
+	{
+		MemoryEditorView view = new MemoryEditorView("foo bar baz");
+		view.setCaretPosition(5);
+		view.addSelection(4, 7);
+		assertNull(CaretText.getWordAtCaret(view, false, false, 2));
+	}
+
+	@Test
+	public void whitespaces()
+	{
+		MemoryEditorView view = new MemoryEditorView("foo   bar");
+		view.setCaretPosition(5);
+		assertNull(CaretText.getWordAtCaret(view, false, false, 2));
+		assertEquals("   ", CaretText.getWordAtCaret(view, true, false, 2));
+	}
+
+	@Test
+	public void onlyWords()
+	{
+		MemoryEditorView view = new MemoryEditorView("foo ++ bar");
+		view.setCaretPosition(5);
+		assertNull(CaretText.getWordAtCaret(view, false, true, 1));
+	}
+
+	@Test
+	public void noWordSepCharsArePartOfTheWords()
+	{
+		MemoryEditorView view = new MemoryEditorView("a foo_bar b");
+		view.setCaretPosition(4);
+		assertEquals("foo_bar", CaretText.getWordAtCaret(view, false, true, 2));
+	}
+
+	@Test
+	public void wordShorterThanTheMinimum()
+	{
+		MemoryEditorView view = new MemoryEditorView("a bb c");
+		view.setCaretPosition(3);
+		assertEquals("bb", CaretText.getWordAtCaret(view, false, false, 2));
+		assertNull(CaretText.getWordAtCaret(view, false, false, 3));
+	} //}}}
+
+	//{{{ selection tests
+	@Test
+	public void selectionAtTheCaret()
+	{
+		MemoryEditorView view = new MemoryEditorView("foo bar\nbaz");
+		view.addSelection(4, 7);
+		view.setCaretPosition(7);
+		assertEquals("bar", CaretText.getSelectionAtCaret(view, 0));
+	}
+
+	@Test
+	public void caretOutsideOfTheSelections()
+	{
+		MemoryEditorView view = new MemoryEditorView("foo bar\nbaz");
+		view.addSelection(4, 7);
+		view.setCaretPosition(1);
+		assertNull(CaretText.getSelectionAtCaret(view, 0));
+	}
+
+	@Test
+	public void secondSelection()
+	{
+		MemoryEditorView view = new MemoryEditorView("foo bar baz");
+		view.addSelection(0, 3);
+		view.addSelection(8, 11);
+		view.setCaretPosition(8);
+		assertEquals("baz", CaretText.getSelectionAtCaret(view, 0));
+	}
+
+	@Test
+	public void selectionOnSeveralLines()
+	{
+		MemoryEditorView view = new MemoryEditorView("foo bar\nbaz");
+		view.addSelection(4, 10);
+		view.setCaretPosition(10);
+		assertNull(CaretText.getSelectionAtCaret(view, 0));
+	}
+
+	@Test
+	public void selectionShorterThanTheMinimum()
+	{
+		MemoryEditorView view = new MemoryEditorView("foo bar");
+		view.addSelection(4, 7);
+		view.setCaretPosition(4);
+		assertEquals("bar", CaretText.getSelectionAtCaret(view, 3));
+		assertNull(CaretText.getSelectionAtCaret(view, 4));
+	} //}}}
+}
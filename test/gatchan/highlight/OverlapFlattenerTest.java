@@ -0,0 +1,186 @@
+/*
+ * OverlapFlattenerTest.java - The tests of the flattening of the overlapping spans
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+import static org.junit.Assert.assertEquals;
+//}}}
+
+/**
+ * The segments are painted without round corners in a one pixel high image,
+ * each pixel of the row has the color of the segment covering it.
+ *
+ * @author Matthieu Casanova
+ */
+public class OverlapFlattenerTest
+{
+	/** RED and BLUE painted on each other with an alpha of 0.5, BLUE on top. */
+	private static final Color BLUE_ON_RED = new Color(85, 0, 170);
+	private static final Color NONE = new Color(0, true);
+
+	private OverlapFlattener flattener;
+	private RectangleBatch batch;
+
+	//{{{ setUp() method
+	@Before
+	public void setUp()
+	{
+		flattener = new OverlapFlattener();
+		batch = new RectangleBatch();
+	} //}}}
+
+	//{{{ Last color wins tests
+	@Test
+	public void separateSpans()
+	{
+		flattener.add(Color.RED, 0, 10);
+		flattener.add(Color.BLUE, 20, 30);
+		flush(false);
+		assertSegments(0, 10, Color.RED, 10, 20, NONE, 20, 30, Color.BLUE, 30, 40, NONE);
+	}
+
+	@Test
+	public void nestedSpan()
+	{
+		flattener.add(Color.RED, 0, 30);
+		flattener.add(Color.BLUE, 10, 20);
+		flush(false);
+		assertSegments(0, 10, Color.RED, 10, 20, Color.BLUE, 20, 30, Color.RED);
+	}
+
+	@Test
+	public void nestedSpanPaintedFirst()
+	{
+		flattener.add(Color.BLUE, 10, 20);
+		flattener.add(Color.RED, 0, 30);
+		flush(false);
+		assertSegments(0, 30, Color.RED);
+	}
+
+	@Test
+	public void partlyOverlappingSpans()
+	{
+		flattener.add(Color.RED, 0, 20);
+		flattener.add(Color.BLUE, 10, 30);
+		flush(false);
+		assertSegments(0, 10, Color.RED, 10, 30, Color.BLUE);
+	} //}}}
+
+	//{{{ Blended colors tests
+	@Test
+	public void nestedSpanBlended()
+	{
+		flattener.add(Color.RED, 0, 30);
+		flattener.add(Color.BLUE, 10, 20);
+		flush(true);
+		assertSegments(0, 10, Color.RED, 10, 20, BLUE_ON_RED, 20, 30, Color.RED);
+	}
+
+	@Test
+	public void partlyOverlappingSpansBlended()
+	{
+		flattener.add(Color.RED, 0, 20);
+		flattener.add(Color.BLUE, 10, 30);
+		flattener.add(Color.GREEN, 35, 40);
+		flush(true);
+		assertSegments(0, 10, Color.RED, 10, 20, BLUE_ON_RED, 20, 30, Color.BLUE, 30, 35, NONE, 35, 40, Color.GREEN);
+	}
+
+	@Test
+	public void blendOrderMatters()
+	{
+		flattener.add(Color.BLUE, 0, 20);
+		flattener.add(Color.RED, 10, 30);
+		flush(true);
+		assertSegments(10, 20, new Color(170, 0, 85));
+	}
+
+	@Test
+	public void blendedColorsOfSeveralLines()
+	{
+		// the second line gets the mixed color of the first one
+		flattener.add(Color.RED, 0, 20);
+		flattener.add(Color.BLUE, 10, 30);
+		flush(true);
+		flattener.add(Color.RED, 0, 20);
+		flattener.add(Color.BLUE, 10, 30);
+		flattener.flush(batch, 1, 1, true, 0.5f, null);
+		BufferedImage image = paint(2);
+		for (int x = 10; x < 20; x++)
+			assertEquals("x=" + x, BLUE_ON_RED.getRGB(), image.getRGB(x, 1));
+	}
+
+	@Test
+	public void alphaChangesTheBlendedColor()
+	{
+		flattener.add(Color.RED, 0, 20);
+		flattener.add(Color.BLUE, 10, 30);
+		flush(true);
+		flattener.add(Color.RED, 0, 20);
+		flattener.add(Color.BLUE, 10, 30);
+		flattener.flush(batch, 1, 1, true, 1.0f, null);
+		BufferedImage image = paint(2);
+		assertEquals(BLUE_ON_RED.getRGB(), image.getRGB(15, 0));
+		assertEquals(Color.BLUE.getRGB(), image.getRGB(15, 1));
+	} //}}}
+
+	//{{{ flush() method
+	private void flush(boolean blend)
+	{
+		flattener.flush(batch, 0, 1, blend, 0.5f, null);
+	} //}}}
+
+	//{{{ paint() method
+	private BufferedImage paint(int height)
+	{
+		BufferedImage image = new BufferedImage(40, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D gfx = image.createGraphics();
+		batch.flush(gfx, AlphaComposite.Src, AlphaComposite.Src, false);
+		gfx.dispose();
+		return image;
+	} //}}}
+
+	//{{{ assertSegments() method
+	/**
+	 * Check the color of the pixels of the first row.
+	 *
+	 * @param segments (start, end, color) triples
+	 */
+	private void assertSegments(Object... segments)
+	{
+		BufferedImage image = paint(1);
+		for (int i = 0; i < segments.length; i += 3)
+		{
+			int start = (Integer) segments[i];
+			int end = (Integer) segments[i + 1];
+			Color color = (Color) segments[i + 2];
+			for (int x = start; x < end; x++)
+				assertEquals("x=" + x, color.getRGB(), image.getRGB(x, 0));
+		}
+	} //}}}
+}
@@ -0,0 +1,264 @@
+/*
+ * OverviewLinesTest.java - The tests of the lines matched by the overview highlights
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import gatchan.highlight.editor.MemoryEditorView;
+import gatchan.highlight.matcher.RegionMatcher;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+//}}}
+
+/**
+ * The highlights of these tests are regexps, the scans run when
+ * {@link #runScans()} is called and their results are published at once.
+ *
+ * @author Matthieu Casanova
+ */
+public class OverviewLinesTest
+{
+	private MemoryEditorView view;
+	private OverviewLines<String> lines;
+	/** The scans waiting to run. */
+	private final List<Runnable> scans = new ArrayList<>();
+	private int changes;
+	private int publishedScans;
+
+	//{{{ setUp() method
+	@Before
+	public void setUp()
+	{
+		view = new MemoryEditorView("foo\nbar\nfoo bar\nbaz");
+		lines = new OverviewLines<>(view, new RegexpMatchers(), () -> changes++, () -> publishedScans++,
+			scans::add, Runnable::run);
+	} //}}}
+
+	//{{{ Scan tests
+	@Test
+	public void scan()
+	{
+		assertTrue(lines.update(Arrays.asList("foo", "bar")));
+		assertEquals(0, lines.getLines(0).cardinality());
+		runScans();
+		assertEquals(1, publishedScans);
+		assertLines(0, 0, 2);
+		assertLines(1, 1, 2);
+	}
+
+	@Test
+	public void sameHighlightsAreNotScannedAgain()
+	{
+		lines.update(Arrays.asList("foo", "bar"));
+		runScans();
+		assertFalse(lines.update(Arrays.asList("foo", "bar")));
+		assertTrue(scans.isEmpty());
+	}
+
+	@Test
+	public void onlyTheNewHighlightIsScanned()
+	{
+		lines.update(Collections.singletonList("foo"));
+		runScans();
+		view.setText("foo\nbaz\nfoo baz");
+		assertTrue(lines.update(Arrays.asList("foo", "baz")));
+		runScans();
+		assertLines(0, 0, 2);
+		assertLines(1, 1, 2);
+	}
+
+	@Test
+	public void clearCancelsTheScan()
+	{
+		lines.update(Arrays.asList("foo", "bar"));
+		lines.clear();
+		runScans();
+		assertEquals(0, publishedScans);
+		assertEquals(0, lines.getHighlightCount());
+	} //}}}
+
+	//{{{ Edit tests
+	@Test
+	public void insertShiftsTheFollowingLines()
+	{
+		lines.update(Arrays.asList("foo", "bar"));
+		runScans();
+		// "new\n" inserted at the start of the line 1
+		view.setText("foo\nnew\nbar\nfoo bar\nbaz");
+		lines.contentInserted(1, 1);
+		lines.transactionComplete();
+		assertEquals(1, changes);
+		assertLines(0, 0, 3);
+		assertLines(1, 2, 3);
+	}
+
+	@Test
+	public void insertInALine()
+	{
+		lines.update(Arrays.asList("foo", "bar"));
+		runScans();
+		view.setText("foo\nbar\nfoo bar\nbaz foo");
+		lines.contentInserted(3, 0);
+		lines.transactionComplete();
+		assertLines(0, 0, 2, 3);
+		assertLines(1, 1, 2);
+	}
+
+	@Test
+	public void removeShiftsTheFollowingLines()
+	{
+		lines.update(Arrays.asList("foo", "bar"));
+		runScans();
+		// "bar\n" removed from the start of the line 1
+		view.setText("foo\nfoo bar\nbaz");
+		lines.contentRemoved(1, 1);
+		lines.transactionComplete();
+		assertEquals(1, changes);
+		assertLines(0, 0, 1);
+		assertLines(1, 1);
+	}
+
+	@Test
+	public void removeSeveralLines()
+	{
+		lines.update(Arrays.asList("foo", "bar"));
+		runScans();
+		// "oo\nbar\nfoo " removed
+		view.setText("fbar\nbaz");
+		lines.contentRemoved(0, 2);
+		lines.transactionComplete();
+		assertLines(0);
+		assertLines(1, 0);
+	}
+
+	@Test
+	public void insertDuringAScan()
+	{
+		lines.update(Arrays.asList("foo", "bar"));
+		// the scan has a copy of the text before the edit
+		view.setText("new\nfoo\nbar\nfoo bar\nbaz");
+		lines.contentInserted(0, 1);
+		lines.transactionComplete();
+		runScans();
+		assertLines(0, 1, 3);
+		assertLines(1, 2, 3);
+	}
+
+	@Test
+	public void removeDuringAScan()
+	{
+		lines.update(Arrays.asList("foo", "bar"));
+		view.setText("bar\nfoo bar\nbaz");
+		lines.contentRemoved(0, 1);
+		lines.transactionComplete();
+		runScans();
+		assertLines(0, 1);
+		assertLines(1, 0, 1);
+	}
+
+	@Test
+	public void editsDuringTheScanOfANewHighlight()
+	{
+		lines.update(Collections.singletonList("foo"));
+		runScans();
+		lines.update(Arrays.asList("foo", "bar"));
+		// the lines of foo are updated at once, the ones of bar when its scan is published
+		view.setText("foo\nbar\nnew\nfoo bar\nbaz");
+		lines.contentInserted(1, 1);
+		lines.transactionComplete();
+		assertLines(0, 0, 3);
+		runScans();
+		assertLines(0, 0, 3);
+		assertLines(1, 1, 3);
+	}
+
+	@Test
+	public void reloadScansAgain()
+	{
+		lines.update(Arrays.asList("foo", "bar"));
+		runScans();
+		view.setText("bar\nbar");
+		lines.bufferLoaded();
+		runScans();
+		assertEquals(2, publishedScans);
+		assertLines(0);
+		assertLines(1, 0, 1);
+	} //}}}
+
+	//{{{ runScans() method
+	private void runScans()
+	{
+		List<Runnable> pending = new ArrayList<>(scans);
+		scans.clear();
+		for (Runnable scan : pending)
+			scan.run();
+	} //}}}
+
+	//{{{ assertLines() method
+	private void assertLines(int highlight, int... expected)
+	{
+		BitSet bits = new BitSet();
+		for (int line : expected)
+			bits.set(line);
+		assertEquals("lines of " + lines.getHighlight(highlight), bits, lines.getLines(highlight));
+	} //}}}
+
+	//{{{ RegexpMatchers class
+	/**
+	 * The highlights are regexps, their EDT matcher is kept so they are never modified.
+	 */
+	private static final class RegexpMatchers implements OverviewLines.MatcherSource<String>
+	{
+		private final Map<String, RegionMatcher> matchers = new HashMap<>();
+
+		@Override
+		public RegionMatcher getRegionMatcher(String highlight)
+		{
+			return matchers.computeIfAbsent(highlight, regexp -> new RegionMatcher(Pattern.compile(regexp)));
+		}
+
+		@Override
+		public Supplier<RegionMatcher> getRegionMatcherFactory(String highlight)
+		{
+			Pattern pattern = Pattern.compile(highlight);
+			return () -> new RegionMatcher(pattern);
+		}
+
+		@Override
+		public void quarantine(String highlight, long cost)
+		{
+		}
+	} //}}}
+}
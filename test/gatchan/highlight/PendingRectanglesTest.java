@@ -0,0 +1,170 @@
+/*
+ * PendingRectanglesTest.java - The tests of the rectangles of a screen line
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight;
+
+//{{{ Imports
+import gatchan.highlight.editor.MemoryEditorView;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+//}}}
+
+/**
+ * The lines of these tests are wrapped every 10 chars of 8 pixels.
+ *
+ * @author Matthieu Casanova
+ */
+public class PendingRectanglesTest
+{
+	private MemoryEditorView view;
+	private PendingRectangles pending;
+	private RectangleBatch batch;
+
+	//{{{ setUp() method
+	@Before
+	public void setUp()
+	{
+		view = new MemoryEditorView("0123456789abcdefghij\nshort");
+		view.setWrapColumns(10);
+		pending = new PendingRectangles();
+		batch = new RectangleBatch();
+	} //}}}
+
+	//{{{ Tests
+	@Test
+	public void matchInsideAScreenLine()
+	{
+		pending.setWrapEnd(10);
+		pending.add(Color.RED, 2, 5, true);
+		flush(0);
+		assertBounds(16, 24);
+	}
+
+	@Test
+	public void matchCrossingTheWrapOnTheFirstScreenLine()
+	{
+		// the match [8,12[ clipped to the screen line [0,10[
+		pending.setWrapEnd(10);
+		pending.add(Color.RED, 8, 10, true);
+		flush(0);
+		assertBounds(64, 16);
+	}
+
+	@Test
+	public void matchCrossingTheWrapOnTheSecondScreenLine()
+	{
+		pending.setWrapEnd(-1);
+		pending.add(Color.RED, 10, 12, true);
+		flush(0);
+		assertBounds(0, 16);
+	}
+
+	@Test
+	public void lastCharOfAWrappedScreenLine()
+	{
+		pending.setWrapEnd(10);
+		pending.add(Color.RED, 9, 10, true);
+		flush(0);
+		assertBounds(72, 8);
+	}
+
+	@Test
+	public void outlineCrossingTheWrap()
+	{
+		pending.setWrapEnd(10);
+		pending.add(Color.RED, 7, 10, false);
+		flush(0);
+		assertBounds(56, 24);
+	}
+
+	@Test
+	public void squareCrossingTheWrap()
+	{
+		pending.setWrapEnd(10);
+		pending.add(Color.RED, 7, 10, true);
+		pending.flush(view, 0, batch, 0, 15, true, 0.5f, Color.BLACK, null);
+		assertBounds(56, 24);
+	}
+
+	@Test
+	public void matchAtTheEndOfALine()
+	{
+		pending.setWrapEnd(-1);
+		pending.add(Color.RED, 2, 5, true);
+		flush(1);
+		assertBounds(16, 24);
+	}
+
+	@Test
+	public void flushForgetsTheRectangles()
+	{
+		pending.add(Color.RED, 2, 5, true);
+		flush(1);
+		assertTrue(pending.isEmpty());
+		RectangleBatch second = new RectangleBatch();
+		pending.flush(view, 1, second, 0, 15, true, 0.5f, null, null);
+		assertFalse(second.getBounds(new Rectangle()));
+	}
+
+	@Test
+	public void unresolvedOffsetOnlySkipsItsRectangles()
+	{
+		MemoryEditorView partlyVisible = new MemoryEditorView("0123456789abcdefghij\nshort")
+		{
+			@Override
+			public void offsetsToX(int line, int[] offsets, int count, int[] xs)
+			{
+				super.offsetsToX(line, offsets, count, xs);
+				for (int i = 0; i < count; i++)
+				{
+					if (offsets[i] == 4)
+						xs[i] = UNRESOLVED_X;
+				}
+			}
+		};
+		pending.add(Color.RED, 2, 4, true);
+		pending.add(Color.BLUE, 4, 5, false);
+		pending.add(Color.GREEN, 6, 8, true);
+		pending.flush(partlyVisible, 0, batch, 0, 15, true, 0.5f, null, null);
+		assertBounds(48, 16);
+	} //}}}
+
+	//{{{ flush() method
+	private void flush(int line)
+	{
+		pending.flush(view, line, batch, 0, 15, true, 0.5f, null, null);
+	} //}}}
+
+	//{{{ assertBounds() method
+	private void assertBounds(int x, int width)
+	{
+		Rectangle bounds = new Rectangle();
+		assertTrue("a rectangle is painted", batch.getBounds(bounds));
+		assertEquals("x", x, bounds.x);
+		assertEquals("width", width, bounds.width);
+	} //}}}
+}
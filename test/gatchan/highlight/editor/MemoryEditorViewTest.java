@@ -0,0 +1,97 @@
+/*
+ * MemoryEditorViewTest.java - The tests of the editor view in memory
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.editor;
+
+//{{{ Imports
+import org.junit.Test;
+
+import javax.swing.text.Segment;
+import java.awt.Point;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+//}}}
+
+/**
+ * @author Matthieu Casanova
+ */
+public class MemoryEditorViewTest
+{
+	//{{{ Text tests
+	@Test
+	public void lines()
+	{
+		MemoryEditorView view = new MemoryEditorView("foo\n\nbar baz");
+		assertEquals(3, view.getLineCount());
+		assertEquals(5, view.getLineStartOffset(2));
+		assertEquals(0, view.getLineLength(1));
+		assertEquals(7, view.getLineLength(2));
+		assertEquals(0, view.getLineOfOffset(3));
+		assertEquals(1, view.getLineOfOffset(4));
+		assertEquals(2, view.getLineOfOffset(12));
+		Segment segment = new Segment();
+		view.getLineText(2, segment);
+		assertEquals("bar baz", segment.toString());
+		assertEquals("o\n\nb", view.getText(2, 4));
+	} //}}}
+
+	//{{{ Wrap tests
+	@Test
+	public void unwrappedLine()
+	{
+		MemoryEditorView view = new MemoryEditorView("0123456789abcdefghij");
+		assertEquals(1, view.getScreenLineCount(0));
+		Point point = view.offsetToXY(0, 12, new Point());
+		assertEquals(96, point.x);
+		assertEquals(0, point.y);
+	}
+
+	@Test
+	public void wrappedLine()
+	{
+		MemoryEditorView view = new MemoryEditorView("0123456789abcdefghij\nfoo");
+		view.setWrapColumns(10);
+		assertEquals(2, view.getScreenLineCount(0));
+		assertEquals(1, view.getScreenLineCount(1));
+		// the end of the first screen line is the start of the second one
+		Point point = view.offsetToXY(0, 10, new Point());
+		assertEquals(0, point.x);
+		assertEquals(16, point.y);
+		// the end of the physical line is on its last screen line
+		view.offsetToXY(0, 20, point);
+		assertEquals(80, point.x);
+		assertEquals(16, point.y);
+		view.offsetToXY(1, 1, point);
+		assertEquals(8, point.x);
+		assertEquals(32, point.y);
+	}
+
+	@Test
+	public void offsetsOfAWrappedLine()
+	{
+		MemoryEditorView view = new MemoryEditorView("0123456789abcdefghij");
+		view.setWrapColumns(10);
+		int[] xs = new int[3];
+		view.offsetsToX(0, new int[] {2, 9, 12}, 3, xs);
+		assertArrayEquals(new int[] {16, 72, 16}, xs);
+	} //}}}
+}
@@ -0,0 +1,123 @@
+/*
+ * RequiredLiteralsTest.java - The tests of the literals required by a regexp
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.matcher;
+
+//{{{ Imports
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+//}}}
+
+/**
+ * @author Matthieu Casanova
+ */
+public class RequiredLiteralsTest
+{
+	//{{{ Literals tests
+	@Test
+	public void literalBeforeAClass()
+	{
+		RequiredLiterals literals = RequiredLiterals.extract("ERROR\\s+\\[(\\w+)\\]", false);
+		assertNotNull(literals);
+		assertTrue(mayMatch(literals, "12:00 ERROR  [main]"));
+		assertFalse(mayMatch(literals, "12:00 WARN  [main]"));
+		assertFalse(mayMatch(literals, "12:00 error  [main]"));
+	}
+
+	@Test
+	public void alternatives()
+	{
+		RequiredLiterals literals = RequiredLiterals.extract("foo\\d+|bar", false);
+		assertNotNull(literals);
+		assertTrue(mayMatch(literals, "a bar"));
+		assertTrue(mayMatch(literals, "a foo1"));
+		assertFalse(mayMatch(literals, "a baz"));
+	}
+
+	@Test
+	public void ignoreCase()
+	{
+		RequiredLiterals literals = RequiredLiterals.extract("error", true);
+		assertNotNull(literals);
+		assertTrue(mayMatch(literals, "an Error"));
+		assertFalse(mayMatch(literals, "a warning"));
+	} //}}}
+
+	//{{{ Inline flags tests
+	@Test
+	public void inlineCaseInsensitiveFlag()
+	{
+		RequiredLiterals literals = RequiredLiterals.extract("(?i)error", false);
+		assertNotNull(literals);
+		assertTrue(mayMatch(literals, "an ERROR"));
+		assertFalse(mayMatch(literals, "a warning"));
+	}
+
+	@Test
+	public void disabledCaseInsensitiveFlag()
+	{
+		RequiredLiterals literals = RequiredLiterals.extract("(?-i)error", false);
+		assertNotNull(literals);
+		assertTrue(mayMatch(literals, "an error"));
+		assertFalse(mayMatch(literals, "an ERROR"));
+	}
+
+	@Test
+	public void inlineCommentsFlag()
+	{
+		assertNull(RequiredLiterals.extract("(?x)foo bar", false));
+	}
+
+	@Test
+	public void inlineUnicodeCaseFlag()
+	{
+		assertNull(RequiredLiterals.extract("(?iu)ÉCOLE", false));
+		assertNull(RequiredLiterals.extract("(?u)ÉCOLE", true));
+		assertNull(RequiredLiterals.extract("(?ui)ÉCOLE", false));
+	}
+
+	@Test
+	public void inlineUnicodeCharacterClassFlag()
+	{
+		// UNICODE_CHARACTER_CLASS implies UNICODE_CASE
+		assertNull(RequiredLiterals.extract("(?iU)ÉCOLE", false));
+		assertNull(RequiredLiterals.extract("(?U)ÉCOLE", true));
+	}
+
+	@Test
+	public void disabledUnicodeCaseFlag()
+	{
+		RequiredLiterals literals = RequiredLiterals.extract("(?i-u)error", false);
+		assertNotNull(literals);
+		assertTrue(mayMatch(literals, "an ERROR"));
+		assertFalse(mayMatch(literals, "a warning"));
+	} //}}}
+
+	//{{{ mayMatch() method
+	private static boolean mayMatch(RequiredLiterals literals, String text)
+	{
+		return literals.mayMatch(text, 0, text.length());
+	} //}}}
+}
@@ -0,0 +1,178 @@
+/*
+ * VectorLiteralScannerTest.java - The tests of the vector literal search
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.matcher;
+
+//{{{ Imports
+import org.gjt.sp.jedit.search.BoyerMooreSearchMatcher;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.text.Segment;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+//}}}
+
+/**
+ * The vector scanner must find the same matches as the Boyer-Moore search it
+ * replaces. These tests are skipped when the jdk.incubator.vector module is not
+ * available, the vector scanner is not used then.
+ *
+ * @author Matthieu Casanova
+ */
+public class VectorLiteralScannerTest
+{
+	//{{{ setUp() method
+	@Before
+	public void setUp()
+	{
+		Assume.assumeTrue("the vector module is not available", LiteralScanner.isVectorAvailable());
+	} //}}}
+
+	//{{{ Case tests
+	@Test
+	public void matchCase()
+	{
+		assertSameMatches("ab", false, "ab xab AB aab abab a b ab");
+	}
+
+	@Test
+	public void ignoreCase()
+	{
+		assertSameMatches("ab", true, "ab xAb AB aab aBab a b ab");
+	}
+
+	@Test
+	public void sFoldClass()
+	{
+		// s, S and the long s fold to S
+		assertSameMatches("as", true, "as aS aſ As aſſ s");
+		assertSameMatches("sa", true, "sa Sa ſa ſA sa");
+		assertSameMatches("ſa", true, "sa Sa ſa xa");
+	}
+
+	@Test
+	public void iFoldClass()
+	{
+		// i, I and the dotless i fold to I
+		assertSameMatches("hi", true, "hi hI hı Hi hİ hj");
+		assertSameMatches("ix", true, "ix Ix ıx İx iX");
+		assertSameMatches("sı", true, "si SI ſı sj");
+	}
+
+	@Test
+	public void foldClassesDoNotMatchWithCase()
+	{
+		assertSameMatches("si", false, "si SI ſı si");
+	} //}}}
+
+	//{{{ Range tests
+	@Test
+	public void matchAtEveryOffset()
+	{
+		// longer than a few blocks of lanes, the last offsets are checked by the scalar tail
+		char[] chars = new char[150];
+		Arrays.fill(chars, '.');
+		for (int i = 0; i + 3 <= chars.length; i++)
+		{
+			char[] text = chars.clone();
+			text[i] = 'F';
+			text[i + 1] = 'o';
+			text[i + 2] = 'ſ';
+			assertSameMatches("fos", true, new String(text));
+			assertSameMatches("Foſ", false, new String(text));
+		}
+	}
+
+	@Test
+	public void matchInTheTail()
+	{
+		assertSameMatches("abcdefgh", false, "abcdefg abcdefgh");
+		assertSameMatches("xy", true, "..........XY");
+	}
+
+	@Test
+	public void segmentOffset()
+	{
+		// the matches outside of the segment must not be found
+		char[] array = "ab..ab...AB..abab..ab".toCharArray();
+		for (int offset = 0; offset < array.length; offset++)
+		{
+			for (int count = 0; offset + count <= array.length; count++)
+			{
+				assertSameMatches("ab", false, new Segment(array, offset, count));
+				assertSameMatches("ab", true, new Segment(array, offset, count));
+			}
+		}
+	}
+
+	@Test
+	public void rangeOfASegment()
+	{
+		Segment segment = new Segment("ab ab ab ab ab ab".toCharArray(), 3, 11);
+		assertEquals(matches(new RegionMatcher(new BoyerMooreSearchMatcher("ab", false)), segment, 2, 8),
+			     matches(new RegionMatcher(scanner("ab", false)), segment, 2, 8));
+	} //}}}
+
+	//{{{ assertSameMatches() method
+	private static void assertSameMatches(String pattern, boolean ignoreCase, CharSequence text)
+	{
+		List<Integer> expected = matches(new RegionMatcher(new BoyerMooreSearchMatcher(pattern, ignoreCase)),
+			text, 0, text.length());
+		List<Integer> actual = matches(new RegionMatcher(scanner(pattern, ignoreCase)), text, 0, text.length());
+		assertEquals(pattern + " in " + text, expected, actual);
+	} //}}}
+
+	//{{{ scanner() method
+	private static LiteralScanner scanner(String pattern, boolean ignoreCase)
+	{
+		LiteralScanner scanner = LiteralScanner.create(pattern, ignoreCase);
+		assertNotNull("vector scanner of " + pattern, scanner);
+		return scanner;
+	} //}}}
+
+	//{{{ matches() method
+	/**
+	 * Returns the start and end offsets of the matches.
+	 */
+	private static List<Integer> matches(RegionMatcher matcher, CharSequence text, int start, int end)
+	{
+		List<Integer> matches = new ArrayList<>();
+		try
+		{
+			matcher.findAll(text, start, end, 0, (index, matchStart, matchEnd) ->
+			{
+				matches.add(matchStart);
+				matches.add(matchEnd);
+			});
+		}
+		catch (InterruptedException e)
+		{
+			throw new AssertionError(e);
+		}
+		return matches;
+	} //}}}
+}
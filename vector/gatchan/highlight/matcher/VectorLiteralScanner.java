@@ -0,0 +1,144 @@
+/*
+ * VectorLiteralScanner.java - Finds a short literal with the Vector API
+ * :tabSize=8:indentSize=8:noTabs=false:
+ * :folding=explicit:collapseFolds=1:
+ *
+ * Copyright (C) 2026 Matthieu Casanova
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.	 See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package gatchan.highlight.matcher;
+
+//{{{ Imports
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+//}}}
+
+/**
+ * The {@link LiteralScanner} using the jdk.incubator.vector module.
+ * For each block of offsets it loads the chars under the first and under the
+ * last char of the pattern, the offsets where both are equal are the only
+ * candidates checked char by char.
+ * With an ignore case pattern each lane is compared with every char folding
+ * to the pattern char, so only ascii pattern chars are supported.
+ * <p>
+ * This class is compiled with Java 17 and loaded by reflection, nothing else
+ * may reference it.
+ *
+ * @author Matthieu Casanova
+ */
+public final class VectorLiteralScanner extends LiteralScanner
+{
+	private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+	private static final int ASCII = 128;
+
+	/** The chars folding to each ascii char. */
+	private static final char[][] FOLD_CLASSES = buildFoldClasses();
+
+	/** The chars accepted at the first offset of the pattern, repeated to fill the three slots. */
+	private final short first0;
+	private final short first1;
+	private final short first2;
+	/** The chars accepted at the last offset of the pattern. */
+	private final short last0;
+	private final short last1;
+	private final short last2;
+
+	//{{{ VectorLiteralScanner constructor
+	/**
+	 * Create a scanner.
+	 *
+	 * @param pattern    the pattern
+	 * @param ignoreCase true if the case must be ignored
+	 * @throws IllegalArgumentException if an ignore case pattern starts or ends with a non ascii char
+	 */
+	public VectorLiteralScanner(String pattern, boolean ignoreCase)
+	{
+		super(pattern, ignoreCase);
+		char[] firstChars = acceptedChars(this.pattern[0]);
+		char[] lastChars = acceptedChars(this.pattern[this.pattern.length - 1]);
+		first0 = (short) firstChars[0];
+		first1 = (short) firstChars[Math.min(1, firstChars.length - 1)];
+		first2 = (short) firstChars[firstChars.length - 1];
+		last0 = (short) lastChars[0];
+		last1 = (short) lastChars[Math.min(1, lastChars.length - 1)];
+		last2 = (short) lastChars[lastChars.length - 1];
+	} //}}}
+
+	//{{{ indexOf() method
+	@Override
+	protected int indexOf(char[] array, int from, int to)
+	{
+		int lanes = SPECIES.length();
+		int lastOffset = pattern.length - 1;
+		int i = from;
+		// the chars under the last char of the pattern must be in the array too
+		for (int bound = to - lastOffset - lanes; i <= bound; i += lanes)
+		{
+			ShortVector firstBlock = ShortVector.fromCharArray(SPECIES, array, i);
+			ShortVector lastBlock = ShortVector.fromCharArray(SPECIES, array, i + lastOffset);
+			VectorMask<Short> candidates = firstBlock.eq(first0)
+				.or(firstBlock.eq(first1))
+				.or(firstBlock.eq(first2))
+				.and(lastBlock.eq(last0)
+					.or(lastBlock.eq(last1))
+					.or(lastBlock.eq(last2)));
+			long bits = candidates.toLong();
+			while (bits != 0L)
+			{
+				int candidate = i + Long.numberOfTrailingZeros(bits);
+				if (matchesAt(array, candidate))
+					return candidate;
+				bits &= bits - 1L;
+			}
+		}
+		return scalarIndexOf(array, i, to);
+	} //}}}
+
+	//{{{ acceptedChars() method
+	/**
+	 * Returns the chars that match a pattern char, at most three.
+	 */
+	private char[] acceptedChars(char c)
+	{
+		if (!ignoreCase)
+			return new char[] {c};
+		if (c >= ASCII || FOLD_CLASSES[c].length > 3)
+			throw new IllegalArgumentException("Unsupported ignore case char " + c);
+		return FOLD_CLASSES[c];
+	} //}}}
+
+	//{{{ buildFoldClasses() method
+	private static char[][] buildFoldClasses()
+	{
+		StringBuilder[] classes = new StringBuilder[ASCII];
+		for (int i = 0; i < ASCII; i++)
+			classes[i] = new StringBuilder(3);
+		for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++)
+		{
+			char folded = FoldedText.fold((char) c);
+			if (folded < ASCII)
+				classes[folded].append((char) c);
+		}
+		char[][] foldClasses = new char[ASCII][];
+		for (int i = 0; i < ASCII; i++)
+		{
+			// a char that is not a folded char is never found in a folded pattern
+			foldClasses[i] = classes[i].length() == 0 ? new char[] {(char) i} : classes[i].toString().toCharArray();
+		}
+		return foldClasses;
+	} //}}}
+}